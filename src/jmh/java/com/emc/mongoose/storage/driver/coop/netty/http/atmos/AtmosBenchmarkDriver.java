@@ -0,0 +1,132 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.base.Constants.APP_NAME;
+
+import com.emc.mongoose.base.data.DataInput;
+import com.emc.mongoose.base.env.Extension;
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.item.op.OpType;
+import com.emc.mongoose.base.item.op.data.DataOperation;
+import com.emc.mongoose.base.storage.Credential;
+import com.github.akurilov.commons.collection.TreeUtil;
+import com.github.akurilov.commons.system.SizeInBytes;
+import com.github.akurilov.confuse.Config;
+import com.github.akurilov.confuse.SchemaProvider;
+import com.github.akurilov.confuse.impl.BasicConfig;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/** The driver exposing the internal hot path methods to the benchmarks, doesn't connect anywhere. */
+public final class AtmosBenchmarkDriver extends AtmosStorageDriver<DataItem, DataOperation<DataItem>> {
+
+	static final Credential CREDENTIAL = Credential.getInstance("user1", "u5QtPuQx+W5nrrQQEg7nArBqSgC8qLiDt2RhQthb");
+	static final Credential CREDENTIAL_NO_SECRET = Credential.getInstance("user1", null);
+	static final String AUTH_TOKEN = "5cc597535ed747f09b5d273154216339";
+	static final String NS = "ns1";
+
+	static Config config(final boolean fsAccess) {
+		final List<Map<String, Object>> configSchemas = Extension.load(Thread.currentThread().getContextClassLoader())
+						.stream()
+						.map(Extension::schemaProvider)
+						.filter(Objects::nonNull)
+						.map(
+										schemaProvider -> {
+											try {
+												return schemaProvider.schema();
+											} catch (final Exception e) {
+												throw new IllegalStateException(e);
+											}
+										})
+						.collect(Collectors.toList());
+		SchemaProvider.resolve(APP_NAME, Thread.currentThread().getContextClassLoader())
+						.stream()
+						.findFirst()
+						.ifPresent(configSchemas::add);
+		final Map<String, Object> configSchema = TreeUtil.reduceForest(configSchemas);
+		final Config config = new BasicConfig("-", configSchema);
+		config.val("load-batch-size", 4096);
+		config.val("storage-driver-limit-concurrency", 0);
+		config.val("storage-namespace", NS);
+		config.val("storage-net-transport", "nio");
+		config.val("storage-net-reuseAddr", true);
+		config.val("storage-net-bindBacklogSize", 0);
+		config.val("storage-net-keepAlive", true);
+		config.val("storage-net-rcvBuf", 0);
+		config.val("storage-net-sndBuf", 0);
+		config.val("storage-net-ssl-enabled", false);
+		config.val("storage-net-ssl-protocols", Collections.<String>emptyList());
+		config.val("storage-net-ssl-provider", "OPENSSL");
+		config.val("storage-net-tcpNoDelay", false);
+		config.val("storage-net-interestOpQueued", false);
+		config.val("storage-net-linger", 0);
+		config.val("storage-net-timeoutMilliSec", 0);
+		config.val("storage-net-ioRatio", 50);
+		config.val("storage-net-node-addrs", Collections.singletonList("127.0.0.1"));
+		config.val("storage-net-node-port", 9024);
+		config.val("storage-net-node-connAttemptsLimit", 0);
+		AtmosConfigDefaults.apply(config);
+		config.val("storage-net-http-fsAccess", fsAccess);
+		config.val(
+						"storage-net-http-headers",
+						new HashMap<String, String>() {
+							{
+								put("Date", "Thu, 01 Jan 2015 00:00:00 GMT");
+							}
+						});
+		config.val("storage-net-http-uri-args", Collections.EMPTY_MAP);
+		config.val("storage-auth-uid", CREDENTIAL.getUid());
+		config.val("storage-auth-token", AUTH_TOKEN);
+		config.val("storage-auth-secret", CREDENTIAL.getSecret());
+		config.val("storage-driver-threads", 0);
+		config.val("storage-driver-limit-queue-input", 1_000_000);
+		config.val("storage-driver-limit-queue-output", 1_000_000);
+		return config;
+	}
+
+	public AtmosBenchmarkDriver(final boolean fsAccess) throws Exception {
+		this(config(fsAccess));
+	}
+
+	private AtmosBenchmarkDriver(final Config config) throws Exception {
+		super(
+						"benchmark-storage-driver-atmos",
+						DataInput.instance(null, "7a42d9c483244167", new SizeInBytes("4MB"), 16),
+						config.configVal("storage"),
+						false,
+						config.intVal("load-batch-size"));
+	}
+
+	@Override
+	protected final CompletableFuture<FullHttpResponse> executeHttpRequest(
+					final String nodeAddr, final FullHttpRequest httpRequest) {
+		return CompletableFuture.completedFuture(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+	}
+
+	String canonical(final HttpHeaders httpHeaders, final HttpMethod httpMethod, final String dstUriPath) {
+		return getCanonical(httpHeaders, httpMethod, dstUriPath);
+	}
+
+	void sign(
+					final HttpHeaders httpHeaders,
+					final HttpMethod httpMethod,
+					final String dstUriPath,
+					final Credential credential) {
+		applyAuthHeaders(httpHeaders, httpMethod, dstUriPath, credential);
+	}
+
+	String uriPath(final DataItem item, final String dstPath, final OpType opType) {
+		return dataUriPath(item, null, dstPath, opType);
+	}
+}
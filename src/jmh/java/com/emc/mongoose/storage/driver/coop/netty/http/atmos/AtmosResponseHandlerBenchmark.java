@@ -0,0 +1,53 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.item.DataItemImpl;
+import com.emc.mongoose.base.item.op.OpType;
+import com.emc.mongoose.base.item.op.data.DataOperation;
+import com.emc.mongoose.base.item.op.data.DataOperationImpl;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+@State(Scope.Thread)
+public class AtmosResponseHandlerBenchmark {
+
+	@Param({
+		AtmosApi.OBJ_URI_BASE + "/4fccd760a1f2194004fcce05b010a304ffc5aa15c541",
+		AtmosApi.NS_URI_BASE + "/dir0/00003brre8lgz",
+	})
+	public String location;
+
+	private AtmosBenchmarkDriver driver;
+	private AtmosResponseHandler<DataItem, DataOperation<DataItem>> handler;
+	private DataOperation<DataItem> op;
+	private HttpHeaders respHeaders;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		driver = new AtmosBenchmarkDriver(false);
+		handler = new AtmosResponseHandler<>(driver, false, false);
+		final DataItem item = new DataItemImpl("00003brre8lgz", Long.parseLong("00003brre8lgz", Character.MAX_RADIX), 0);
+		op = new DataOperationImpl<>(hashCode(), OpType.CREATE, item, null, null, null, null, 0);
+		respHeaders = new DefaultHttpHeaders();
+		respHeaders.set(HttpHeaderNames.LOCATION, location);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		driver.close();
+	}
+
+	@Benchmark
+	public DataOperation<DataItem> handleLocation() {
+		handler.handleResponseHeaders(null, op, respHeaders);
+		return op;
+	}
+}
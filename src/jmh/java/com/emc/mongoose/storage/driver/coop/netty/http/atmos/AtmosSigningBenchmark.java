@@ -0,0 +1,77 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosBenchmarkDriver.AUTH_TOKEN;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosBenchmarkDriver.CREDENTIAL;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosBenchmarkDriver.CREDENTIAL_NO_SECRET;
+
+import com.emc.mongoose.base.storage.Credential;
+import com.emc.mongoose.storage.driver.coop.netty.http.EmcConstants;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+@State(Scope.Thread)
+public class AtmosSigningBenchmark {
+
+	private static final String URI_PATH = AtmosApi.OBJ_URI_BASE + "/4fccd760a1f2194004fcce05b010a304ffc5aa15c541";
+	/** The request specific x-emc-* headers the Atmos API defines, the name and the value pairs */
+	private static final String[] EMC_HEADERS = {
+					AtmosApi.KEY_X_EMC_META, "key0=0123456789abcdef,key1=0123456789abcdef",
+					AtmosApi.KEY_X_EMC_LISTABLE_META, "tag0=0123456789abcdef",
+					AtmosApi.KEY_X_EMC_TAGS, "key0,key1,tag0",
+					AtmosApi.KEY_X_EMC_WSCHECKSUM, "MD5/1024/0f343b0931126a20f133d67c2b018a3b",
+					"x-emc-useracl", "user1=FULL_CONTROL",
+					"x-emc-groupacl", "other=READ",
+					AtmosApi.KEY_X_EMC_INCLUDE_META, "1",
+					AtmosApi.KEY_X_EMC_LIMIT, "1000",
+	};
+
+	@Param({"true", "false"})
+	public boolean secret;
+
+	@Param({"0", "4", "8"})
+	public int emcHeaderCount;
+
+	private AtmosBenchmarkDriver driver;
+	private Credential credential;
+	private HttpHeaders httpHeaders;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		driver = new AtmosBenchmarkDriver(false);
+		credential = secret ? CREDENTIAL : CREDENTIAL_NO_SECRET;
+		httpHeaders = new DefaultHttpHeaders();
+		httpHeaders.set(HttpHeaderNames.HOST, "127.0.0.1");
+		httpHeaders.set(HttpHeaderNames.DATE, "Thu, 01 Jan 2015 00:00:00 GMT");
+		httpHeaders.set(HttpHeaderNames.CONTENT_LENGTH, 0);
+		httpHeaders.set(EmcConstants.KEY_X_EMC_NAMESPACE, AtmosBenchmarkDriver.NS);
+		httpHeaders.set(EmcConstants.KEY_X_EMC_UID, AUTH_TOKEN + '/' + CREDENTIAL.getUid());
+		for (var i = 0; i < emcHeaderCount; i++) {
+			httpHeaders.set(EMC_HEADERS[2 * i], EMC_HEADERS[2 * i + 1]);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		driver.close();
+	}
+
+	@Benchmark
+	public String canonical() {
+		return driver.canonical(httpHeaders, HttpMethod.GET, URI_PATH);
+	}
+
+	@Benchmark
+	public HttpHeaders applyAuthHeaders() {
+		driver.sign(httpHeaders, HttpMethod.GET, URI_PATH, credential);
+		return httpHeaders;
+	}
+}
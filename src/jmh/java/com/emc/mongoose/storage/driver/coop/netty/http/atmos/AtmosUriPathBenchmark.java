@@ -0,0 +1,51 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.item.DataItemImpl;
+import com.emc.mongoose.base.item.op.OpType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+@State(Scope.Thread)
+public class AtmosUriPathBenchmark {
+
+	@Param({"false", "true"})
+	public boolean fsAccess;
+
+	@Param({"CREATE", "READ"})
+	public OpType opType;
+
+	private AtmosBenchmarkDriver driver;
+	private DataItem item;
+	private String dstPath;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		driver = new AtmosBenchmarkDriver(fsAccess);
+		if (fsAccess) {
+			item = new DataItemImpl("00003brre8lgz", Long.parseLong("00003brre8lgz", Character.MAX_RADIX), 10240);
+			dstPath = "/dir0";
+		} else {
+			item = new DataItemImpl(
+							"4fccd760a1f2194004fcce05b010a304ffc5aa15c541",
+							Long.parseLong("00003brre8lgz", Character.MAX_RADIX),
+							10240);
+			dstPath = null;
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		driver.close();
+	}
+
+	@Benchmark
+	public String dataUriPath() {
+		return driver.uriPath(item, dstPath, opType);
+	}
+}
@@ -16,10 +16,37 @@ public interface AtmosApi {
 
 	String SUBTENANT_URI_BASE = URI_BASE + "/subtenant";
 
+	String SERVICE_URI = URI_BASE + "/service";
+
+	String QUERY_RENAME = "?rename";
+
+	String QUERY_METADATA_USER = "?metadata/user";
+
+	String QUERY_METADATA_SYSTEM = "?metadata/system";
+
+	/** The length of the hexadecimal object id returned in the Location header */
+	int OBJ_ID_LENGTH = 44;
+
 	String SIGN_METHOD = "HmacSHA1";
 
 	String KEY_SUBTENANT_ID = "subtenantID";
 
+	String KEY_X_EMC_LIMIT = "x-emc-limit";
+
+	String KEY_X_EMC_TOKEN = "x-emc-token";
+
+	String KEY_X_EMC_INCLUDE_META = "x-emc-include-meta";
+
+	String KEY_X_EMC_TAGS = "x-emc-tags";
+
+	String KEY_X_EMC_WSCHECKSUM = "x-emc-wschecksum";
+
+	String KEY_X_EMC_PATH = "x-emc-path";
+
+	String KEY_X_EMC_META = "x-emc-meta";
+
+	String KEY_X_EMC_LISTABLE_META = "x-emc-listable-meta";
+
 	AsciiString HEADERS_CANONICAL[] = {
 			//HttpHeaderNames.CONTENT_MD5,
 			HttpHeaderNames.CONTENT_TYPE,
@@ -0,0 +1,122 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.github.akurilov.netty.connection.pool.NonBlockingConnPool.ATTR_KEY_NODE;
+
+import com.github.akurilov.netty.connection.pool.NonBlockingConnPool;
+import io.netty.channel.Channel;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ The connection pool decorator routing the data operations to the storage node selected by the balancer. The node is
+ selected before the lease, then the connections are leased from the wrapped pool (which rotates the nodes) until the
+ connection to the selected node is leased, at most once per node. The connections to the other nodes are released back
+ to the wrapped pool at once, so all the connections are accounted by the wrapped pool only: this decorator doesn't keep
+ any. If no connection to the selected node is leased the first leased one is used (to any node). If the balancer is not
+ set the decorator just delegates to the wrapped pool.
+ */
+final class AtmosBalancedConnPool
+				implements NonBlockingConnPool {
+
+	/** The connections to the not selected nodes leased by the current thread, released back after each lease */
+	private static final ThreadLocal<List<Channel>> SKIPPED_CONNS = ThreadLocal.withInitial(ArrayList::new);
+
+	private final NonBlockingConnPool connPool;
+	private final Supplier<AtmosNodeBalancer> balancerSupplier;
+	private final int nodeCount;
+
+	/**
+	 @param connPool the wrapped connection pool
+	 @param balancerSupplier supplies the storage nodes balancer, null if the balancing is disabled. The supplier is used
+	 because the connection pool is created before the balancer
+	 @param nodeCount the count of the storage nodes, the max count of the connections leased to get the one to the
+	 selected node
+	 */
+	AtmosBalancedConnPool(
+					final NonBlockingConnPool connPool, final Supplier<AtmosNodeBalancer> balancerSupplier,
+					final int nodeCount) {
+		this.connPool = connPool;
+		this.balancerSupplier = balancerSupplier;
+		this.nodeCount = nodeCount;
+	}
+
+	@Override
+	public final void preConnect(final int count)
+					throws ConnectException, IllegalArgumentException, InterruptedException {
+		connPool.preConnect(count);
+	}
+
+	@Override
+	public final Channel lease()
+					throws ConnectException {
+		final var balancer = balancerSupplier.get();
+		if (balancer == null) {
+			return connPool.lease();
+		}
+		final var nodeAddr = balancer.select();
+		if (nodeAddr == null) {
+			return connPool.lease();
+		}
+		return lease(nodeAddr);
+	}
+
+	/** @return the connection to the given node if leased, the connection to any node otherwise, null if none */
+	private Channel lease(final String nodeAddr)
+					throws ConnectException {
+		final var skippedConns = SKIPPED_CONNS.get();
+		Channel conn = null;
+		try {
+			for (var i = 0; i < nodeCount; i++) {
+				conn = connPool.lease();
+				if (conn == null || nodeAddr.equals(conn.attr(ATTR_KEY_NODE).get())) {
+					break;
+				}
+				skippedConns.add(conn);
+				conn = null;
+			}
+			if (conn == null && !skippedConns.isEmpty()) {
+				conn = skippedConns.remove(0);
+			}
+		} finally {
+			if (!skippedConns.isEmpty()) {
+				connPool.release(skippedConns);
+				skippedConns.clear();
+			}
+		}
+		return conn;
+	}
+
+	@Override
+	public final int lease(final List<Channel> conns, final int maxCount)
+					throws ConnectException {
+		if (balancerSupplier.get() == null) {
+			return connPool.lease(conns, maxCount);
+		}
+		var n = 0;
+		Channel conn;
+		while (n < maxCount && null != (conn = lease())) {
+			conns.add(conn);
+			n++;
+		}
+		return n;
+	}
+
+	@Override
+	public final void release(final Channel conn) {
+		connPool.release(conn);
+	}
+
+	@Override
+	public final void release(final List<Channel> conns) {
+		connPool.release(conns);
+	}
+
+	@Override
+	public final void close()
+					throws IOException {
+		connPool.close();
+	}
+}
@@ -0,0 +1,254 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.util.AsciiString;
+import java.util.Arrays;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+
+/**
+ Reusable (thread local) byte buffer for the canonical request representation. The canonical form is written directly as
+ the UTF-8 bytes and fed to the MAC w/o intermediate strings. The x-emc-* headers are collected into the reusable arrays
+ and kept sorted by the lower case name, the latest value wins for the same name. The canonical headers values are
+ collected in the order, all the values of the repeated header are kept.
+ */
+final class AtmosCanonicalBuffer {
+
+	private static final Base64.Encoder BASE64_ENCODER = Base64.getEncoder();
+
+	private byte[] bytes = new byte[0x400];
+	private int size = 0;
+
+	private CharSequence[] emcHeaderNames = new CharSequence[0x10];
+	private CharSequence[] emcHeaderValues = new CharSequence[0x10];
+	private int emcHeaderCount = 0;
+
+	private int[] canonicalHeaderIndices = new int[4];
+	private CharSequence[] canonicalValues = new CharSequence[4];
+	private int canonicalValueCount = 0;
+
+	private byte[] sigBytes = new byte[0];
+
+	void reset() {
+		size = 0;
+		Arrays.fill(emcHeaderNames, 0, emcHeaderCount, null);
+		Arrays.fill(emcHeaderValues, 0, emcHeaderCount, null);
+		emcHeaderCount = 0;
+		Arrays.fill(canonicalValues, 0, canonicalValueCount, null);
+		canonicalValueCount = 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	AtmosCanonicalBuffer append(final char c) {
+		ensureCapacity(size + 1);
+		bytes[size++] = (byte) c;
+		return this;
+	}
+
+	AtmosCanonicalBuffer append(final CharSequence s) {
+		final var len = s.length();
+		ensureCapacity(size + 4 * len);
+		char c;
+		for (var i = 0; i < len; i++) {
+			c = s.charAt(i);
+			if (c < 0x80) {
+				bytes[size++] = (byte) c;
+			} else if (c < 0x800) {
+				bytes[size++] = (byte) (0xC0 | (c >> 6));
+				bytes[size++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+				final var cp = Character.toCodePoint(c, s.charAt(++i));
+				bytes[size++] = (byte) (0xF0 | (cp >> 18));
+				bytes[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+				bytes[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+				bytes[size++] = (byte) (0x80 | (cp & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				bytes[size++] = '?'; // same as the String.getBytes() replacement for a malformed input
+			} else {
+				bytes[size++] = (byte) (0xE0 | (c >> 12));
+				bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				bytes[size++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		return this;
+	}
+
+	AtmosCanonicalBuffer appendLowerCase(final CharSequence s) {
+		final var len = s.length();
+		ensureCapacity(size + len);
+		char c;
+		for (var i = 0; i < len; i++) {
+			c = s.charAt(i);
+			bytes[size++] = (byte) (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+		}
+		return this;
+	}
+
+	/**
+	 @param headerIndex the index of the header in the {@link AtmosApi#HEADERS_CANONICAL}
+	 @param value the next value of the header
+	 */
+	void putCanonicalValue(final int headerIndex, final CharSequence value) {
+		if (canonicalValueCount == canonicalValues.length) {
+			canonicalHeaderIndices = Arrays.copyOf(canonicalHeaderIndices, 2 * canonicalValueCount);
+			canonicalValues = Arrays.copyOf(canonicalValues, 2 * canonicalValueCount);
+		}
+		canonicalHeaderIndices[canonicalValueCount] = headerIndex;
+		canonicalValues[canonicalValueCount] = value;
+		canonicalValueCount++;
+	}
+
+	/**
+	 Append the values put before for the given canonical header as the "\nvalue" lines in the order of putting
+	 @param headerIndex the index of the header in the {@link AtmosApi#HEADERS_CANONICAL}
+	 @return false if no value has been put for the header, nothing is appended in this case
+	 */
+	boolean appendCanonicalValues(final int headerIndex) {
+		var found = false;
+		for (var i = 0; i < canonicalValueCount; i++) {
+			if (canonicalHeaderIndices[i] == headerIndex) {
+				append('\n').append(canonicalValues[i]);
+				found = true;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 Put the x-emc-* header into the sorted set. The header name is compared ignoring the case, the value replaces the
+	 previous one if the same header name has been put before.
+	 */
+	void putEmcHeader(final CharSequence name, final CharSequence value) {
+		var lo = 0;
+		var hi = emcHeaderCount - 1;
+		int mid;
+		int cmp;
+		while (lo <= hi) {
+			mid = (lo + hi) >>> 1;
+			cmp = compareIgnoreCase(emcHeaderNames[mid], name);
+			if (cmp < 0) {
+				lo = mid + 1;
+			} else if (cmp > 0) {
+				hi = mid - 1;
+			} else {
+				emcHeaderValues[mid] = value;
+				return;
+			}
+		}
+		if (emcHeaderCount == emcHeaderNames.length) {
+			emcHeaderNames = Arrays.copyOf(emcHeaderNames, 2 * emcHeaderCount);
+			emcHeaderValues = Arrays.copyOf(emcHeaderValues, 2 * emcHeaderCount);
+		}
+		System.arraycopy(emcHeaderNames, lo, emcHeaderNames, lo + 1, emcHeaderCount - lo);
+		System.arraycopy(emcHeaderValues, lo, emcHeaderValues, lo + 1, emcHeaderCount - lo);
+		emcHeaderNames[lo] = name;
+		emcHeaderValues[lo] = value;
+		emcHeaderCount++;
+	}
+
+	/**
+	 Init the sorted x-emc-* headers set with the precompiled shared headers
+	 @param shared the precompiled shared part of the canonical form
+	 */
+	void putEmcHeaders(final AtmosSharedCanonical shared) {
+		final var count = shared.emcHeaderNames.length;
+		if (emcHeaderCount == 0) {
+			if (count > emcHeaderNames.length) {
+				emcHeaderNames = new CharSequence[count];
+				emcHeaderValues = new CharSequence[count];
+			}
+			System.arraycopy(shared.emcHeaderNames, 0, emcHeaderNames, 0, count);
+			System.arraycopy(shared.emcHeaderValues, 0, emcHeaderValues, 0, count);
+			emcHeaderCount = count;
+		} else {
+			for (var i = 0; i < count; i++) {
+				putEmcHeader(shared.emcHeaderNames[i], shared.emcHeaderValues[i]);
+			}
+		}
+	}
+
+	int emcHeaderCount() {
+		return emcHeaderCount;
+	}
+
+	void copyEmcHeaders(final CharSequence[] names, final CharSequence[] values) {
+		System.arraycopy(emcHeaderNames, 0, names, 0, emcHeaderCount);
+		System.arraycopy(emcHeaderValues, 0, values, 0, emcHeaderCount);
+	}
+
+	/** Append the sorted x-emc-* headers collected before as the "\nname:value" lines */
+	void appendEmcHeaders() {
+		for (var i = 0; i < emcHeaderCount; i++) {
+			append('\n').appendLowerCase(emcHeaderNames[i]).append(':').append(emcHeaderValues[i]);
+		}
+	}
+
+	/**
+	 @param mac the initialized MAC instance to use
+	 @return the Base-64 encoded signature of the buffer content
+	 */
+	AsciiString sign(final Mac mac) {
+		mac.update(bytes, 0, size);
+		final var sigLen = mac.getMacLength();
+		if (sigLen != sigBytes.length) {
+			sigBytes = new byte[sigLen];
+		}
+		try {
+			mac.doFinal(sigBytes, 0);
+		} catch (final ShortBufferException e) {
+			throw new AssertionError("Unexpected MAC length: " + sigLen, e);
+		}
+		// the only allocation: the header value should outlive the buffer content, so it's encoded directly into its own
+		// exact size array which is wrapped w/o copying
+		return new AsciiString(BASE64_ENCODER.encode(sigBytes), false);
+	}
+
+	@Override
+	public final String toString() {
+		return new String(bytes, 0, size, UTF_8);
+	}
+
+	private void ensureCapacity(final int capacity) {
+		if (capacity > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(capacity, 2 * bytes.length));
+		}
+	}
+
+	static boolean startsWithIgnoreCase(final CharSequence s, final CharSequence prefix) {
+		final var prefixLen = prefix.length();
+		if (s.length() < prefixLen) {
+			return false;
+		}
+		for (var i = 0; i < prefixLen; i++) {
+			if (toLowerCase(s.charAt(i)) != toLowerCase(prefix.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static int compareIgnoreCase(final CharSequence s1, final CharSequence s2) {
+		final var len1 = s1.length();
+		final var len2 = s2.length();
+		final var len = Math.min(len1, len2);
+		char c1;
+		char c2;
+		for (var i = 0; i < len; i++) {
+			c1 = toLowerCase(s1.charAt(i));
+			c2 = toLowerCase(s2.charAt(i));
+			if (c1 != c2) {
+				return c1 - c2;
+			}
+		}
+		return len1 - len2;
+	}
+
+	private static char toLowerCase(final char c) {
+		return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+	}
+}
@@ -0,0 +1,163 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import com.emc.mongoose.base.item.op.Operation;
+import com.emc.mongoose.base.logging.Loggers;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Additive increase/multiplicative decrease (AIMD) limit of the concurrent operations. The limit is applied to the
+ driver's concurrency throttle by holding ("parking") the permits above the current limit. The permits in use when the
+ limit is decreased are parked later, when released by the completing operations. The decision is made once per
+ window which is the current limit count of the completed operations (~ the round trip time): the limit is decreased if
+ the service failure responses (5xx, e.g. "server busy") have been got or the window average latency exceeds the
+ baseline latency multiplied by the configured factor, increased otherwise.
+ */
+final class AtmosConcurrencyLimiter {
+
+	private final Semaphore throttle;
+	private final int minLimit;
+	private final int maxLimit;
+	private final int increment;
+	private final double decreaseFactor;
+	private final double latencyFactor;
+
+	private final AtomicLong completedCount = new AtomicLong(0);
+	private final LongAdder windowLatencySum = new LongAdder();
+	private final LongAdder windowLatencyCount = new LongAdder();
+	private volatile boolean throttledInWindow = false;
+	private volatile long windowStart = 0;
+	private volatile int limit;
+	/** The count of the permits which should be parked but were in use */
+	private volatile int debt = 0;
+	private double baselineLatency = 0;
+	private int maxReachedLimit;
+	private int decreaseCount = 0;
+
+	/**
+	 @param throttle the concurrency throttle having the max limit count of the permits, all available
+	 @param maxLimit the max concurrency limit
+	 @param minLimit the min (initial) concurrency limit
+	 @param increment the limit increment per the successful window
+	 @param decreaseFactor the limit multiplier applied if throttled, (0; 1)
+	 @param latencyFactor the window average latency to the baseline latency ratio considered as throttling
+	 */
+	AtmosConcurrencyLimiter(
+					final Semaphore throttle, final int maxLimit, final int minLimit, final int increment,
+					final double decreaseFactor, final double latencyFactor) {
+		this.throttle = throttle;
+		this.maxLimit = maxLimit;
+		this.minLimit = minLimit;
+		this.increment = increment;
+		this.decreaseFactor = decreaseFactor;
+		this.latencyFactor = latencyFactor;
+		maxReachedLimit = minLimit;
+		synchronized (this) {
+			park(maxLimit - minLimit);
+			limit = minLimit;
+		}
+	}
+
+	int limit() {
+		return limit;
+	}
+
+	/**
+	 @param latency the response latency (microseconds), not accounted if not positive
+	 @param status the operation status, only the successful operations are accounted as the latency samples
+	 */
+	void completed(final long latency, final Operation.Status status) {
+		final var n = completedCount.incrementAndGet();
+		if (Operation.Status.RESP_FAIL_SVC.equals(status)) {
+			throttledInWindow = true;
+		} else if (Operation.Status.SUCC.equals(status) && latency > 0) {
+			windowLatencySum.add(latency);
+			windowLatencyCount.increment();
+		}
+		if (n - windowStart >= limit) {
+			endWindow(n);
+		}
+	}
+
+	/**
+	 Should be invoked after the completed operation's permit is released to the throttle, parks the released permit if
+	 the limit has been decreased while the permits were in use
+	 */
+	void permitReleased() {
+		if (debt > 0) {
+			synchronized (this) {
+				parkDebt();
+			}
+		}
+	}
+
+	private synchronized void endWindow(final long n) {
+		if (n - windowStart < limit) {
+			return; // the window is ended by another thread already
+		}
+		final var latencyCount = windowLatencyCount.sumThenReset();
+		final var latencySum = windowLatencySum.sumThenReset();
+		var throttled = throttledInWindow;
+		if (latencyCount > 0) {
+			final double avgLatency = (double) latencySum / latencyCount;
+			if (baselineLatency == 0 || avgLatency < baselineLatency) {
+				baselineLatency = avgLatency;
+			} else {
+				if (avgLatency > latencyFactor * baselineLatency) {
+					throttled = true;
+				}
+				// let the baseline follow the persistent latency change slowly
+				baselineLatency += 0.01 * (avgLatency - baselineLatency);
+			}
+		}
+		throttledInWindow = false;
+		windowStart = n;
+		final var prevLimit = limit;
+		if (throttled) {
+			final var newLimit = Math.max(minLimit, (int) (prevLimit * decreaseFactor));
+			if (newLimit < prevLimit) {
+				park(prevLimit - newLimit);
+				limit = newLimit;
+				decreaseCount++;
+				Loggers.MSG.info("Concurrency limit decreased: {} -> {}", prevLimit, newLimit);
+			}
+		} else {
+			final var newLimit = Math.min(maxLimit, prevLimit + increment);
+			if (newLimit > prevLimit) {
+				unpark(newLimit - prevLimit);
+				limit = newLimit;
+				Loggers.MSG.debug("Concurrency limit increased: {} -> {}", prevLimit, newLimit);
+				if (newLimit > maxReachedLimit) {
+					maxReachedLimit = newLimit;
+				}
+			}
+		}
+	}
+
+	private void park(final int count) {
+		var n = count;
+		while (n > 0 && throttle.tryAcquire()) {
+			n--;
+		}
+		debt += n;
+	}
+
+	private void parkDebt() {
+		while (debt > 0 && throttle.tryAcquire()) {
+			debt--;
+		}
+	}
+
+	private void unpark(final int count) {
+		final var debtPaid = Math.min(debt, count);
+		debt -= debtPaid;
+		throttle.release(count - debtPaid);
+	}
+
+	@Override
+	public final synchronized String toString() {
+		return "concurrency limit: current=" + limit + ", max reached=" + maxReachedLimit + ", decreases="
+						+ decreaseCount;
+	}
+}
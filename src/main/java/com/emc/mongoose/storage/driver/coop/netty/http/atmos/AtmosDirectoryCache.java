@@ -0,0 +1,132 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ The bounded set of the namespace directories known to exist and the pending directory creations. The missing
+ directory is created (with its missing parents) once: the concurrent creates into the same directory wait for the
+ same pending creation asynchronously. The oldest known directory is evicted when the size limit is reached.
+ */
+final class AtmosDirectoryCache {
+
+	/** The pending directory creation shared by the concurrent creates into the directory */
+	static final class PendingDir {
+
+		final String path;
+		/** True if the directory should be created by the caller, false if it's being created by another one */
+		final boolean owned;
+		/** Completed with true if the directory is created (or exists), false if failed to create */
+		final CompletableFuture<Boolean> future;
+
+		private PendingDir(final String path, final boolean owned, final CompletableFuture<Boolean> future) {
+			this.path = path;
+			this.owned = owned;
+			this.future = future;
+		}
+	}
+
+	private final int sizeLimit;
+	private final Map<String, Boolean> knownDirs = new ConcurrentHashMap<>();
+	private final Queue<String> knownDirsOrder = new ConcurrentLinkedQueue<>();
+	private final Map<String, CompletableFuture<Boolean>> pendingDirs = new ConcurrentHashMap<>();
+
+	/**
+	 @param sizeLimit the max count of the known directories
+	 */
+	AtmosDirectoryCache(final int sizeLimit) {
+		this.sizeLimit = sizeLimit;
+	}
+
+	/**
+	 @param dirPath the directory path, e.g. "/dir0/dir1", the root directory ("" or "/") is assumed to exist
+	 @return the directory and its parents which are not known to exist, the topmost first, empty if the directory is
+	 known to exist. Each owned directory should be created (after its parents) and reported by the caller via
+	 {@link #done(PendingDir, boolean)}, the other ones are being created by the concurrent callers
+	 */
+	List<PendingDir> missing(final String dirPath) {
+		if (isKnown(dirPath)) {
+			return Collections.emptyList();
+		}
+		final List<PendingDir> dirs = new ArrayList<>();
+		for (var path = dirPath; !isKnown(path); path = parentDir(path)) {
+			final var future = new CompletableFuture<Boolean>();
+			final var pendingFuture = pendingDirs.putIfAbsent(path, future);
+			dirs.add(pendingFuture == null ? new PendingDir(path, true, future) : new PendingDir(path, false, pendingFuture));
+		}
+		Collections.reverse(dirs);
+		return dirs;
+	}
+
+	/**
+	 Report the owned directory creation result, the waiters are notified
+	 @param dir the owned pending directory
+	 @param created true if the directory is created (or exists), false if failed to create
+	 */
+	void done(final PendingDir dir, final boolean created) {
+		if (created) {
+			add(dir.path);
+		}
+		pendingDirs.remove(dir.path, dir.future);
+		dir.future.complete(created);
+	}
+
+	private boolean isKnown(final String dirPath) {
+		return dirPath.isEmpty() || "/".equals(dirPath) || knownDirs.containsKey(dirPath);
+	}
+
+	/** Forget the directory, e.g. if it's reported missing */
+	void invalidate(final String dirPath) {
+		knownDirs.remove(dirPath);
+	}
+
+	int size() {
+		return knownDirs.size();
+	}
+
+	int pendingCount() {
+		return pendingDirs.size();
+	}
+
+	private void add(final String dirPath) {
+		if (null == knownDirs.putIfAbsent(dirPath, Boolean.TRUE)) {
+			knownDirsOrder.add(dirPath);
+			String evictedDirPath;
+			while (knownDirs.size() > sizeLimit && null != (evictedDirPath = knownDirsOrder.poll())) {
+				knownDirs.remove(evictedDirPath);
+			}
+		}
+	}
+
+	/**
+	 @param path the file either directory path, e.g. "/dir0/dir1/file0"
+	 @return the parent directory path, e.g. "/dir0/dir1", empty if the parent is the root directory
+	 */
+	static String parentDir(final String path) {
+		final var end = path.endsWith("/") ? path.length() - 1 : path.length();
+		final var sepPos = path.lastIndexOf('/', end - 1);
+		return sepPos > 0 ? path.substring(0, sepPos) : "";
+	}
+
+	/**
+	 @param dstPath the destination path of the operation, may be null
+	 @param itemName the item name, may be prefixed with the destination path and/or contain the relative path
+	 @return the item's parent directory path
+	 */
+	static String parentDir(final String dstPath, final String itemName) {
+		final String path;
+		if (dstPath == null || dstPath.isEmpty() || itemName.startsWith(dstPath)) {
+			path = itemName;
+		} else {
+			final var dirPath = dstPath.endsWith("/") ? dstPath.substring(0, dstPath.length() - 1) : dstPath;
+			path = itemName.startsWith("/") ? dirPath + itemName : dirPath + '/' + itemName;
+		}
+		return parentDir(path.startsWith("/") ? path : '/' + path);
+	}
+}
@@ -0,0 +1,78 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ Lock-free counters of the Atmos error codes (1001-1999) got in the failure responses bodies
+ */
+final class AtmosErrorCodeCounters {
+
+	static final int CODE_MIN = 1001;
+	static final int CODE_MAX = 1999;
+	/** The pseudo code for the failure responses w/o the recognized error code */
+	static final int CODE_UNKNOWN = 0;
+
+	private final AtomicLongArray counts = new AtomicLongArray(CODE_MAX - CODE_MIN + 2);
+
+	void increment(final int code) {
+		counts.incrementAndGet(index(code));
+	}
+
+	long count(final int code) {
+		return counts.get(index(code));
+	}
+
+	private static int index(final int code) {
+		return code < CODE_MIN || code > CODE_MAX ? 0 : code - CODE_MIN + 1;
+	}
+
+	/** @return the non-zero counts, e.g. "1003 (object not found): 42, 1040 (server busy): 1" */
+	@Override
+	public final String toString() {
+		final var s = new StringBuilder();
+		long count;
+		for (var i = 0; i < counts.length(); i++) {
+			count = counts.get(i);
+			if (count > 0) {
+				if (s.length() > 0) {
+					s.append(", ");
+				}
+				final var code = i == 0 ? CODE_UNKNOWN : CODE_MIN + i - 1;
+				s.append(code == CODE_UNKNOWN ? "unknown" : Integer.toString(code));
+				final var description = description(code);
+				if (description != null) {
+					s.append(" (").append(description).append(')');
+				}
+				s.append(": ").append(count);
+			}
+		}
+		return s.toString();
+	}
+
+	static String description(final int code) {
+		switch (code) {
+		case 1002:
+			return "invalid argument";
+		case 1003:
+			return "object not found";
+		case 1004:
+			return "range not satisfiable";
+		case 1005:
+			return "unsupported metadata";
+		case 1008:
+			return "invalid resource";
+		case 1016:
+			return "resource already exists";
+		case 1032:
+			return "signature mismatch";
+		case 1033:
+			return "invalid uid";
+		case 1037:
+			return "request expired";
+		case 1040:
+			return "server busy";
+		default:
+			return null;
+		}
+	}
+}
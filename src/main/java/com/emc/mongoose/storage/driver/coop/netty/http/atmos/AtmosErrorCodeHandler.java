@@ -0,0 +1,75 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosErrorCodeCounters.CODE_UNKNOWN;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ByteProcessor;
+
+/**
+ Scans the failure response body content for the Atmos error code (the "<Code>" element value) as the content chunks
+ pass through the pipeline, the content is neither copied nor aggregated. Per channel instance.
+ */
+final class AtmosErrorCodeHandler
+				extends ChannelInboundHandlerAdapter
+				implements ByteProcessor {
+
+	private static final byte[] CODE_START_TAG = "<Code>".getBytes(US_ASCII);
+	private static final int CODE_MAX_DIGITS = 9;
+
+	private final AtmosErrorCodeCounters counters;
+	private boolean failure = false;
+	private int tagMatchLen = 0;
+	private int code = 0;
+	private int codeDigits = 0;
+	private boolean done = false;
+
+	AtmosErrorCodeHandler(final AtmosErrorCodeCounters counters) {
+		this.counters = counters;
+	}
+
+	@Override
+	public final void channelRead(final ChannelHandlerContext ctx, final Object msg)
+					throws Exception {
+		if (msg instanceof HttpResponse) {
+			failure = ((HttpResponse) msg).status().code() >= 400;
+			tagMatchLen = 0;
+			code = 0;
+			codeDigits = 0;
+			done = false;
+		}
+		if (failure) {
+			if (msg instanceof HttpContent && !done) {
+				final var content = ((HttpContent) msg).content();
+				content.forEachByte(content.readerIndex(), content.readableBytes(), this);
+			}
+			if (msg instanceof LastHttpContent) {
+				counters.increment(done && codeDigits > 0 ? code : CODE_UNKNOWN);
+				failure = false;
+			}
+		}
+		super.channelRead(ctx, msg);
+	}
+
+	/** @return false to stop the scanning */
+	@Override
+	public final boolean process(final byte b) {
+		if (tagMatchLen < CODE_START_TAG.length) {
+			if (b == CODE_START_TAG[tagMatchLen]) {
+				tagMatchLen++;
+			} else {
+				tagMatchLen = b == CODE_START_TAG[0] ? 1 : 0;
+			}
+		} else if (b >= '0' && b <= '9' && codeDigits < CODE_MAX_DIGITS) {
+			code = 10 * code + (b - '0');
+			codeDigits++;
+		} else if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+			done = true;
+		}
+		return !done;
+	}
+}
@@ -0,0 +1,89 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Lock-free log-linear histogram of the non-negative values (HdrHistogram-like): the values less than the sub-bucket
+ count are counted exactly, the greater values are counted in the power of 2 buckets each split into the linear
+ sub-buckets, so the relative error is less than 1 / sub-bucket count (~6%). The recording is the array element atomic
+ increment w/o the allocations.
+ */
+final class AtmosLatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	static final int INDEX_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(INDEX_COUNT);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/** @param value the value to record, the negative value is ignored */
+	void record(final long value) {
+		if (value >= 0) {
+			counts.incrementAndGet(index(value));
+			count.increment();
+			sum.add(value);
+			max.accumulate(value);
+		}
+	}
+
+	long count() {
+		return count.sum();
+	}
+
+	double mean() {
+		final var n = count.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n;
+	}
+
+	long max() {
+		return max.get();
+	}
+
+	/**
+	 @param p the quantile, (0; 1]
+	 @return the highest value equivalent to the quantile value (not more than the max recorded value), 0 if empty
+	 */
+	long quantile(final double p) {
+		var n = 0L;
+		for (var i = 0; i < INDEX_COUNT; i++) {
+			n += counts.get(i);
+		}
+		if (n == 0) {
+			return 0;
+		}
+		final var rank = Math.max(1, (long) Math.ceil(p * n));
+		var cumulativeCount = 0L;
+		for (var i = 0; i < INDEX_COUNT; i++) {
+			cumulativeCount += counts.get(i);
+			if (cumulativeCount >= rank) {
+				return Math.min(max.get(), lowerBound(i + 1) - 1);
+			}
+		}
+		return max.get();
+	}
+
+	static int index(final long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		final var shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+	}
+
+	/** @return the min value counted by the given index */
+	static long lowerBound(final int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		if (index >= INDEX_COUNT) {
+			return Long.MAX_VALUE;
+		}
+		final var shift = index / SUB_BUCKET_COUNT - 1;
+		return (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+	}
+}
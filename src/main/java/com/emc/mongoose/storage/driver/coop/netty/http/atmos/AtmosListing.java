@@ -0,0 +1,18 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import java.io.IOException;
+import java.util.List;
+
+/** The source of the listing entries for the single listing path */
+interface AtmosListing {
+
+	/**
+	 @param dst the destination list for the listing entries
+	 @param limit max count of the entries to put
+	 @return the count of the entries put, 0 means the listing end
+	 */
+	int next(final List<AtmosListingPage.Entry> dst, final int limit) throws IOException;
+
+	/** Stop the background activity if any */
+	void cancel();
+}
@@ -0,0 +1,93 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.github.akurilov.commons.lang.Exceptions.throwUnchecked;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ The listing state for the single path. The next page is requested in the background as soon as the continuation
+ token is known so the consumer doesn't wait for the listing round trip while the current page is not exhausted.
+ */
+final class AtmosListingCursor
+				implements AtmosListing {
+
+	@FunctionalInterface
+	interface PageLoader {
+		AtmosListingPage load(final String path, final String token) throws IOException;
+	}
+
+	private final String path;
+	private final PageLoader pageLoader;
+	private final ExecutorService executor;
+
+	private AtmosListingPage page = null;
+	private int pagePos = 0;
+	private Future<AtmosListingPage> nextPageFuture = null;
+
+	AtmosListingCursor(final String path, final PageLoader pageLoader, final ExecutorService executor) {
+		this.path = path;
+		this.pageLoader = pageLoader;
+		this.executor = executor;
+	}
+
+	@Override
+	public final synchronized int next(final List<AtmosListingPage.Entry> dst, final int limit) throws IOException {
+		var n = 0;
+		while (n < limit) {
+			if (page == null) {
+				page = pageLoader.load(path, null);
+				pagePos = 0;
+				prefetch();
+			} else if (pagePos == page.entries.size()) {
+				if (nextPageFuture == null) {
+					break; // the last page has been consumed
+				}
+				page = awaitNextPage();
+				pagePos = 0;
+				prefetch();
+			} else {
+				final var k = Math.min(limit - n, page.entries.size() - pagePos);
+				dst.addAll(page.entries.subList(pagePos, pagePos + k));
+				pagePos += k;
+				n += k;
+			}
+		}
+		return n;
+	}
+
+	@Override
+	public final synchronized void cancel() {
+		if (nextPageFuture != null) {
+			nextPageFuture.cancel(true); // interrupts the page request in progress
+			nextPageFuture = null;
+		}
+	}
+
+	private void prefetch() {
+		final var token = page.token;
+		if (token == null || token.isEmpty()) {
+			nextPageFuture = null;
+		} else {
+			nextPageFuture = executor.submit(() -> pageLoader.load(path, token));
+		}
+	}
+
+	private AtmosListingPage awaitNextPage() throws IOException {
+		try {
+			return nextPageFuture.get();
+		} catch (final InterruptedException e) {
+			throwUnchecked(e);
+		} catch (final ExecutionException e) {
+			final var cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		}
+		return null;
+	}
+}
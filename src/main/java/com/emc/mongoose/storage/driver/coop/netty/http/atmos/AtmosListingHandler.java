@@ -0,0 +1,98 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ Handles both the ListDirectoryResponse (namespace) and the ListObjectsResponse (listable tag query) XML documents.
+ */
+final class AtmosListingHandler extends DefaultHandler {
+
+	private static final String QNAME_DIR_ENTRY = "DirectoryEntry";
+	private static final String QNAME_OBJECT = "Object";
+	private static final String QNAME_OBJECT_ID = "ObjectID";
+	private static final String QNAME_FILE_NAME = "Filename";
+	private static final String QNAME_FILE_TYPE = "FileType";
+	private static final String QNAME_SYSTEM_META_LIST = "SystemMetadataList";
+	private static final String QNAME_META_NAME = "Name";
+	private static final String QNAME_META_VALUE = "Value";
+	private static final String FILE_TYPE_DIR = "directory";
+	private static final String META_NAME_SIZE = "size";
+
+	private final List<AtmosListingPage.Entry> entries = new ArrayList<>();
+	private final StringBuilder text = new StringBuilder();
+
+	private boolean inEntry = false;
+	private String objectId = null;
+	private String fileName = null;
+	private boolean directory = false;
+	/** The size is taken from the system metadata only, the user metadata may have the same name */
+	private boolean inSystemMeta = false;
+	private String metaName = null;
+	private long size = 0;
+
+	List<AtmosListingPage.Entry> entries() {
+		return entries;
+	}
+
+	@Override
+	public final void startElement(
+					final String uri, final String localName, final String qName, final Attributes attrs) {
+		text.setLength(0);
+		if (QNAME_DIR_ENTRY.equals(qName) || QNAME_OBJECT.equals(qName)) {
+			inEntry = true;
+			objectId = null;
+			fileName = null;
+			directory = false;
+			metaName = null;
+			size = 0;
+		} else if (QNAME_SYSTEM_META_LIST.equals(qName)) {
+			inSystemMeta = true;
+		}
+	}
+
+	@Override
+	public final void characters(final char[] buff, final int start, final int length) {
+		text.append(buff, start, length);
+	}
+
+	@Override
+	public final void endElement(final String uri, final String localName, final String qName) {
+		switch (qName) {
+		case QNAME_OBJECT_ID:
+			if (inEntry) {
+				objectId = text.toString();
+			} else { // the plain object ids list w/o the metadata
+				entries.add(new AtmosListingPage.Entry(text.toString(), false, 0));
+			}
+			break;
+		case QNAME_FILE_NAME:
+			fileName = text.toString();
+			break;
+		case QNAME_FILE_TYPE:
+			directory = FILE_TYPE_DIR.contentEquals(text);
+			break;
+		case QNAME_META_NAME:
+			metaName = text.toString();
+			break;
+		case QNAME_META_VALUE:
+			if (inSystemMeta && META_NAME_SIZE.equals(metaName)) {
+				try {
+					size = Long.parseLong(text.toString());
+				} catch (final NumberFormatException ignored) {}
+			}
+			break;
+		case QNAME_SYSTEM_META_LIST:
+			inSystemMeta = false;
+			break;
+		case QNAME_DIR_ENTRY:
+		case QNAME_OBJECT:
+			entries.add(new AtmosListingPage.Entry(fileName == null ? objectId : fileName, directory, size));
+			inEntry = false;
+			break;
+		}
+		text.setLength(0);
+	}
+}
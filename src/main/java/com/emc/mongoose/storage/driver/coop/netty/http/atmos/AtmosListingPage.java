@@ -0,0 +1,29 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import java.util.List;
+
+/** The single page of the namespace directory listing either listable tag objects query results */
+final class AtmosListingPage {
+
+	static final class Entry {
+
+		final String name;
+		final boolean directory;
+		final long size;
+
+		Entry(final String name, final boolean directory, final long size) {
+			this.name = name;
+			this.directory = directory;
+			this.size = size;
+		}
+	}
+
+	final List<Entry> entries;
+	/** The continuation token, null if the page is the last one */
+	final String token;
+
+	AtmosListingPage(final List<Entry> entries, final String token) {
+		this.entries = entries;
+		this.token = token;
+	}
+}
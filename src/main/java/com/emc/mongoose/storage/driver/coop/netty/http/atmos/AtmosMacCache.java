@@ -0,0 +1,170 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.SIGN_METHOD;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.emc.mongoose.base.logging.LogUtil;
+import com.emc.mongoose.base.storage.Credential;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.logging.log4j.Level;
+
+/**
+ The bounded cache of the initialized MAC instances per credential. Two levels:
+ <ol>
+ <li>The shared bounded map of the MAC prototypes (never used for the signing) by the credential. The secret key is
+ decoded and the MAC is initialized once per the credential. The oldest prototype is evicted when the size limit is
+ reached.</li>
+ <li>The per thread direct mapped slots of the prototype clones looked up by the credential identity, so the hit
+ doesn't calculate the secret string hash.</li>
+ </ol>
+ */
+final class AtmosMacCache {
+
+	static final int THREAD_SLOT_COUNT_MAX = 0x100;
+
+	private static final Base64.Decoder BASE64_DECODER = Base64.getDecoder();
+
+	private static final class Prototype {
+
+		final Mac mac;
+		final SecretKeySpec key;
+
+		Prototype(final Mac mac, final SecretKeySpec key) {
+			this.mac = mac;
+			this.key = key;
+		}
+	}
+
+	private static final class ThreadSlots {
+
+		final Credential[] credentials;
+		final Mac[] macs;
+
+		ThreadSlots(final int slotCount) {
+			credentials = new Credential[slotCount];
+			macs = new Mac[slotCount];
+		}
+	}
+
+	private final int sizeLimit;
+	private final int threadSlotMask;
+	private final Map<Credential, Prototype> prototypes = new ConcurrentHashMap<>();
+	private final Queue<Credential> prototypesOrder = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<ThreadSlots> threadSlots;
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder cloneCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictCount = new LongAdder();
+
+	/**
+	 @param sizeLimit the max count of the MAC prototypes, > 0
+	 */
+	AtmosMacCache(final int sizeLimit) {
+		this.sizeLimit = sizeLimit;
+		// power of 2 not more than the size limit
+		final var threadSlotCount = Integer.highestOneBit(Math.min(sizeLimit, THREAD_SLOT_COUNT_MAX));
+		threadSlotMask = threadSlotCount - 1;
+		threadSlots = ThreadLocal.withInitial(() -> new ThreadSlots(threadSlotCount));
+	}
+
+	/**
+	 @param credential the credential having the non-empty Base-64 encoded secret
+	 @return the MAC instance owned by the current thread, null if failed to init
+	 */
+	Mac mac(final Credential credential) {
+		final var slots = threadSlots.get();
+		final var i = System.identityHashCode(credential) & threadSlotMask;
+		if (slots.credentials[i] == credential) {
+			hitCount.increment();
+			return slots.macs[i];
+		}
+		final var mac = newMac(credential);
+		if (mac != null) {
+			slots.credentials[i] = credential;
+			slots.macs[i] = mac;
+		}
+		return mac;
+	}
+
+	private Mac newMac(final Credential credential) {
+		var prototype = prototypes.get(credential);
+		if (prototype == null) {
+			prototype = newPrototype(credential.getSecret());
+			if (prototype == null) {
+				return null;
+			}
+			missCount.increment();
+			if (null == prototypes.putIfAbsent(credential, prototype)) {
+				prototypesOrder.add(credential);
+				Credential evictedCredential;
+				while (prototypes.size() > sizeLimit && null != (evictedCredential = prototypesOrder.poll())) {
+					prototypes.remove(evictedCredential);
+					evictCount.increment();
+				}
+			}
+		} else {
+			cloneCount.increment();
+		}
+		try {
+			return (Mac) prototype.mac.clone();
+		} catch (final CloneNotSupportedException e) {
+			// the provider doesn't support the cloning, init the new instance with the decoded key
+			try {
+				final var mac = Mac.getInstance(SIGN_METHOD);
+				mac.init(prototype.key);
+				return mac;
+			} catch (final NoSuchAlgorithmException | InvalidKeyException ee) {
+				throw new AssertionError(ee); // the prototype has been initialized with the same algorithm and key
+			}
+		}
+	}
+
+	private static Prototype newPrototype(final String secret) {
+		try {
+			final var secretKey = new SecretKeySpec(BASE64_DECODER.decode(secret.getBytes(UTF_8)), SIGN_METHOD);
+			final var mac = Mac.getInstance(SIGN_METHOD);
+			mac.init(secretKey);
+			return new Prototype(mac, secretKey);
+		} catch (final NoSuchAlgorithmException | InvalidKeyException e) {
+			LogUtil.exception(Level.ERROR, e, "Failed to init MAC for the given secret key");
+		} catch (final IllegalArgumentException e) {
+			LogUtil.exception(Level.ERROR, e, "Failed to perform the secret key Base-64 decoding");
+		}
+		return null;
+	}
+
+	int size() {
+		return prototypes.size();
+	}
+
+	long hitCount() {
+		return hitCount.sum();
+	}
+
+	long cloneCount() {
+		return cloneCount.sum();
+	}
+
+	long missCount() {
+		return missCount.sum();
+	}
+
+	long evictCount() {
+		return evictCount.sum();
+	}
+
+	@Override
+	public final String toString() {
+		return "MAC cache: size=" + prototypes.size() + ", hits=" + hitCount.sum() + ", clones=" + cloneCount.sum()
+						+ ", misses=" + missCount.sum() + ", evictions=" + evictCount.sum();
+	}
+}
@@ -0,0 +1,98 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_LISTABLE_META;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_META;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.util.AsciiString;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ Generates the user metadata headers: "x-emc-meta: key0=value0,key1=value1,..." and
+ "x-emc-listable-meta: tag0=value0,...". The header values are pre-rendered once, so the only per request work is the
+ template copy and the varying (hexadecimal) tail of each value filling. The values have no whitespace so they are the
+ same in the canonical form.
+ */
+final class AtmosMetadataGenerator {
+
+	static final String KEY_PREFIX = "key";
+	static final String LISTABLE_KEY_PREFIX = "tag";
+
+	private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(US_ASCII);
+	private static final long MIX = 0x9E3779B97F4A7C15L;
+
+	private final int varyingLen;
+	private final byte[] metaTemplate;
+	private final int[] metaValueEnds;
+	private final byte[] listableMetaTemplate;
+	private final int[] listableMetaValueEnds;
+	private final AsciiString keys;
+
+	/**
+	 @param count the count of the metadata pairs per object
+	 @param valueSize the size of each metadata value
+	 @param listableFraction the fraction of the listable metadata pairs, [0; 1]
+	 */
+	AtmosMetadataGenerator(final int count, final int valueSize, final double listableFraction) {
+		varyingLen = Math.min(valueSize, 2 * Long.BYTES);
+		final var listableCount = (int) Math.round(count * listableFraction);
+		final var metaCount = count - listableCount;
+		metaValueEnds = new int[metaCount];
+		metaTemplate = metaCount > 0 ? template(KEY_PREFIX, metaCount, valueSize, metaValueEnds) : null;
+		listableMetaValueEnds = new int[listableCount];
+		listableMetaTemplate = listableCount > 0 ?
+						template(LISTABLE_KEY_PREFIX, listableCount, valueSize, listableMetaValueEnds) : null;
+		final var keys = new StringBuilder();
+		for (var i = 0; i < metaCount; i++) {
+			keys.append(keys.length() > 0 ? "," : "").append(KEY_PREFIX).append(i);
+		}
+		for (var i = 0; i < listableCount; i++) {
+			keys.append(keys.length() > 0 ? "," : "").append(LISTABLE_KEY_PREFIX).append(i);
+		}
+		this.keys = new AsciiString(keys);
+	}
+
+	/** @return all generated metadata keys separated by comma, e.g. "key0,key1,tag0" */
+	AsciiString keys() {
+		return keys;
+	}
+
+	private static byte[] template(final String keyPrefix, final int count, final int valueSize, final int[] valueEnds) {
+		final var s = new StringBuilder();
+		for (var i = 0; i < count; i++) {
+			if (i > 0) {
+				s.append(',');
+			}
+			s.append(keyPrefix).append(i).append('=');
+			for (var j = 0; j < valueSize; j++) {
+				s.append('0');
+			}
+			valueEnds[i] = s.length();
+		}
+		return s.toString().getBytes(US_ASCII);
+	}
+
+	void apply(final HttpHeaders httpHeaders) {
+		final var seed = ThreadLocalRandom.current().nextLong();
+		if (metaTemplate != null) {
+			httpHeaders.set(KEY_X_EMC_META, render(metaTemplate, metaValueEnds, seed));
+		}
+		if (listableMetaTemplate != null) {
+			httpHeaders.set(KEY_X_EMC_LISTABLE_META, render(listableMetaTemplate, listableMetaValueEnds, ~seed));
+		}
+	}
+
+	private AsciiString render(final byte[] template, final int[] valueEnds, final long seed) {
+		final var bytes = template.clone();
+		long v;
+		for (var i = 0; i < valueEnds.length; i++) {
+			v = (seed + i) * MIX;
+			for (var j = valueEnds[i] - 1; j >= valueEnds[i] - varyingLen; j--) {
+				bytes[j] = HEX_DIGITS[(int) (v & 0xF)];
+				v >>>= 4;
+			}
+		}
+		return new AsciiString(bytes, false);
+	}
+}
@@ -0,0 +1,18 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+
+/**
+ The metadata operation request. The request has no content, the item data written after it (if any) is dropped by
+ the {@link AtmosMetadataRequestHandler}.
+ */
+final class AtmosMetadataRequest
+				extends DefaultHttpRequest {
+
+	AtmosMetadataRequest(final HttpMethod method, final String uri, final HttpHeaders headers) {
+		super(HttpVersion.HTTP_1_1, method, uri, headers);
+	}
+}
@@ -0,0 +1,37 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ Drops the item data written after the {@link AtmosMetadataRequest}: the metadata update is the data update operation
+ for the load generation side, so the updated item content is written by the framework as usual. Per channel instance.
+ */
+final class AtmosMetadataRequestHandler
+				extends ChannelOutboundHandlerAdapter {
+
+	private boolean dropContent = false;
+
+	@Override
+	public final void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise)
+					throws Exception {
+		if (msg instanceof HttpRequest) {
+			dropContent = msg instanceof AtmosMetadataRequest;
+			ctx.write(msg, promise);
+		} else if (dropContent) {
+			ReferenceCountUtil.release(msg);
+			if (msg instanceof LastHttpContent) {
+				dropContent = false;
+				ctx.write(LastHttpContent.EMPTY_LAST_CONTENT, promise);
+			} else {
+				promise.trySuccess();
+			}
+		} else {
+			ctx.write(msg, promise);
+		}
+	}
+}
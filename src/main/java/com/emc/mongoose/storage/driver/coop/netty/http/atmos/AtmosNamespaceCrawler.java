@@ -0,0 +1,143 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.github.akurilov.commons.lang.Exceptions.throwUnchecked;
+
+import com.emc.mongoose.base.logging.LogUtil;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.Level;
+
+/**
+ Walks the namespace directories tree in parallel. The discovered subdirectories are pushed to the shared deque and
+ listed by the fixed count of the workers, so the count of the in-flight listing requests is bounded by the workers
+ count. The discovered files are put into the bounded output queue as soon as the listing page is received, the workers
+ block if the consumer is slow (backpressure). The output entry names are relative to the root directory. Any worker
+ failure stops the crawling and is rethrown to the consumer, so the entries are never lost silently.
+ */
+final class AtmosNamespaceCrawler
+				implements AtmosListing {
+
+	private static final long POLL_TIMEOUT_MILLIS = 10;
+
+	private final String rootPath;
+	private final AtmosListingCursor.PageLoader pageLoader;
+	private final BlockingDeque<String> pendingDirs = new LinkedBlockingDeque<>();
+	/** The count of the directories discovered but not listed completely yet */
+	private final AtomicInteger unfinishedDirCount = new AtomicInteger(0);
+	private final BlockingQueue<AtmosListingPage.Entry> output;
+	private final List<Future<?>> workers;
+	private volatile IOException failure = null;
+
+	AtmosNamespaceCrawler(
+					final String rootPath,
+					final AtmosListingCursor.PageLoader pageLoader,
+					final ExecutorService executor,
+					final int concurrency,
+					final int outputQueueSize) {
+		this.rootPath = rootPath.endsWith("/") ? rootPath.substring(0, rootPath.length() - 1) : rootPath;
+		this.pageLoader = pageLoader;
+		this.output = new ArrayBlockingQueue<>(outputQueueSize);
+		unfinishedDirCount.incrementAndGet();
+		pendingDirs.push("");
+		workers = new ArrayList<>(concurrency);
+		for (var i = 0; i < concurrency; i++) {
+			workers.add(executor.submit(this::crawl));
+		}
+	}
+
+	private boolean isDone() {
+		return unfinishedDirCount.get() == 0 || failure != null;
+	}
+
+	private void crawl() {
+		String relDirPath;
+		try {
+			while (!isDone()) {
+				relDirPath = pendingDirs.pollFirst(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				if (relDirPath != null) {
+					// the failure is recorded before the directory is accounted as finished, so the consumer can't see
+					// the listing done w/o the failure
+					try {
+						listDir(relDirPath);
+					} catch (final IOException e) {
+						failed(e);
+					} catch (final RuntimeException e) {
+						// e.g. the unexpected listing response, the worker would die w/o any trace otherwise
+						failed(new IOException(e));
+					} finally {
+						unfinishedDirCount.decrementAndGet();
+					}
+				}
+			}
+		} catch (final InterruptedException ignored) {
+			// cancelled
+		}
+	}
+
+	private void failed(final IOException e) {
+		failure = e;
+		LogUtil.exception(Level.WARN, e, "Failed to list the directory");
+	}
+
+	private void listDir(final String relDirPath)
+					throws IOException, InterruptedException {
+		final var entryNamePrefix = relDirPath.isEmpty() ? "" : relDirPath + '/';
+		String token = null;
+		AtmosListingPage page;
+		do {
+			page = pageLoader.load(rootPath + '/' + relDirPath, token);
+			for (final var entry : page.entries) {
+				if (entry.directory) {
+					unfinishedDirCount.incrementAndGet();
+					pendingDirs.push(entryNamePrefix + entry.name); // depth first to limit the pending dirs count
+				} else {
+					output.put(new AtmosListingPage.Entry(entryNamePrefix + entry.name, false, entry.size));
+				}
+			}
+			token = page.token;
+		} while (token != null && !token.isEmpty());
+	}
+
+	@Override
+	public final int next(final List<AtmosListingPage.Entry> dst, final int limit)
+					throws IOException {
+		try {
+			while (true) {
+				final var n = output.drainTo(dst, limit);
+				if (n > 0) {
+					return n;
+				}
+				if (failure != null) {
+					throw failure;
+				}
+				if (isDone() && output.isEmpty()) {
+					return 0;
+				}
+				final var entry = output.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				if (entry != null) {
+					dst.add(entry);
+					return 1 + output.drainTo(dst, limit - 1);
+				}
+			}
+		} catch (final InterruptedException e) {
+			throwUnchecked(e);
+		}
+		return 0;
+	}
+
+	@Override
+	public final void cancel() {
+		workers.forEach(worker -> worker.cancel(true));
+		pendingDirs.clear();
+		output.clear();
+	}
+}
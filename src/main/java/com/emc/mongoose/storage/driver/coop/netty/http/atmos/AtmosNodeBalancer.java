@@ -0,0 +1,196 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import com.emc.mongoose.base.item.op.Operation;
+import com.emc.mongoose.base.logging.Loggers;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ Tracks the storage nodes latency (EWMA) and the errors using the completed operations. The node failed the configured
+ count of times in a row is quarantined and probed periodically until the probe succeeds. The node selection is the
+ "power of two choices" over the available nodes, the node with the lower latency wins.
+ */
+final class AtmosNodeBalancer
+				implements Closeable {
+
+	private static final double EWMA_ALPHA = 0.2;
+
+	private static final class Node {
+
+		private final String addr;
+		private final AtomicLong ewmaLatencyBits = new AtomicLong(Double.doubleToRawLongBits(0));
+		private final LongAdder succCount = new LongAdder();
+		private final LongAdder failCount = new LongAdder();
+		private final AtomicInteger failCountInRow = new AtomicInteger(0);
+		private volatile boolean quarantined = false;
+
+		private Node(final String addr) {
+			this.addr = addr;
+		}
+
+		private double ewmaLatency() {
+			return Double.longBitsToDouble(ewmaLatencyBits.get());
+		}
+
+		private void updateLatency(final long latency) {
+			long prevBits;
+			double prev;
+			do {
+				prevBits = ewmaLatencyBits.get();
+				prev = Double.longBitsToDouble(prevBits);
+			} while (
+							!ewmaLatencyBits.compareAndSet(
+											prevBits,
+											Double.doubleToRawLongBits(
+															prev == 0 ? latency : prev + EWMA_ALPHA * (latency - prev))));
+		}
+
+		@Override
+		public final String toString() {
+			return String.format(
+							"%s: latency=%.0fus, succ=%d, fail=%d%s", addr, ewmaLatency(), succCount.sum(),
+							failCount.sum(), quarantined ? ", quarantined" : "");
+		}
+	}
+
+	private final Node[] nodes;
+	private final Map<String, Node> nodeByAddr;
+	private final int failCountLimit;
+	private final Predicate<String> probeFunc;
+	private final ScheduledExecutorService executor;
+
+	/**
+	 @param nodeAddrs the storage node addresses
+	 @param failCountLimit the count of the failures in a row to quarantine the node
+	 @param probePeriodSeconds the quarantined nodes probing and the stats output period
+	 @param probeFunc the function performing the noop request to the given node, returns true if succeeded
+	 */
+	AtmosNodeBalancer(
+					final String[] nodeAddrs, final int failCountLimit, final int probePeriodSeconds,
+					final Predicate<String> probeFunc) {
+		nodes = new Node[nodeAddrs.length];
+		nodeByAddr = new HashMap<>(nodeAddrs.length);
+		for (var i = 0; i < nodeAddrs.length; i++) {
+			nodes[i] = new Node(nodeAddrs[i]);
+			nodeByAddr.put(nodeAddrs[i], nodes[i]);
+		}
+		this.failCountLimit = failCountLimit;
+		this.probeFunc = probeFunc;
+		executor = Executors.newSingleThreadScheduledExecutor(
+						task -> {
+							final var thread = new Thread(task, "atmos-node-balancer");
+							thread.setDaemon(true);
+							return thread;
+						});
+		executor.scheduleWithFixedDelay(this::probeAndReport, probePeriodSeconds, probePeriodSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 @param nodeAddr the node address
+	 @param latency the response latency (microseconds), not accounted if not positive
+	 @param status the operation status, only the successful operations are accounted as the latency samples, the
+	 client side failures (e.g. "not found") are not accounted at all
+	 */
+	void completed(final String nodeAddr, final long latency, final Operation.Status status) {
+		final var node = nodeAddr == null ? null : nodeByAddr.get(nodeAddr);
+		if (node != null) {
+			switch (status) {
+			case SUCC:
+				succeeded(node, latency);
+				break;
+			case RESP_FAIL_SVC:
+			case RESP_FAIL_UNKNOWN:
+			case FAIL_IO:
+			case FAIL_TIMEOUT:
+				failed(node);
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	void failed(final String nodeAddr) {
+		final var node = nodeByAddr.get(nodeAddr);
+		if (node != null) {
+			failed(node);
+		}
+	}
+
+	private void failed(final Node node) {
+		node.failCount.increment();
+		if (node.failCountInRow.incrementAndGet() >= failCountLimit && !node.quarantined) {
+			node.quarantined = true;
+			Loggers.ERR.warn("Storage node {} is quarantined after {} failures in a row", node.addr, failCountLimit);
+		}
+	}
+
+	private static void succeeded(final Node node, final long latency) {
+		node.succCount.increment();
+		node.failCountInRow.set(0);
+		if (latency > 0) {
+			node.updateLatency(latency);
+		}
+	}
+
+	/**
+	 @return the selected node address, null if all nodes are quarantined
+	 */
+	String select() {
+		final var rnd = ThreadLocalRandom.current();
+		final var node1 = availableNode(rnd.nextInt(nodes.length));
+		if (node1 == null) {
+			return null;
+		}
+		final var node2 = availableNode(rnd.nextInt(nodes.length));
+		return node2 == null || node1.ewmaLatency() <= node2.ewmaLatency() ? node1.addr : node2.addr;
+	}
+
+	/** @return the first not quarantined node starting from the given index, null if all nodes are quarantined */
+	private Node availableNode(final int startIndex) {
+		Node node;
+		for (var i = 0; i < nodes.length; i++) {
+			node = nodes[(startIndex + i) % nodes.length];
+			if (!node.quarantined) {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	private void probeAndReport() {
+		for (final var node : nodes) {
+			if (node.quarantined) {
+				if (probeFunc.test(node.addr)) {
+					node.failCountInRow.set(0);
+					node.quarantined = false;
+					Loggers.MSG.info("Storage node {} is back from the quarantine", node.addr);
+				}
+			}
+		}
+		Loggers.MSG.info("Storage nodes: {}", this);
+	}
+
+	@Override
+	public final void close() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public final String toString() {
+		final var s = new StringBuilder();
+		for (final var node : nodes) {
+			s.append("\n\t").append(node);
+		}
+		return s.toString();
+	}
+}
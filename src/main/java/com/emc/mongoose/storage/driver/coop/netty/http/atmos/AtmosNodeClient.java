@@ -0,0 +1,155 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.io.Closeable;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLException;
+
+/**
+ Sends the driver's own requests (the subtenants management, the storage node probes, the listing) to the given storage
+ node w/o blocking. The load operations connection pool selects the node by itself, so the requests which should go to
+ the specific node use this client instead. Each request goes over its own connection closed after the response is
+ received, as these requests are rare. The I/O is done by the own single event loop thread.
+ */
+final class AtmosNodeClient
+				implements Closeable {
+
+	private static final int MAX_RESPONSE_CONTENT_LENGTH = 0x4000000;
+
+	private final EventLoopGroup eventLoopGroup;
+	private final Bootstrap bootstrap;
+	private final int defaultPort;
+	private final SslContext sslContext;
+	private final int timeoutMillis;
+
+	/**
+	 @param name the event loop thread name prefix
+	 @param defaultPort the port used if the storage node address doesn't include it
+	 @param sslFlag true if the connections should be secured
+	 @param timeoutMillis the connect and the response timeout, no timeout if not positive
+	 */
+	AtmosNodeClient(final String name, final int defaultPort, final boolean sslFlag, final int timeoutMillis)
+					throws SSLException {
+		eventLoopGroup = new NioEventLoopGroup(1, new DefaultThreadFactory(name, true));
+		bootstrap = new Bootstrap()
+						.group(eventLoopGroup)
+						.channel(NioSocketChannel.class)
+						.option(ChannelOption.TCP_NODELAY, true);
+		if (timeoutMillis > 0) {
+			bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeoutMillis);
+		}
+		this.defaultPort = defaultPort;
+		sslContext = sslFlag ?
+						SslContextBuilder.forClient().trustManager(InsecureTrustManagerFactory.INSTANCE).build() : null;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 @param nodeAddr the storage node address, "host" either "host:port"
+	 @param req the request to send, released by this method
+	 @return the future response which should be released by the caller. Completed exceptionally with the
+	 {@link java.net.ConnectException} if failed to connect to the node
+	 */
+	CompletableFuture<FullHttpResponse> execute(final String nodeAddr, final FullHttpRequest req) {
+		final var respFuture = new CompletableFuture<FullHttpResponse>();
+		final var portSepPos = nodeAddr.lastIndexOf(':');
+		final String host;
+		final int port;
+		if (portSepPos > 0 && nodeAddr.indexOf(':') == portSepPos) {
+			host = nodeAddr.substring(0, portSepPos);
+			port = Integer.parseInt(nodeAddr.substring(portSepPos + 1));
+		} else {
+			host = nodeAddr;
+			port = defaultPort;
+		}
+		bootstrap
+						.clone()
+						.handler(
+										new ChannelInitializer<>() {
+											@Override
+											protected final void initChannel(final Channel channel) {
+												final var pipeline = channel.pipeline();
+												if (sslContext != null) {
+													pipeline.addLast(sslContext.newHandler(channel.alloc(), host, port));
+												}
+												if (timeoutMillis > 0) {
+													pipeline.addLast(new ReadTimeoutHandler(timeoutMillis, TimeUnit.MILLISECONDS));
+												}
+												pipeline.addLast(new HttpClientCodec());
+												pipeline.addLast(new HttpObjectAggregator(MAX_RESPONSE_CONTENT_LENGTH));
+												pipeline.addLast(new ResponseHandler(respFuture));
+											}
+										})
+						.connect(host, port)
+						.addListener(
+										(ChannelFutureListener) connFuture -> {
+											if (connFuture.isSuccess()) {
+												connFuture
+																.channel()
+																.writeAndFlush(req)
+																.addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+											} else {
+												ReferenceCountUtil.release(req);
+												respFuture.completeExceptionally(connFuture.cause());
+											}
+										});
+		return respFuture;
+	}
+
+	private static final class ResponseHandler
+					extends SimpleChannelInboundHandler<FullHttpResponse> {
+
+		private final CompletableFuture<FullHttpResponse> respFuture;
+
+		private ResponseHandler(final CompletableFuture<FullHttpResponse> respFuture) {
+			this.respFuture = respFuture;
+		}
+
+		@Override
+		protected final void channelRead0(final ChannelHandlerContext ctx, final FullHttpResponse resp) {
+			if (!respFuture.complete(resp.retain())) {
+				resp.release();
+			}
+			ctx.close();
+		}
+
+		@Override
+		public final void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+			respFuture.completeExceptionally(cause);
+			ctx.close();
+		}
+
+		@Override
+		public final void channelInactive(final ChannelHandlerContext ctx)
+						throws Exception {
+			respFuture.completeExceptionally(new ClosedChannelException());
+			super.channelInactive(ctx);
+		}
+	}
+
+	@Override
+	public final void close() {
+		eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+	}
+}
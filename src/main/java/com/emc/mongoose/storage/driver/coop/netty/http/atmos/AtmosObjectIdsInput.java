@@ -0,0 +1,77 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosObjectIdsOutput.OBJ_ID_BYTES;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosObjectIdsOutput.RECORD_SIZE;
+
+import com.emc.mongoose.base.item.Item;
+import com.emc.mongoose.base.item.ItemFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ Reads the records written by {@link AtmosObjectIdsOutput} sequentially mapping the file by the fixed size windows, so
+ the whole list is never loaded into the heap.
+ */
+final class AtmosObjectIdsInput
+				implements Closeable {
+
+	private static final long WINDOW_SIZE = RECORD_SIZE * 0x100000L;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final FileChannel fileChannel;
+	private final long fileSize;
+	private long windowPos = 0;
+	private MappedByteBuffer window = null;
+	private final char[] nameChars = new char[1 + 2 * OBJ_ID_BYTES];
+
+	AtmosObjectIdsInput(final Path filePath)
+					throws IOException {
+		fileChannel = FileChannel.open(filePath, StandardOpenOption.READ);
+		fileSize = fileChannel.size() - fileChannel.size() % RECORD_SIZE; // ignore the incomplete record if any
+		nameChars[0] = '/';
+	}
+
+	/**
+	 @return the count of the items put into the destination list, 0 if the end of file is reached
+	 */
+	synchronized <I extends Item> int get(final ItemFactory<I> itemFactory, final List<I> dst, final int limit)
+					throws IOException {
+		var n = 0;
+		long offset;
+		long size;
+		while (n < limit) {
+			if (window == null || !window.hasRemaining()) {
+				if (window != null) {
+					windowPos += window.capacity();
+				}
+				if (windowPos >= fileSize) {
+					break;
+				}
+				window = fileChannel.map(
+								FileChannel.MapMode.READ_ONLY, windowPos, Math.min(WINDOW_SIZE, fileSize - windowPos));
+			}
+			for (var i = 0; i < OBJ_ID_BYTES; i++) {
+				final var b = window.get();
+				nameChars[1 + 2 * i] = HEX_DIGITS[(b >> 4) & 0xF];
+				nameChars[2 + 2 * i] = HEX_DIGITS[b & 0xF];
+			}
+			offset = window.getLong();
+			size = window.getLong();
+			dst.add(itemFactory.getItem(new String(nameChars), offset, size));
+			n++;
+		}
+		return n;
+	}
+
+	@Override
+	public final synchronized void close()
+					throws IOException {
+		window = null;
+		fileChannel.close();
+	}
+}
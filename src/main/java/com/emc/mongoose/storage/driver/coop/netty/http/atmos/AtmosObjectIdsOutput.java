@@ -0,0 +1,100 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.OBJ_ID_LENGTH;
+
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.logging.LogUtil;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.apache.logging.log4j.Level;
+
+/**
+ Writes the created objects info as the fixed size binary records: the object id packed into 22 bytes, the item data
+ offset and the size (8 bytes each). The records are buffered off heap and written sequentially. The file is opened
+ (truncated) lazily on the first record so the driver doesn't touch it if nothing is created.
+ */
+final class AtmosObjectIdsOutput
+				implements Closeable {
+
+	static final int OBJ_ID_BYTES = OBJ_ID_LENGTH / 2;
+	static final int RECORD_SIZE = OBJ_ID_BYTES + 2 * Long.BYTES;
+
+	private static final int BUFF_SIZE = RECORD_SIZE * 0x8000;
+
+	private final Path filePath;
+	private final ByteBuffer buff = ByteBuffer.allocateDirect(BUFF_SIZE);
+	private FileChannel fileChannel = null;
+	private long count = 0;
+
+	AtmosObjectIdsOutput(final Path filePath) {
+		this.filePath = filePath;
+	}
+
+	/**
+	 @param hexObjId the char sequence containing the valid hexadecimal object id
+	 @param objIdOffset the object id offset in the char sequence
+	 @param item the created item
+	 */
+	synchronized void put(final CharSequence hexObjId, final int objIdOffset, final DataItem item) {
+		try {
+			if (fileChannel == null) {
+				fileChannel = FileChannel.open(
+								filePath,
+								StandardOpenOption.CREATE,
+								StandardOpenOption.WRITE,
+								StandardOpenOption.TRUNCATE_EXISTING);
+			}
+			if (buff.remaining() < RECORD_SIZE) {
+				flush();
+			}
+			for (var i = objIdOffset; i < objIdOffset + OBJ_ID_LENGTH; i += 2) {
+				buff.put((byte) ((hexDigit(hexObjId.charAt(i)) << 4) | hexDigit(hexObjId.charAt(i + 1))));
+			}
+			buff.putLong(item.offset());
+			buff.putLong(size(item));
+			count++;
+		} catch (final IOException e) {
+			LogUtil.exception(Level.WARN, e, "Failed to write the object id to the file \"{}\"", filePath);
+		}
+	}
+
+	private void flush()
+					throws IOException {
+		buff.flip();
+		while (buff.hasRemaining()) {
+			fileChannel.write(buff);
+		}
+		buff.clear();
+	}
+
+	@Override
+	public final synchronized void close()
+					throws IOException {
+		if (fileChannel != null) {
+			try {
+				flush();
+			} finally {
+				fileChannel.close();
+				fileChannel = null;
+			}
+		}
+	}
+
+	@Override
+	public final String toString() {
+		return "AtmosObjectIdsOutput(" + filePath + ", " + count + " records)";
+	}
+
+	private static int hexDigit(final char c) {
+		return c <= '9' ? c - '0' : c - 'a' + 10;
+	}
+
+	private static long size(final DataItem item)
+					throws IOException {
+		return item.size();
+	}
+}
@@ -0,0 +1,43 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+/**
+ The way the read/update/delete operations are performed
+ */
+enum AtmosOpMode {
+
+	/** Read/update/delete the object content */
+	DATA("data"),
+	/** Read/update/delete the user metadata */
+	USER_METADATA("userMetadata"),
+	/** Read the system metadata, update/delete the user metadata (the system metadata is not writable) */
+	SYSTEM_METADATA("systemMetadata"),
+	/** Read the next page of the objects having the listable tag, update/delete the object content */
+	TAG_QUERY("tagQuery"),
+	/** Rename (move) the object instead of the copy (create with the source path), filesystem access only */
+	RENAME("rename");
+
+	private final String configValue;
+
+	AtmosOpMode(final String configValue) {
+		this.configValue = configValue;
+	}
+
+	boolean isMetadata() {
+		return USER_METADATA.equals(this) || SYSTEM_METADATA.equals(this);
+	}
+
+	/** @return the op mode for the given configuration value, null if not matches any */
+	static AtmosOpMode fromConfigValue(final String configValue) {
+		for (final var opMode : values()) {
+			if (opMode.configValue.equals(configValue)) {
+				return opMode;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public final String toString() {
+		return configValue;
+	}
+}
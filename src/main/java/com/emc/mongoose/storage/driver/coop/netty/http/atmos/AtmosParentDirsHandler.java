@@ -0,0 +1,190 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.github.akurilov.netty.connection.pool.NonBlockingConnPool.ATTR_KEY_NODE;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import com.emc.mongoose.base.storage.Credential;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.PendingWriteQueue;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import java.nio.channels.ClosedChannelException;
+import java.util.Iterator;
+
+/**
+ Creates the missing parent directories of the file before its {@link AtmosParentDirsRequest} is sent, w/o blocking:
+ the create request and its content are queued, the owned directories are created on the same connection one by one
+ (the topmost first) and the directories being created by the other connections are waited asynchronously. The queued
+ writes are released when the directories are done. If a directory creation fails, the file create request is sent
+ anyway, so the operation fails with the storage response. The directory creation responses are not passed to the
+ next handlers. Per channel instance.
+ */
+final class AtmosParentDirsHandler
+				extends ChannelDuplexHandler {
+
+	/** The Atmos error code in the response content if the directory exists already */
+	static final String ERR_CODE_EXISTS = "<Code>1016</Code>";
+
+	/** Builds the directory create request */
+	@FunctionalInterface
+	interface DirCreateRequestFunc {
+
+		/**
+		 @param dirPath the directory path
+		 @param nodeAddr the storage node address
+		 @param credential the credential of the operation creating the file, null to use the default one
+		 @param subtenantId the pooled subtenant id of the operation creating the file, null if none
+		 */
+		HttpRequest dirCreateRequest(String dirPath, String nodeAddr, Credential credential, String subtenantId);
+	}
+
+	private final AtmosDirectoryCache dirCache;
+	private final DirCreateRequestFunc dirCreateRequestFunc;
+	private PendingWriteQueue pendingWrites = null;
+	/** The file create request waiting for its parent directories, null if none */
+	private AtmosParentDirsRequest fileReq = null;
+	/** The remaining parent directories of the file being created, null if none */
+	private Iterator<AtmosDirectoryCache.PendingDir> parentDirs = null;
+	/** The directory being created by this channel, null if none */
+	private AtmosDirectoryCache.PendingDir dir = null;
+	private boolean dirCreated = false;
+
+	/**
+	 @param dirCache the directories cache
+	 @param dirCreateRequestFunc the function building the directory create request w/ the credential of the file create
+	 request
+	 */
+	AtmosParentDirsHandler(final AtmosDirectoryCache dirCache, final DirCreateRequestFunc dirCreateRequestFunc) {
+		this.dirCache = dirCache;
+		this.dirCreateRequestFunc = dirCreateRequestFunc;
+	}
+
+	@Override
+	public final void handlerAdded(final ChannelHandlerContext ctx) {
+		pendingWrites = new PendingWriteQueue(ctx);
+	}
+
+	@Override
+	public final void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+		if (parentDirs != null) {
+			pendingWrites.add(msg, promise);
+		} else if (msg instanceof AtmosParentDirsRequest) {
+			fileReq = (AtmosParentDirsRequest) msg;
+			parentDirs = fileReq.parentDirs.iterator();
+			pendingWrites.add(msg, promise);
+			nextDir(ctx);
+		} else {
+			ctx.write(msg, promise);
+		}
+	}
+
+	@Override
+	public final void flush(final ChannelHandlerContext ctx) {
+		if (parentDirs == null) {
+			ctx.flush();
+		} // else the queued writes are flushed when released
+	}
+
+	/** Create the next owned directory either wait for the next directory being created by another channel */
+	private void nextDir(final ChannelHandlerContext ctx) {
+		while (parentDirs.hasNext()) {
+			final var nextDir = parentDirs.next();
+			if (nextDir.owned) {
+				dir = nextDir;
+				dirCreated = false;
+				ctx.writeAndFlush(
+								dirCreateRequestFunc.dirCreateRequest(
+												nextDir.path, ctx.channel().attr(ATTR_KEY_NODE).get(), fileReq.credential,
+												fileReq.subtenantId));
+				return;
+			} else if (!nextDir.future.isDone()) {
+				nextDir.future.whenCompleteAsync((created, e) -> dirWaited(ctx, created), ctx.executor());
+				return;
+			} else if (!nextDir.future.join()) {
+				break;
+			}
+		}
+		releaseWrites(ctx);
+	}
+
+	private void dirWaited(final ChannelHandlerContext ctx, final Boolean created) {
+		if (parentDirs == null) {
+			return; // the channel is closed
+		}
+		if (Boolean.TRUE.equals(created)) {
+			nextDir(ctx);
+		} else {
+			releaseWrites(ctx);
+		}
+	}
+
+	/** Send the file create request, the remaining owned directories are not created */
+	private void releaseWrites(final ChannelHandlerContext ctx) {
+		failOwnedDirs();
+		pendingWrites.removeAndWriteAll();
+		ctx.flush();
+	}
+
+	private void failOwnedDirs() {
+		if (dir != null) {
+			dirCache.done(dir, false);
+			dir = null;
+		}
+		if (parentDirs != null) {
+			while (parentDirs.hasNext()) {
+				final var nextDir = parentDirs.next();
+				if (nextDir.owned) {
+					dirCache.done(nextDir, false);
+				}
+			}
+			parentDirs = null;
+			fileReq = null;
+		}
+	}
+
+	@Override
+	public final void channelRead(final ChannelHandlerContext ctx, final Object msg)
+					throws Exception {
+		if (dir == null) {
+			super.channelRead(ctx, msg);
+			return;
+		}
+		try {
+			if (msg instanceof HttpResponse) {
+				dirCreated = HttpStatusClass.SUCCESS.equals(((HttpResponse) msg).status().codeClass());
+			}
+			if (!dirCreated && msg instanceof HttpContent) {
+				// created concurrently by another client
+				dirCreated = ((HttpContent) msg).content().toString(US_ASCII).contains(ERR_CODE_EXISTS);
+			}
+			if (msg instanceof LastHttpContent) {
+				final var createdDir = dir;
+				dir = null;
+				dirCache.done(createdDir, dirCreated);
+				if (dirCreated) {
+					nextDir(ctx);
+				} else {
+					releaseWrites(ctx);
+				}
+			}
+		} finally {
+			ReferenceCountUtil.release(msg);
+		}
+	}
+
+	@Override
+	public final void channelInactive(final ChannelHandlerContext ctx)
+					throws Exception {
+		if (parentDirs != null) {
+			failOwnedDirs();
+			pendingWrites.removeAndFailAll(new ClosedChannelException());
+		}
+		super.channelInactive(ctx);
+	}
+}
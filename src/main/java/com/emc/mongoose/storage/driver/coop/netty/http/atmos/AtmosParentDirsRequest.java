@@ -0,0 +1,33 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import com.emc.mongoose.base.storage.Credential;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpRequest;
+import java.util.List;
+
+/**
+ The file create request which should be sent after its missing parent directories are created, keeps the directories
+ for the {@link AtmosParentDirsHandler}
+ */
+final class AtmosParentDirsRequest
+				extends DefaultHttpRequest {
+
+	final List<AtmosDirectoryCache.PendingDir> parentDirs;
+	final Credential credential;
+	final String subtenantId;
+
+	/**
+	 @param req the file create request w/o the content
+	 @param parentDirs the missing parent directories, the topmost first
+	 @param credential the operation credential to sign the directory create requests, null to use the default one
+	 @param subtenantId the pooled subtenant id of the operation, null if none
+	 */
+	AtmosParentDirsRequest(
+					final HttpRequest req, final List<AtmosDirectoryCache.PendingDir> parentDirs,
+					final Credential credential, final String subtenantId) {
+		super(req.protocolVersion(), req.method(), req.uri(), req.headers());
+		this.parentDirs = parentDirs;
+		this.credential = credential;
+		this.subtenantId = subtenantId;
+	}
+}
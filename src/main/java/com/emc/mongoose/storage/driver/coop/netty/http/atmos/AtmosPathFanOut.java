@@ -0,0 +1,117 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ Spreads the new files over the directory tree of the configured depth and width under the destination path. The leaf
+ directory is selected by the file name hash, so the layout is reproducible. The leaf directory paths relative to the
+ destination path are built once and reused, so the cache size is bounded by the leaf count regardless of the count of
+ the different destination paths.
+ */
+final class AtmosPathFanOut {
+
+	/** The leaf paths are cached, so their count is limited */
+	static final int MAX_LEAF_COUNT = 0x100000;
+
+	private final int depth;
+	private final int width;
+	private final int leafCount;
+	private final int dirNameLen;
+	private final AtomicReferenceArray<String> leafPaths;
+
+	/**
+	 @param depth the directory tree depth, > 0
+	 @param width the count of the subdirectories of each directory, > 1
+	 */
+	AtmosPathFanOut(final int depth, final int width) {
+		this.depth = depth;
+		this.width = width;
+		var leafCount = 1L;
+		for (var i = 0; i < depth; i++) {
+			leafCount *= width;
+			if (leafCount > MAX_LEAF_COUNT) {
+				throw new IllegalArgumentException("Too many leaf directories: " + width + "^" + depth);
+			}
+		}
+		this.leafCount = (int) leafCount;
+		dirNameLen = Integer.toHexString(width - 1).length();
+		leafPaths = new AtomicReferenceArray<>(this.leafCount);
+	}
+
+	/**
+	 @param dstPath the destination path, may be null
+	 @param fileName the new file name
+	 @return the leaf directory path for the file
+	 */
+	String dirPath(final String dstPath, final String fileName) {
+		final var leafPath = leafPath(fileName);
+		if (dstPath == null || dstPath.isEmpty()) {
+			return '/' + leafPath;
+		} else if (dstPath.endsWith("/")) {
+			return dstPath + leafPath;
+		} else {
+			return dstPath + '/' + leafPath;
+		}
+	}
+
+	/**
+	 @param srcPath the source path of the create operation, the copied files are not spread
+	 @param dstPath the destination path of the create operation, may be null
+	 @param fileName the file name, the name containing the path is not spread (e.g. the name of the spread file)
+	 @return the leaf directory path for the file if spread, the destination path otherwise
+	 */
+	String fileDstPath(final String srcPath, final String dstPath, final String fileName) {
+		return isSpread(srcPath, dstPath, fileName) ? dirPath(dstPath, fileName) : dstPath;
+	}
+
+	static boolean isSpread(final String srcPath, final String dstPath, final String fileName) {
+		return fileName.indexOf('/') < 0 && !AtmosStorageDriver.isCopy(srcPath, dstPath);
+	}
+
+	/**
+	 @param fileName the new file name
+	 @return the file name prefixed with the leaf directory path relative to the destination path, e.g. "0a/f3/file0"
+	 */
+	String fileName(final String fileName) {
+		return leafPath(fileName) + '/' + fileName;
+	}
+
+	/** @return the leaf directory path relative to the destination path, e.g. "0a/f3" */
+	private String leafPath(final String fileName) {
+		final var leafIndex = leafIndex(fileName);
+		var leafPath = leafPaths.get(leafIndex);
+		if (leafPath == null) {
+			leafPath = buildLeafPath(leafIndex);
+			leafPaths.set(leafIndex, leafPath); // the concurrent builds yield the equal strings
+		}
+		return leafPath;
+	}
+
+	int leafIndex(final String fileName) {
+		// mix the hash bits (murmur3 finalizer) to spread the similar names
+		var h = fileName.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return Math.floorMod(h, leafCount);
+	}
+
+	private String buildLeafPath(final int leafIndex) {
+		final var s = new StringBuilder(depth * (dirNameLen + 1));
+		var divisor = leafCount;
+		for (var i = 0; i < depth; i++) {
+			divisor /= width;
+			final var dirName = Integer.toHexString(leafIndex / divisor % width);
+			if (i > 0) {
+				s.append('/');
+			}
+			for (var j = dirName.length(); j < dirNameLen; j++) {
+				s.append('0');
+			}
+			s.append(dirName);
+		}
+		return s.toString();
+	}
+}
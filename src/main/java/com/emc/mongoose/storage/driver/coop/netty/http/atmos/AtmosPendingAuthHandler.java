@@ -0,0 +1,69 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.PendingWriteQueue;
+import java.nio.channels.ClosedChannelException;
+
+/**
+ Holds the {@link AtmosPendingAuthRequest} and its content until the subtenant is created, w/o blocking. Then the
+ signed operation request is sent instead. If the subtenant creation fails, the request is sent anyway, so the
+ operation fails with the storage response. Should see the writes before the other handlers do. Per channel instance.
+ */
+final class AtmosPendingAuthHandler
+				extends ChannelDuplexHandler {
+
+	private PendingWriteQueue pendingWrites = null;
+	private boolean waiting = false;
+
+	@Override
+	public final void handlerAdded(final ChannelHandlerContext ctx) {
+		pendingWrites = new PendingWriteQueue(ctx);
+	}
+
+	@Override
+	public final void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+		if (waiting) {
+			pendingWrites.add(msg, promise);
+		} else if (msg instanceof AtmosPendingAuthRequest) {
+			final var req = (AtmosPendingAuthRequest) msg;
+			if (req.subtenantFuture.isDone()) {
+				ctx.write(req.signedRequest(), promise);
+			} else {
+				waiting = true;
+				pendingWrites.add(msg, promise);
+				req.subtenantFuture.whenCompleteAsync((subtenantId, e) -> releaseWrites(ctx), ctx.executor());
+			}
+		} else {
+			ctx.write(msg, promise);
+		}
+	}
+
+	@Override
+	public final void flush(final ChannelHandlerContext ctx) {
+		if (!waiting) {
+			ctx.flush();
+		} // else the queued writes are flushed when released
+	}
+
+	private void releaseWrites(final ChannelHandlerContext ctx) {
+		if (waiting) { // else the channel is closed
+			waiting = false;
+			final var req = (AtmosPendingAuthRequest) pendingWrites.current();
+			ctx.write(req.signedRequest(), pendingWrites.remove());
+			pendingWrites.removeAndWriteAll();
+			ctx.flush();
+		}
+	}
+
+	@Override
+	public final void channelInactive(final ChannelHandlerContext ctx)
+					throws Exception {
+		if (waiting) {
+			waiting = false;
+			pendingWrites.removeAndFailAll(new ClosedChannelException());
+		}
+		super.channelInactive(ctx);
+	}
+}
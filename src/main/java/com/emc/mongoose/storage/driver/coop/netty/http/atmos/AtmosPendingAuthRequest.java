@@ -0,0 +1,39 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ The operation request built while the subtenant for the operation credential is being created. The request is held by
+ the {@link AtmosPendingAuthHandler} until the subtenant is created, then signed again and sent instead of this one.
+ */
+final class AtmosPendingAuthRequest
+				extends DefaultHttpRequest {
+
+	final CompletableFuture<String> subtenantFuture;
+	private final HttpRequest req;
+	private final Consumer<HttpHeaders> signFunc;
+
+	/**
+	 @param req the operation request signed w/o the subtenant
+	 @param subtenantFuture the pending subtenant creation
+	 @param signFunc the function signing the request headers again when the subtenant is created
+	 */
+	AtmosPendingAuthRequest(
+					final HttpRequest req, final CompletableFuture<String> subtenantFuture,
+					final Consumer<HttpHeaders> signFunc) {
+		super(req.protocolVersion(), req.method(), req.uri(), req.headers());
+		this.req = req;
+		this.subtenantFuture = subtenantFuture;
+		this.signFunc = signFunc;
+	}
+
+	/** @return the operation request signed w/ the created subtenant (if any) */
+	HttpRequest signedRequest() {
+		signFunc.accept(req.headers());
+		return req;
+	}
+}
@@ -0,0 +1,83 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import com.emc.mongoose.base.item.op.OpType;
+import com.emc.mongoose.base.item.op.Operation;
+
+/**
+ The operation latency breakdown: the histogram per the operation type and the phase. The phases are:
+ <ul>
+ <li>sign: the request signing time</li>
+ <li>request: the request transmission, from the request start to the request sent</li>
+ <li>ttfb: from the request sent to the response start (time to the first byte)</li>
+ <li>transfer: from the response start to the response end</li>
+ </ul>
+ */
+final class AtmosPhaseHistograms {
+
+	enum Phase {
+		SIGN, REQUEST, TTFB, TRANSFER;
+
+		final String displayName = name().toLowerCase();
+	}
+
+	private static final OpType[] OP_TYPES = OpType.values();
+	private static final Phase[] PHASES = Phase.values();
+	private static final long NANOS_PER_MICRO = 1_000;
+
+	private final AtmosLatencyHistogram[][] histograms = new AtmosLatencyHistogram[OP_TYPES.length][PHASES.length];
+
+	AtmosPhaseHistograms() {
+		for (final var opHistograms : histograms) {
+			for (var i = 0; i < opHistograms.length; i++) {
+				opHistograms[i] = new AtmosLatencyHistogram();
+			}
+		}
+	}
+
+	AtmosLatencyHistogram histogram(final OpType opType, final Phase phase) {
+		return histograms[opType.ordinal()][phase.ordinal()];
+	}
+
+	void recordSigning(final OpType opType, final long nanos) {
+		histograms[opType.ordinal()][Phase.SIGN.ordinal()].record(nanos);
+	}
+
+	/** Record the request transmission, time to the first byte and the transfer phases of the completed operation */
+	void recordCompleted(final Operation op) {
+		final var reqTimeStart = op.reqTimeStart();
+		final var reqTimeDone = op.reqTimeDone();
+		final var respTimeStart = op.respTimeStart();
+		final var respTimeDone = op.respTimeDone();
+		if (reqTimeStart > 0 && reqTimeDone >= reqTimeStart && respTimeStart >= reqTimeDone
+						&& respTimeDone >= respTimeStart) {
+			final var opHistograms = histograms[op.type().ordinal()];
+			opHistograms[Phase.REQUEST.ordinal()].record((reqTimeDone - reqTimeStart) * NANOS_PER_MICRO);
+			opHistograms[Phase.TTFB.ordinal()].record((respTimeStart - reqTimeDone) * NANOS_PER_MICRO);
+			opHistograms[Phase.TRANSFER.ordinal()].record((respTimeDone - respTimeStart) * NANOS_PER_MICRO);
+		}
+	}
+
+	/** @return the non-empty histograms summary (microseconds), e.g. "create sign: n=10, mean=12.3, p50=12.0, ..." */
+	@Override
+	public final String toString() {
+		final var s = new StringBuilder();
+		for (final var opType : OP_TYPES) {
+			for (final var phase : PHASES) {
+				final var histogram = histogram(opType, phase);
+				final var n = histogram.count();
+				if (n > 0) {
+					s.append('\n').append(opType.name().toLowerCase()).append(' ').append(phase.displayName)
+									.append(": n=").append(n)
+									.append(String.format(
+													", mean=%.1f, p50=%.1f, p99=%.1f, p99.9=%.1f, max=%.1f",
+													histogram.mean() / NANOS_PER_MICRO,
+													(double) histogram.quantile(0.5) / NANOS_PER_MICRO,
+													(double) histogram.quantile(0.99) / NANOS_PER_MICRO,
+													(double) histogram.quantile(0.999) / NANOS_PER_MICRO,
+													(double) histogram.max() / NANOS_PER_MICRO));
+				}
+			}
+		}
+		return s.toString();
+	}
+}
@@ -1,12 +1,16 @@
 package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
 
+import com.emc.mongoose.base.item.DataItem;
 import com.emc.mongoose.base.item.Item;
+import com.emc.mongoose.base.item.op.OpType;
 import com.emc.mongoose.base.item.op.Operation;
+import com.emc.mongoose.base.item.op.partial.data.PartialDataOperation;
 import com.emc.mongoose.base.logging.Loggers;
 import com.emc.mongoose.storage.driver.coop.netty.http.HttpResponseHandlerBase;
 import com.emc.mongoose.storage.driver.coop.netty.http.HttpStorageDriverBase;
 
 import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.NS_URI_BASE;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.OBJ_ID_LENGTH;
 import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.OBJ_URI_BASE;
 
 import io.netty.channel.Channel;
@@ -20,26 +24,66 @@ public final class AtmosResponseHandler<I extends Item, O extends Operation<I>>
 				extends HttpResponseHandlerBase<I, O> {
 
 	private final boolean fsAccess;
+	private final AtmosObjectIdsOutput objIdsOutput;
+	private final AtmosNodeBalancer nodeBalancer;
+	private final AtmosConcurrencyLimiter concurrencyLimiter;
+	private final AtmosDirectoryCache dirCache;
+	private final AtmosPathFanOut pathFanOut;
 
 	public AtmosResponseHandler(
 					final HttpStorageDriverBase<I, O> driver, final boolean verifyFlag,
 					final boolean fsAccess) {
+		this(driver, verifyFlag, fsAccess, null, null, null, null, null);
+	}
+
+	AtmosResponseHandler(
+					final HttpStorageDriverBase<I, O> driver, final boolean verifyFlag,
+					final boolean fsAccess, final AtmosObjectIdsOutput objIdsOutput,
+					final AtmosNodeBalancer nodeBalancer, final AtmosConcurrencyLimiter concurrencyLimiter,
+					final AtmosDirectoryCache dirCache, final AtmosPathFanOut pathFanOut) {
 		super(driver, verifyFlag);
 		this.fsAccess = fsAccess;
+		this.objIdsOutput = objIdsOutput;
+		this.nodeBalancer = nodeBalancer;
+		this.concurrencyLimiter = concurrencyLimiter;
+		this.dirCache = dirCache;
+		this.pathFanOut = pathFanOut;
 	}
 
 	@Override
 	protected final void handleResponseHeaders(final Channel channel, final O op, final HttpHeaders respHeaders) {
+		if (nodeBalancer != null) {
+			// the response status is already handled at this point
+			nodeBalancer.completed(op.nodeAddr(), op.latency(), op.status());
+		}
+		if (concurrencyLimiter != null) {
+			concurrencyLimiter.completed(op.latency(), op.status());
+		}
+		if (dirCache != null && Operation.Status.RESP_FAIL_NOT_FOUND.equals(op.status())) {
+			// the parent directory may be deleted since it has been cached
+			final var itemName = op.item().name();
+			final var dstPath = pathFanOut == null
+							? op.dstPath()
+							: pathFanOut.fileDstPath(op.srcPath(), op.dstPath(), itemName);
+			dirCache.invalidate(AtmosDirectoryCache.parentDir(dstPath, itemName));
+		}
+		if (
+						pathFanOut != null && OpType.CREATE.equals(op.type()) && Operation.Status.SUCC.equals(op.status())
+										&& !(op instanceof PartialDataOperation)) {
+			// the created file is in the leaf directory, the name is not spread again if the operation is recycled
+			final var item = op.item();
+			final var itemName = item.name();
+			if (AtmosPathFanOut.isSpread(op.srcPath(), op.dstPath(), itemName)) {
+				item.name(pathFanOut.fileName(itemName));
+			}
+		}
 		if (!fsAccess) {
 			final String location = respHeaders.get(HttpHeaderNames.LOCATION);
 			if (location != null && !location.isEmpty()) {
-				if (location.startsWith(NS_URI_BASE)) {
-					op.item().name(location.substring(NS_URI_BASE.length()));
-				} else if (location.startsWith(OBJ_URI_BASE)) {
-					op.item().name(location.substring(OBJ_URI_BASE.length()));
-				} else {
-					op.item().name(location);
-					Loggers.ERR.warn("Unexpected location value: \"{}\"", location);
+				final var item = op.item();
+				item.name(itemName(location));
+				if (objIdsOutput != null && item instanceof DataItem && isObjectIdLocation(location)) {
+					objIdsOutput.put(location, OBJ_URI_BASE.length() + 1, (DataItem) item);
 				}
 				// set the paths to null to avoid the path calculation in the handleCompleted call
 				op.srcPath(null);
@@ -47,4 +91,41 @@ public final class AtmosResponseHandler<I extends Item, O extends Operation<I>>
 			}
 		}
 	}
+
+	/**
+	 @param location the non-empty Location header value. The String is taken as is: the HTTP decoder stores the header
+	 values as Strings already, so the CharSequence access would not save anything
+	 @return the new item name
+	 */
+	static String itemName(final String location) {
+		if (isObjectIdLocation(location)) { // the strict check for the most frequent case first
+			return location.substring(OBJ_URI_BASE.length());
+		} else if (location.startsWith(NS_URI_BASE)) {
+			return location.substring(NS_URI_BASE.length());
+		} else if (location.startsWith(OBJ_URI_BASE)) {
+			return location.substring(OBJ_URI_BASE.length());
+		} else {
+			Loggers.ERR.warn("Unexpected location value: \"{}\"", location);
+			return location;
+		}
+	}
+
+	/** @return true if the value is the object URI path with the valid (hexadecimal) object id */
+	static boolean isObjectIdLocation(final String location) {
+		if (location.length() != OBJ_URI_BASE.length() + 1 + OBJ_ID_LENGTH) {
+			return false;
+		}
+		final var objIdOffset = OBJ_URI_BASE.length() + 1;
+		if (!location.startsWith(OBJ_URI_BASE) || location.charAt(objIdOffset - 1) != '/') {
+			return false;
+		}
+		char c;
+		for (var i = objIdOffset; i < objIdOffset + OBJ_ID_LENGTH; i++) {
+			c = location.charAt(i);
+			if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+				return false;
+			}
+		}
+		return true;
+	}
 }
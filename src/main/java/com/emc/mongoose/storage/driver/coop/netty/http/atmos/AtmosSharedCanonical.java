@@ -0,0 +1,104 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.EmcConstants.KEY_X_EMC_SIGNATURE;
+import static com.emc.mongoose.storage.driver.coop.netty.http.EmcConstants.PREFIX_KEY_X_EMC;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.HEADERS_CANONICAL;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosCanonicalBuffer.startsWithIgnoreCase;
+import static io.netty.util.AsciiString.contentEquals;
+import static io.netty.util.AsciiString.contentEqualsIgnoreCase;
+
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.util.AsciiString;
+import java.util.Map;
+
+/**
+ The part of the canonical request representation which is defined by the shared headers only. Compiled once and reused
+ for each request while the shared headers are not changed. The shared headers snapshot is kept to detect any change,
+ including the value replacement which doesn't change the headers count.
+ */
+final class AtmosSharedCanonical {
+
+	/** The shared headers snapshot: the names and the (first) values */
+	private final CharSequence[] sharedHeaderNames;
+	private final CharSequence[] sharedHeaderValues;
+	/** The shared values of the {@link AtmosApi#HEADERS_CANONICAL} headers, null if missing */
+	final CharSequence[] canonicalValues;
+	/** Lower case x-emc-* header names sorted */
+	final CharSequence[] emcHeaderNames;
+	final CharSequence[] emcHeaderValues;
+
+	private AtmosSharedCanonical(
+					final CharSequence[] sharedHeaderNames,
+					final CharSequence[] sharedHeaderValues,
+					final CharSequence[] canonicalValues,
+					final CharSequence[] emcHeaderNames,
+					final CharSequence[] emcHeaderValues) {
+		this.sharedHeaderNames = sharedHeaderNames;
+		this.sharedHeaderValues = sharedHeaderValues;
+		this.canonicalValues = canonicalValues;
+		this.emcHeaderNames = emcHeaderNames;
+		this.emcHeaderValues = emcHeaderValues;
+	}
+
+	static AtmosSharedCanonical compile(final HttpHeaders sharedHeaders) {
+		final var canonicalValues = new CharSequence[HEADERS_CANONICAL.length];
+		if (sharedHeaders == null) {
+			final var empty = new CharSequence[0];
+			return new AtmosSharedCanonical(empty, empty, canonicalValues, empty, empty);
+		}
+		final var sharedHeadersCount = sharedHeaders.size();
+		final var sharedHeaderNames = new CharSequence[sharedHeadersCount];
+		final var sharedHeaderValues = new CharSequence[sharedHeadersCount];
+		for (var i = 0; i < HEADERS_CANONICAL.length; i++) {
+			canonicalValues[i] = sharedHeaders.get(HEADERS_CANONICAL[i]);
+		}
+		final var sortBuff = new AtmosCanonicalBuffer();
+		final var headersIter = sharedHeaders.iteratorCharSequence();
+		Map.Entry<CharSequence, CharSequence> header;
+		CharSequence headerName;
+		var i = 0;
+		while (headersIter.hasNext()) {
+			header = headersIter.next();
+			headerName = header.getKey();
+			if (i < sharedHeadersCount) {
+				sharedHeaderNames[i] = headerName;
+				sharedHeaderValues[i] = sharedHeaders.get(headerName);
+				i++;
+			}
+			if (startsWithIgnoreCase(headerName, PREFIX_KEY_X_EMC)
+							&& !contentEqualsIgnoreCase(headerName, KEY_X_EMC_SIGNATURE)) {
+				sortBuff.putEmcHeader(AsciiString.of(headerName).toLowerCase(), header.getValue());
+			}
+		}
+		final var emcHeaderCount = sortBuff.emcHeaderCount();
+		final var emcHeaderNames = new CharSequence[emcHeaderCount];
+		final var emcHeaderValues = new CharSequence[emcHeaderCount];
+		sortBuff.copyEmcHeaders(emcHeaderNames, emcHeaderValues);
+		return new AtmosSharedCanonical(
+						sharedHeaderNames, sharedHeaderValues, canonicalValues, emcHeaderNames, emcHeaderValues);
+	}
+
+	/**
+	 @param sharedHeaders the current shared headers
+	 @return true if the shared headers are the same as compiled, false if any header is added, removed or changed
+	 */
+	boolean isValidFor(final HttpHeaders sharedHeaders) {
+		if (sharedHeaders == null) {
+			return sharedHeaderNames.length == 0;
+		}
+		if (sharedHeaders.size() != sharedHeaderNames.length) {
+			return false;
+		}
+		CharSequence value;
+		CharSequence compiledValue;
+		for (var i = 0; i < sharedHeaderNames.length; i++) {
+			value = sharedHeaders.get(sharedHeaderNames[i]);
+			compiledValue = sharedHeaderValues[i];
+			// the same value instance is returned while the header is not changed
+			if (value != compiledValue && (value == null || !contentEquals(value, compiledValue))) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
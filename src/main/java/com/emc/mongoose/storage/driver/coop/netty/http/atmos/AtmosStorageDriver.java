@@ -8,76 +8,166 @@ import static com.emc.mongoose.storage.driver.coop.netty.http.EmcConstants.KEY_X
 import static com.emc.mongoose.storage.driver.coop.netty.http.EmcConstants.PREFIX_KEY_X_EMC;
 import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.HEADERS_CANONICAL;
 import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_SUBTENANT_ID;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_INCLUDE_META;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_LIMIT;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_PATH;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_TAGS;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_TOKEN;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_WSCHECKSUM;
 import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.NS_URI_BASE;
 import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.OBJ_URI_BASE;
-import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.SIGN_METHOD;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.QUERY_METADATA_SYSTEM;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.QUERY_METADATA_USER;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.QUERY_RENAME;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.SERVICE_URI;
 import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.SUBTENANT_URI_BASE;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosCanonicalBuffer.startsWithIgnoreCase;
 import static com.github.akurilov.commons.lang.Exceptions.throwUnchecked;
-import static java.nio.charset.StandardCharsets.UTF_8;
+import static io.netty.util.AsciiString.contentEqualsIgnoreCase;
 
 import com.emc.mongoose.base.data.DataInput;
 import com.emc.mongoose.base.config.IllegalConfigurationException;
+import com.emc.mongoose.base.item.DataItem;
 import com.emc.mongoose.base.item.Item;
 import com.emc.mongoose.base.item.ItemFactory;
 import com.emc.mongoose.base.item.op.OpType;
 import com.emc.mongoose.base.item.op.Operation;
+import com.emc.mongoose.base.item.op.composite.data.CompositeDataOperation;
+import com.emc.mongoose.base.item.op.data.DataOperation;
+import com.emc.mongoose.base.item.op.partial.data.PartialDataOperation;
 import com.emc.mongoose.base.logging.LogUtil;
 import com.emc.mongoose.base.logging.Loggers;
 import com.emc.mongoose.base.storage.Credential;
 import com.emc.mongoose.storage.driver.coop.netty.http.HttpStorageDriverBase;
 import com.github.akurilov.confuse.Config;
+import com.github.akurilov.netty.connection.pool.NonBlockingConnPool;
+import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.DefaultHttpRequest;
 import io.netty.handler.codec.http.EmptyHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpStatusClass;
 import io.netty.handler.codec.http.HttpVersion;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.URISyntaxException;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
-import java.util.function.Function;
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLException;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
 import org.apache.logging.log4j.Level;
+import org.xml.sax.SAXException;
 
 /** Created by kurila on 11.11.16. */
 public class AtmosStorageDriver<I extends Item, O extends Operation<I>>
 				extends HttpStorageDriverBase<I, O> {
 
-	private static final ThreadLocal<StringBuilder> BUFF_CANONICAL = ThreadLocal.withInitial(StringBuilder::new);
+	private static final ThreadLocal<AtmosCanonicalBuffer> BUFF_CANONICAL = ThreadLocal.withInitial(
+					AtmosCanonicalBuffer::new);
 
-	private static final Base64.Encoder BASE64_ENCODER = Base64.getEncoder();
-	private static final Base64.Decoder BASE64_DECODER = Base64.getDecoder();
+	private static final ThreadLocal<SAXParser> SAX_PARSER = ThreadLocal.withInitial(
+					() -> {
+						try {
+							return SAXParserFactory.newInstance().newSAXParser();
+						} catch (final ParserConfigurationException | SAXException e) {
+							throw new IllegalStateException(e);
+						}
+					});
 
-	private static final ThreadLocal<Map<String, Mac>> MAC_BY_SECRET = ThreadLocal.withInitial(HashMap::new);
-	private static final Function<String, Mac> GET_MAC_BY_SECRET = secret -> {
-		try {
-			final var secretKey = new SecretKeySpec(BASE64_DECODER.decode(secret.getBytes(UTF_8)), SIGN_METHOD);
-			final var mac = Mac.getInstance(SIGN_METHOD);
-			mac.init(secretKey);
-			return mac;
-		} catch (final NoSuchAlgorithmException | InvalidKeyException e) {
-			LogUtil.exception(Level.ERROR, e, "Failed to init MAC for the given secret key");
-		} catch (final IllegalArgumentException e) {
-			LogUtil.exception(Level.ERROR, e, "Failed to perform the secret key Base-64 decoding");
+	private static final String RANGE_PREFIX = "bytes=";
+	/** The pooled subtenant selected for the data operation request being built by the current thread */
+	private static final ThreadLocal<String> POOLED_SUBTENANT_ID = new ThreadLocal<>();
+	/**
+	 The subtenant being created for the operation request built by the current thread, {@link #NO_PENDING_SUBTENANT}
+	 if not, null if no operation request is being built
+	 */
+	private static final ThreadLocal<PendingSubtenant> PENDING_SUBTENANT = new ThreadLocal<>();
+	private static final PendingSubtenant NO_PENDING_SUBTENANT = new PendingSubtenant(null, null, null, null);
+	/**
+	 The operation which request is being built by the current thread, set if the metadata is generated either the
+	 write checksum is calculated
+	 */
+	private static final ThreadLocal<Operation<?>> REQUEST_OP = new ThreadLocal<>();
+	/** The last request signing time (nanoseconds) of the current thread */
+	private static final ThreadLocal<long[]> SIGN_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+	private static final int UID_HEADER_VALUE_SLOT_COUNT = 0x40;
+	/** The "subtenant/uid" header values of the current thread, direct mapped by the subtenant id and the uid identities */
+	private static final ThreadLocal<String[][]> UID_HEADER_VALUES = ThreadLocal.withInitial(
+					() -> new String[UID_HEADER_VALUE_SLOT_COUNT][]);
+
+	/** The subtenant being created for the operation credential and the operation request signing arguments */
+	private static final class PendingSubtenant {
+
+		final CompletableFuture<String> future;
+		final Credential credential;
+		final HttpMethod httpMethod;
+		final String dstUriPath;
+
+		PendingSubtenant(
+						final CompletableFuture<String> future, final Credential credential, final HttpMethod httpMethod,
+						final String dstUriPath) {
+			this.future = future;
+			this.credential = credential;
+			this.httpMethod = httpMethod;
+			this.dstUriPath = dstUriPath;
 		}
-		return null;
-	};
+	}
 
 	protected final boolean fsAccess;
+	private final AtmosWriteChecksum writeChecksum;
+	private final ExecutorService backgroundExecutor;
+	/** Outputs the stats periodically, null if the stats are output on close only */
+	private final ScheduledExecutorService statsExecutor;
+	private final AtmosNodeClient nodeClient;
+	private final Map<Credential, CompletableFuture<String>> pendingSubtenantRequests = new ConcurrentHashMap<>();
+	private final AtomicInteger subtenantNodeIndex = new AtomicInteger(0);
+	private final AtmosSubtenantPool subtenantPool;
+	private final boolean subtenantPoolCleanup;
+	private final boolean listRecursive;
+	private final int listConcurrency;
+	private final int listQueueSize;
+	private final Map<String, AtmosListing> listingCursors = new ConcurrentHashMap<>();
+	private final Path objIdsFile;
+	private final AtmosObjectIdsOutput objIdsOutput;
+	private final AtmosNodeBalancer nodeBalancer;
+	private final AtmosConcurrencyLimiter concurrencyLimiter;
+	private final AtmosErrorCodeCounters errorCodeCounters = new AtmosErrorCodeCounters();
+	private final AtmosMetadataGenerator metadataGenerator;
+	private final AtmosOpMode opMode;
+	private final AtmosMetadataGenerator opMetadataGenerator;
+	private final AtmosTagQuery tagQuery;
+	private final AtmosDirectoryCache dirCache;
+	private final AtmosPathFanOut pathFanOut;
+	private final AtmosPhaseHistograms phaseHistograms;
+	private final AtmosMacCache macCache;
+	private final AtmosStripesOrder stripesOrder = new AtmosStripesOrder();
+	private AtmosObjectIdsInput objIdsInput = null;
+	private volatile AtmosSharedCanonical sharedCanonical = null;
 
 	public AtmosStorageDriver(
 					final String stepId,
@@ -89,10 +179,189 @@ public class AtmosStorageDriver<I extends Item, O extends Operation<I>>
 		super(stepId, dataInput, storageConfig, verifyFlag, batchSize);
 		final var httpConfig = storageConfig.configVal("net-http");
 		fsAccess = httpConfig.boolVal("fsAccess");
+		final var atmosConfig = storageConfig.configVal("atmos");
+		final var listConfig = atmosConfig.configVal("list");
+		listRecursive = listConfig.boolVal("recursive");
+		listConcurrency = listConfig.intVal("concurrency");
+		if (listConcurrency < 1) {
+			throw new IllegalConfigurationException("Listing concurrency should be more than 0");
+		}
+		listQueueSize = listConfig.intVal("queueSize");
+		if (listQueueSize < 1) {
+			throw new IllegalConfigurationException("Listing queue size should be more than 0");
+		}
+		writeChecksum = atmosConfig.boolVal("checksum-enabled") ?
+						new AtmosWriteChecksum(AtmosWriteChecksum.STATE_COUNT_LIMIT) : null;
+		final var metadataConfig = atmosConfig.configVal("metadata");
+		final var metadataCount = metadataConfig.intVal("count");
+		if (metadataCount > 0) {
+			final var metadataValueSize = metadataConfig.intVal("valueSize");
+			if (metadataValueSize < 1) {
+				throw new IllegalConfigurationException("Metadata value size should be more than 0");
+			}
+			final var metadataListableFraction = metadataConfig.doubleVal("listableFraction");
+			if (metadataListableFraction < 0 || metadataListableFraction > 1) {
+				throw new IllegalConfigurationException("Listable metadata fraction should be in the range of [0; 1]");
+			}
+			metadataGenerator = new AtmosMetadataGenerator(metadataCount, metadataValueSize, metadataListableFraction);
+		} else {
+			metadataGenerator = null;
+		}
+		final var opModeConfigValue = atmosConfig.stringVal("op-mode");
+		opMode = AtmosOpMode.fromConfigValue(opModeConfigValue);
+		if (opMode == null) {
+			throw new IllegalConfigurationException("Unexpected op mode: \"" + opModeConfigValue + "\"");
+		}
+		final var dirCacheSize = atmosConfig.intVal("dir-cache-size");
+		if (dirCacheSize < 0) {
+			throw new IllegalConfigurationException("Directory cache size should not be negative");
+		}
+		dirCache = fsAccess && dirCacheSize > 0 ? new AtmosDirectoryCache(dirCacheSize) : null;
+		final var fanOutConfig = atmosConfig.configVal("dir-fanOut");
+		final var fanOutDepth = fanOutConfig.intVal("depth");
+		if (fanOutDepth > 0) {
+			if (!fsAccess) {
+				throw new IllegalConfigurationException("Directory fan-out requires the filesystem access to be enabled");
+			}
+			final var fanOutWidth = fanOutConfig.intVal("width");
+			if (fanOutWidth < 2) {
+				throw new IllegalConfigurationException("Directory fan-out width should be more than 1");
+			}
+			if (Math.pow(fanOutWidth, fanOutDepth) > AtmosPathFanOut.MAX_LEAF_COUNT) {
+				throw new IllegalConfigurationException(
+								"Directory fan-out leaf directories count should not be more than "
+												+ AtmosPathFanOut.MAX_LEAF_COUNT);
+			}
+			pathFanOut = new AtmosPathFanOut(fanOutDepth, fanOutWidth);
+		} else {
+			pathFanOut = null;
+		}
+		phaseHistograms = atmosConfig.boolVal("latencyPhases-enabled") ? new AtmosPhaseHistograms() : null;
+		final var statsPeriod = atmosConfig.intVal("stats-period");
+		if (statsPeriod < 0) {
+			throw new IllegalConfigurationException("Stats period should not be negative");
+		}
+		final var macCacheSize = atmosConfig.intVal("macCache-size");
+		if (macCacheSize < 1) {
+			throw new IllegalConfigurationException("MAC cache size should be more than 0");
+		}
+		macCache = new AtmosMacCache(macCacheSize);
+		if (AtmosOpMode.RENAME.equals(opMode) && !fsAccess) {
+			throw new IllegalConfigurationException("Rename op mode requires the filesystem access to be enabled");
+		}
+		if (AtmosOpMode.TAG_QUERY.equals(opMode)) {
+			final var tagQueryConfig = atmosConfig.configVal("tagQuery");
+			final var tagQueryCardinality = tagQueryConfig.intVal("cardinality");
+			if (tagQueryCardinality < 1) {
+				throw new IllegalConfigurationException("Tag query cardinality should be more than 0");
+			}
+			final var tagQueryPageSize = tagQueryConfig.intVal("pageSize");
+			if (tagQueryPageSize < 0) {
+				throw new IllegalConfigurationException("Tag query page size should not be negative");
+			}
+			tagQuery = new AtmosTagQuery(tagQueryCardinality, tagQueryPageSize);
+		} else {
+			tagQuery = null;
+		}
+		// the metadata update/delete operations need some metadata even if it's not generated for the created objects
+		opMetadataGenerator = metadataGenerator == null ? new AtmosMetadataGenerator(1, 16, 0) : metadataGenerator;
+		final var objIdsFileName = atmosConfig.stringVal("objectIds-file");
+		if (fsAccess || objIdsFileName == null || objIdsFileName.isEmpty()) {
+			objIdsFile = null;
+			objIdsOutput = null;
+		} else {
+			objIdsFile = Paths.get(objIdsFileName);
+			objIdsOutput = new AtmosObjectIdsOutput(objIdsFile);
+		}
 		if (namespace != null && !namespace.isEmpty()) {
 			sharedHeaders.set(KEY_X_EMC_NAMESPACE, namespace);
 		}
+		sharedHeadersChanged();
 		requestNewPathFunc = null; // do not use
+		// the subtenant is created w/o blocking while the operation request is built, see applyAuthHeaders
+		requestAuthTokenFunc = null;
+		try {
+			nodeClient = new AtmosNodeClient(
+							"atmos-node-client-" + stepId, storageConfig.intVal("net-node-port"),
+							storageConfig.boolVal("net-ssl-enabled"), storageConfig.intVal("net-timeoutMilliSec"));
+		} catch (final SSLException e) {
+			throw new IllegalConfigurationException("Failed to init the SSL context: " + e);
+		}
+		backgroundExecutor = Executors.newCachedThreadPool(
+						task -> {
+							final var thread = new Thread(task, "atmos-background-" + stepId);
+							thread.setDaemon(true);
+							return thread;
+						});
+		final var nodeBalancingConfig = atmosConfig.configVal("node-balancing");
+		if (nodeBalancingConfig.boolVal("enabled") && storageNodeAddrs.length > 1) {
+			final var failCountLimit = nodeBalancingConfig.intVal("failCountLimit");
+			if (failCountLimit < 1) {
+				throw new IllegalConfigurationException("Node balancing fail count limit should be more than 0");
+			}
+			final var probePeriod = nodeBalancingConfig.intVal("probePeriod");
+			if (probePeriod < 1) {
+				throw new IllegalConfigurationException("Node balancing probe period should be more than 0");
+			}
+			nodeBalancer = new AtmosNodeBalancer(storageNodeAddrs, failCountLimit, probePeriod, this::probeNode);
+		} else {
+			nodeBalancer = null;
+		}
+		final var adaptiveConcurrencyConfig = atmosConfig.configVal("concurrency-adaptive");
+		if (adaptiveConcurrencyConfig.boolVal("enabled")) {
+			if (concurrencyLimit < 1) {
+				throw new IllegalConfigurationException(
+								"Adaptive concurrency requires the storage driver concurrency limit to be set");
+			}
+			final var minLimit = adaptiveConcurrencyConfig.intVal("min");
+			if (minLimit < 1 || minLimit > concurrencyLimit) {
+				throw new IllegalConfigurationException(
+								"Adaptive concurrency min limit should be in the range of [1; " + concurrencyLimit + "]");
+			}
+			final var increment = adaptiveConcurrencyConfig.intVal("increment");
+			if (increment < 1) {
+				throw new IllegalConfigurationException("Adaptive concurrency increment should be more than 0");
+			}
+			final var decreaseFactor = adaptiveConcurrencyConfig.doubleVal("decreaseFactor");
+			if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+				throw new IllegalConfigurationException(
+								"Adaptive concurrency decrease factor should be in the range of (0; 1)");
+			}
+			final var latencyFactor = adaptiveConcurrencyConfig.doubleVal("latencyFactor");
+			if (latencyFactor <= 1) {
+				throw new IllegalConfigurationException("Adaptive concurrency latency factor should be more than 1");
+			}
+			concurrencyLimiter = new AtmosConcurrencyLimiter(
+							concurrencyThrottle, concurrencyLimit, minLimit, increment, decreaseFactor, latencyFactor);
+		} else {
+			concurrencyLimiter = null;
+		}
+		final var subtenantPoolConfig = atmosConfig.configVal("subtenant-pool");
+		final var subtenantPoolSize = subtenantPoolConfig.intVal("size");
+		if (subtenantPoolSize > 0) {
+			final var subtenantPoolConcurrency = subtenantPoolConfig.intVal("concurrency");
+			if (subtenantPoolConcurrency < 1) {
+				throw new IllegalConfigurationException("Subtenant pool concurrency should be more than 0");
+			}
+			subtenantPool = AtmosSubtenantPool.create(
+							subtenantPoolSize, subtenantPoolConcurrency, () -> createSubtenant(credential).join());
+			subtenantPoolCleanup = subtenantPoolConfig.boolVal("cleanup");
+		} else {
+			subtenantPool = null;
+			subtenantPoolCleanup = false;
+		}
+		// the last, so the scheduled output sees all the stats initialized
+		if (statsPeriod > 0) {
+			statsExecutor = Executors.newSingleThreadScheduledExecutor(
+							task -> {
+								final var thread = new Thread(task, "atmos-stats-" + stepId);
+								thread.setDaemon(true);
+								return thread;
+							});
+			statsExecutor.scheduleWithFixedDelay(this::logStats, statsPeriod, statsPeriod, TimeUnit.SECONDS);
+		} else {
+			statsExecutor = null;
+		}
 	}
 
 	@Override
@@ -100,10 +369,96 @@ public class AtmosStorageDriver<I extends Item, O extends Operation<I>>
 		throw new AssertionError("Should not be invoked");
 	}
 
+	/**
+	 Create the subtenant and wait for the result
+	 @param credential the credential to create the subtenant for
+	 @return the subtenant id, null if failed
+	 */
 	@Override
 	protected final String requestNewAuthToken(final Credential credential) {
+		try {
+			return credential == null ? createSubtenant(null).get() : subtenantFuture(credential).get();
+		} catch (final InterruptedException e) {
+			throwUnchecked(e);
+		} catch (final ExecutionException e) {
+			LogUtil.exception(Level.WARN, e.getCause(), "Failed to create the subtenant");
+		}
+		return null;
+	}
+
+	/**
+	 Create the subtenant w/o blocking. The concurrent invocations for the same credential share the same pending
+	 request. The created subtenant id is put to the auth tokens before the future is completed.
+	 @param credential the credential to create the subtenant for
+	 @return the future subtenant id, null if failed
+	 */
+	final CompletableFuture<String> subtenantFuture(final Credential credential) {
+		final var future = new CompletableFuture<String>();
+		final var pendingFuture = pendingSubtenantRequests.putIfAbsent(credential, future);
+		if (pendingFuture != null) {
+			return pendingFuture;
+		}
+		createSubtenant(credential).whenComplete(
+						(subtenantId, e) -> {
+							if (subtenantId != null) {
+								authTokens.put(credential, subtenantId);
+							}
+							pendingSubtenantRequests.remove(credential, future);
+							if (e == null) {
+								future.complete(subtenantId);
+							} else {
+								future.completeExceptionally(e);
+							}
+						});
+		return future;
+	}
+
+	/**
+	 Try the storage nodes in the round robin order starting from the next one until the connection succeeds
+	 @return the future subtenant id, null if failed
+	 */
+	private CompletableFuture<String> createSubtenant(final Credential credential) {
+		final var subtenantIdFuture = new CompletableFuture<String>();
+		createSubtenant(credential, subtenantNodeIndex.getAndIncrement(), 0, subtenantIdFuture);
+		return subtenantIdFuture;
+	}
+
+	private void createSubtenant(
+					final Credential credential, final int firstNodeIndex, final int attempt,
+					final CompletableFuture<String> subtenantIdFuture) {
+		final var nodeAddr = nodeAddr(firstNodeIndex, attempt);
+		executeHttpRequest(nodeAddr, createSubtenantRequest(credential, nodeAddr)).whenComplete(
+						(createSubtenantResp, e) -> {
+							if (createSubtenantResp != null) {
+								try {
+									if (HttpStatusClass.SUCCESS.equals(createSubtenantResp.status().codeClass())) {
+										subtenantIdFuture.complete(createSubtenantResp.headers().get(KEY_SUBTENANT_ID));
+									} else {
+										Loggers.ERR.warn(
+														"Creating the subtenant: got response {}", createSubtenantResp.status().toString());
+										subtenantIdFuture.complete(null);
+									}
+								} finally {
+									createSubtenantResp.release();
+								}
+								return;
+							}
+							final var cause = e instanceof CompletionException ? e.getCause() : e;
+							if (cause instanceof ConnectException) {
+								connectFailed(nodeAddr, (ConnectException) cause);
+								if (attempt + 1 < storageNodeAddrs.length) {
+									createSubtenant(credential, firstNodeIndex, attempt + 1, subtenantIdFuture);
+									return;
+								}
+							} else {
+								LogUtil.exception(
+												Level.WARN, cause, "Failed to create the subtenant on the storage node {}", nodeAddr);
+							}
+							subtenantIdFuture.complete(null);
+						});
+	}
 
-		final var nodeAddr = storageNodeAddrs[0];
+	private FullHttpRequest createSubtenantRequest(final Credential credential, final String nodeAddr) {
 		final var uriQuery = uriQuery();
 		final var uri = uriQuery == null || uriQuery.isEmpty() ? SUBTENANT_URI_BASE : SUBTENANT_URI_BASE + uriQuery;
 		final HttpHeaders reqHeaders = new DefaultHttpHeaders();
@@ -116,37 +471,192 @@ public class AtmosStorageDriver<I extends Item, O extends Operation<I>>
 		applyDynamicHeaders(reqHeaders);
 		applySharedHeaders(reqHeaders);
 		applyAuthHeaders(reqHeaders, HttpMethod.PUT, uri, credential);
-
-		final FullHttpRequest getSubtenantReq = new DefaultFullHttpRequest(
+		return new DefaultFullHttpRequest(
 						HttpVersion.HTTP_1_1,
 						HttpMethod.PUT,
 						uri,
 						Unpooled.EMPTY_BUFFER,
 						reqHeaders,
 						EmptyHttpHeaders.INSTANCE);
+	}
+
+	/**
+	 Send the request to the given storage node w/o blocking
+	 @param nodeAddr the storage node address
+	 @param httpRequest the request to send
+	 @return the future response which should be released by the caller, completed exceptionally with the
+	 {@link ConnectException} if failed to connect to the node
+	 */
+	protected CompletableFuture<FullHttpResponse> executeHttpRequest(
+					final String nodeAddr, final FullHttpRequest httpRequest) {
+		return nodeClient.execute(nodeAddr, httpRequest);
+	}
+
+	/** Send the request to the given storage node and wait for the response */
+	private FullHttpResponse awaitHttpResponse(final String nodeAddr, final FullHttpRequest httpRequest)
+					throws IOException, InterruptedException {
+		try {
+			return executeHttpRequest(nodeAddr, httpRequest).get();
+		} catch (final ExecutionException e) {
+			final var cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private boolean deleteSubtenant(final String subtenantId) {
+		final var nodeCount = storageNodeAddrs.length;
+		final var firstNodeIndex = subtenantNodeIndex.getAndIncrement();
+		for (var i = 0; i < nodeCount; i++) {
+			final var nodeAddr = nodeAddr(firstNodeIndex, i);
+			try {
+				return deleteSubtenant(subtenantId, nodeAddr);
+			} catch (final ConnectException e) {
+				connectFailed(nodeAddr, e);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 Build the namespace directory create request, the parent directory should exist. The request is signed the same way
+	 as the file create request, so the directory is owned by the same subtenant and uid
+	 @param dirPath the directory path, e.g. "/dir0/dir1"
+	 @param nodeAddr the storage node address
+	 @param credential the operation credential, null to use the default one
+	 @param subtenantId the pooled subtenant id of the operation, null if none
+	 */
+	private HttpRequest createDirectoryRequest(
+					final String dirPath, final String nodeAddr, final Credential credential, final String subtenantId) {
+		final var uri = NS_URI_BASE + dirPath + '/';
+		final HttpHeaders reqHeaders = new DefaultHttpHeaders();
+		if (nodeAddr != null) {
+			reqHeaders.set(HttpHeaderNames.HOST, nodeAddr);
+		}
+		reqHeaders.set(HttpHeaderNames.CONTENT_LENGTH, 0);
+		reqHeaders.set(KEY_X_EMC_FILESYSTEM_ACCESS_ENABLED, Boolean.toString(fsAccess));
+		applyDynamicHeaders(reqHeaders);
+		applySharedHeaders(reqHeaders);
+		if (subtenantId == null) {
+			applyAuthHeaders(reqHeaders, HttpMethod.POST, uri, credential);
+		} else {
+			// built by the connection's event loop, so the pooled subtenant id is set for the signing here
+			POOLED_SUBTENANT_ID.set(subtenantId);
+			try {
+				applyAuthHeaders(reqHeaders, HttpMethod.POST, uri, credential);
+			} finally {
+				POOLED_SUBTENANT_ID.remove();
+			}
+		}
+		return new DefaultFullHttpRequest(
+						HttpVersion.HTTP_1_1,
+						HttpMethod.POST,
+						uri,
+						Unpooled.EMPTY_BUFFER,
+						reqHeaders,
+						EmptyHttpHeaders.INSTANCE);
+	}
+
+	/**
+	 @param firstNodeIndex the round robin start index
+	 @param attempt the attempt number
+	 @return the node selected by the balancer for the 1st attempt (if enabled), the next node in the round robin order
+	 otherwise
+	 */
+	private String nodeAddr(final int firstNodeIndex, final int attempt) {
+		if (nodeBalancer != null && attempt == 0) {
+			final var nodeAddr = nodeBalancer.select();
+			if (nodeAddr != null) {
+				return nodeAddr;
+			}
+		}
+		return storageNodeAddrs[Math.floorMod(firstNodeIndex + attempt, storageNodeAddrs.length)];
+	}
+
+	private void connectFailed(final String nodeAddr, final ConnectException e) {
+		LogUtil.exception(Level.WARN, e, "Failed to connect to the storage node {}", nodeAddr);
+		if (nodeBalancer != null) {
+			nodeBalancer.failed(nodeAddr);
+		}
+	}
+
+	/**
+	 Perform the noop request to check if the storage node is available. The request is sent to the node itself over the
+	 driver's own connection, not over the load connections which may go to any node
+	 @param nodeAddr the storage node address
+	 @return true if the node responded successfully
+	 */
+	final boolean probeNode(final String nodeAddr) {
+		final HttpHeaders reqHeaders = new DefaultHttpHeaders();
+		reqHeaders.set(HttpHeaderNames.HOST, nodeAddr);
+		reqHeaders.set(HttpHeaderNames.CONTENT_LENGTH, 0);
+		applyDynamicHeaders(reqHeaders);
+		applySharedHeaders(reqHeaders);
+		applyAuthHeaders(reqHeaders, HttpMethod.HEAD, SERVICE_URI, credential);
+		final FullHttpRequest probeReq = new DefaultFullHttpRequest(
+						HttpVersion.HTTP_1_1,
+						HttpMethod.HEAD,
+						SERVICE_URI,
+						Unpooled.EMPTY_BUFFER,
+						reqHeaders,
+						EmptyHttpHeaders.INSTANCE);
+		try {
+			final var probeResp = awaitHttpResponse(nodeAddr, probeReq);
+			try {
+				return HttpStatusClass.SUCCESS.equals(probeResp.status().codeClass());
+			} finally {
+				probeResp.release();
+			}
+		} catch (final IOException e) {
+			return false;
+		} catch (final InterruptedException e) {
+			throwUnchecked(e);
+		}
+		return false;
+	}
 
-		String subtenantId = null;
+	private boolean deleteSubtenant(final String subtenantId, final String nodeAddr)
+					throws ConnectException {
+
+		final var uri = SUBTENANT_URI_BASE + '/' + subtenantId;
+		final HttpHeaders reqHeaders = new DefaultHttpHeaders();
+		reqHeaders.set(HttpHeaderNames.HOST, nodeAddr);
+		reqHeaders.set(HttpHeaderNames.CONTENT_LENGTH, 0);
+		applyDynamicHeaders(reqHeaders);
+		applySharedHeaders(reqHeaders);
+		applyAuthHeaders(reqHeaders, HttpMethod.DELETE, uri, credential);
+
+		final FullHttpRequest deleteSubtenantReq = new DefaultFullHttpRequest(
+						HttpVersion.HTTP_1_1,
+						HttpMethod.DELETE,
+						uri,
+						Unpooled.EMPTY_BUFFER,
+						reqHeaders,
+						EmptyHttpHeaders.INSTANCE);
 
-		final FullHttpResponse getSubtenantResp;
 		try {
-			getSubtenantResp = executeHttpRequest(getSubtenantReq);
+			final var deleteSubtenantResp = awaitHttpResponse(nodeAddr, deleteSubtenantReq);
 			try {
-				if (HttpStatusClass.SUCCESS.equals(getSubtenantResp.status().codeClass())) {
-					subtenantId = getSubtenantResp.headers().get(KEY_SUBTENANT_ID);
+				if (HttpStatusClass.SUCCESS.equals(deleteSubtenantResp.status().codeClass())) {
+					return true;
 				} else {
 					Loggers.ERR.warn(
-									"Creating the subtenant: got response {}", getSubtenantResp.status().toString());
+									"Deleting the subtenant {}: got response {}", subtenantId, deleteSubtenantResp.status());
 				}
 			} finally {
-				getSubtenantResp.release();
+				deleteSubtenantResp.release();
 			}
+		} catch (final ConnectException e) {
+			throw e;
+		} catch (final IOException e) {
+			LogUtil.exception(Level.WARN, e, "Failed to delete the subtenant {}", subtenantId);
 		} catch (final InterruptedException e) {
 			throwUnchecked(e);
-		} catch (final ConnectException e) {
-			LogUtil.exception(Level.WARN, e, "Failed to connect to the storage node");
 		}
 
-		return subtenantId;
+		return false;
 	}
 
 	@Override
@@ -158,13 +668,625 @@ public class AtmosStorageDriver<I extends Item, O extends Operation<I>>
 					final I lastPrevItem,
 					final int count)
 					throws IOException {
+		// the items input path should be the same as the object ids file path to read the items from the file
+		if (objIdsFile != null && objIdsFile.toString().equals(path) && Files.exists(objIdsFile)) {
+			return listObjectIds(itemFactory, lastPrevItem, count);
+		}
+		final var listingPath = path == null ? "" : path;
+		final AtmosListing cursor;
+		if (lastPrevItem == null) { // new listing
+			final AtmosListingCursor.PageLoader pageLoader = (p, token) -> listPage(p, token, count);
+			if (fsAccess && listRecursive) {
+				cursor = new AtmosNamespaceCrawler(
+								listingPath, pageLoader, backgroundExecutor, listConcurrency, listQueueSize);
+			} else {
+				cursor = new AtmosListingCursor(listingPath, pageLoader, backgroundExecutor);
+			}
+			final var prevCursor = listingCursors.put(listingPath, cursor);
+			if (prevCursor != null) {
+				prevCursor.cancel();
+			}
+		} else {
+			cursor = listingCursors.get(listingPath);
+			if (cursor == null) { // the listing is done already
+				return Collections.emptyList();
+			}
+		}
+		final var entries = new ArrayList<AtmosListingPage.Entry>(count);
+		final var items = new ArrayList<I>(count);
+		final var prefixLen = prefix == null ? 0 : prefix.length();
+		final var namePrefix = !fsAccess || listingPath.isEmpty() ?
+						"" : listingPath.endsWith("/") ? listingPath : listingPath + '/';
+		while (items.isEmpty()) {
+			if (0 == cursor.next(entries, count)) {
+				listingCursors.remove(listingPath, cursor);
+				break;
+			}
+			for (final var entry : entries) {
+				if (entry.directory) {
+					continue;
+				}
+				// the entry name may contain the relative path in case of the recursive listing
+				final var baseNameOffset = entry.name.lastIndexOf('/') + 1;
+				if (prefixLen > 0 && !entry.name.startsWith(prefix, baseNameOffset)) {
+					continue;
+				}
+				// the name may be not generated by Mongoose, e.g. Atmos object id
+				final var offset = parseOffset(entry.name, baseNameOffset + prefixLen, idRadix);
+				items.add(itemFactory.getItem(namePrefix + entry.name, offset, entry.size));
+			}
+			entries.clear();
+		}
+		return items;
+	}
+
+	/**
+	 Parse the item offset w/o the exception if the name is not a number in the given radix (the common case for the
+	 Atmos object ids), so no stack trace is filled in on the listing path
+	 @return the parsed offset, 0 if the name part is not a number either overflows
+	 */
+	static long parseOffset(final String name, final int from, final int radix) {
+		final var len = name.length();
+		if (from >= len || len - from > 64) {
+			return 0;
+		}
+		for (var i = from; i < len; i++) {
+			if (Character.digit(name.charAt(i), radix) < 0) {
+				return 0;
+			}
+		}
+		try {
+			return Long.parseLong(name, from, len, radix);
+		} catch (final NumberFormatException e) {
+			return 0; // overflow
+		}
+	}
+
+	/** Read the items from the packed object ids file instead of the storage listing */
+	private synchronized List<I> listObjectIds(
+					final ItemFactory<I> itemFactory, final I lastPrevItem, final int count)
+					throws IOException {
+		if (lastPrevItem == null) { // new listing
+			if (objIdsInput != null) {
+				objIdsInput.close();
+			}
+			objIdsInput = new AtmosObjectIdsInput(objIdsFile);
+		} else if (objIdsInput == null) { // the listing is done already
+			return Collections.emptyList();
+		}
+		final var items = new ArrayList<I>(count);
+		if (0 == objIdsInput.get(itemFactory, items, count)) {
+			objIdsInput.close();
+			objIdsInput = null;
+		}
+		return items;
+	}
+
+	/**
+	 Request the listing page synchronously
+	 @param path the namespace directory path if filesystem access is enabled, the listable tag otherwise
+	 @param token the continuation token, null for the 1st page
+	 @param limit the max count of the entries in the page
+	 @return the listing page
+	 @throws IOException if failed to connect or got the unsuccessful response
+	 */
+	protected AtmosListingPage listPage(final String path, final String token, final int limit) throws IOException {
+
+		final var nodeAddr = nodeAddr(0, 0);
+		final String uriPath;
+		final HttpHeaders reqHeaders = new DefaultHttpHeaders();
+		reqHeaders.set(HttpHeaderNames.HOST, nodeAddr);
+		reqHeaders.set(HttpHeaderNames.CONTENT_LENGTH, 0);
+		if (fsAccess) {
+			reqHeaders.set(KEY_X_EMC_FILESYSTEM_ACCESS_ENABLED, Boolean.toString(fsAccess));
+			final var dirPath = path.startsWith("/") ? path : '/' + path;
+			uriPath = NS_URI_BASE + (dirPath.endsWith("/") ? dirPath : dirPath + '/');
+		} else {
+			uriPath = OBJ_URI_BASE;
+			reqHeaders.set(KEY_X_EMC_TAGS, path.startsWith("/") ? path.substring(1) : path);
+		}
+		reqHeaders.set(KEY_X_EMC_INCLUDE_META, 1);
+		if (limit > 0) {
+			reqHeaders.set(KEY_X_EMC_LIMIT, limit);
+		}
+		if (token != null) {
+			reqHeaders.set(KEY_X_EMC_TOKEN, token);
+		}
+		applyDynamicHeaders(reqHeaders);
+		applySharedHeaders(reqHeaders);
+		applyAuthHeaders(reqHeaders, HttpMethod.GET, uriPath, credential);
+
+		final FullHttpRequest listReq = new DefaultFullHttpRequest(
+						HttpVersion.HTTP_1_1,
+						HttpMethod.GET,
+						uriPath,
+						Unpooled.EMPTY_BUFFER,
+						reqHeaders,
+						EmptyHttpHeaders.INSTANCE);
+
+		try {
+			final var listResp = awaitHttpResponse(nodeAddr, listReq);
+			try {
+				if (!HttpStatusClass.SUCCESS.equals(listResp.status().codeClass())) {
+					throw new IOException("Listing \"" + path + "\": got response " + listResp.status());
+				}
+				final var listingHandler = new AtmosListingHandler();
+				try (final var in = new ByteBufInputStream(listResp.content())) {
+					SAX_PARSER.get().parse(in, listingHandler);
+				} catch (final SAXException e) {
+					throw new IOException("Failed to parse the listing response", e);
+				}
+				return new AtmosListingPage(listingHandler.entries(), listResp.headers().get(KEY_X_EMC_TOKEN));
+			} finally {
+				listResp.release();
+			}
+		} catch (final InterruptedException e) {
+			throwUnchecked(e);
+		}
 		return null;
 	}
 
+	@Override
+	protected NonBlockingConnPool createConnectionPool() {
+		// invoked by the base constructor before the balancer is created, so the balancer is supplied lazily
+		return new AtmosBalancedConnPool(super.createConnectionPool(), () -> nodeBalancer, storageNodeAddrs.length);
+	}
+
 	@Override
 	protected final void appendHandlers(final Channel channel) {
 		super.appendHandlers(channel);
-		channel.pipeline().addLast(new AtmosResponseHandler<>(this, verifyFlag, fsAccess));
+		if (dirCache != null) {
+			channel.pipeline().addLast(new AtmosParentDirsHandler(dirCache, this::createDirectoryRequest));
+		}
+		channel.pipeline().addLast(new AtmosStripesOrderHandler());
+		channel.pipeline().addLast(new AtmosErrorCodeHandler(errorCodeCounters));
+		if (opMode.isMetadata()) {
+			channel.pipeline().addLast(new AtmosMetadataRequestHandler());
+		} else if (tagQuery != null) {
+			channel.pipeline().addLast(new AtmosTagQueryHandler(tagQuery));
+		}
+		// the metadata responses have no item content to verify
+		channel.pipeline().addLast(new AtmosResponseHandler<>(
+						this, verifyFlag && !opMode.isMetadata(), fsAccess, objIdsOutput, nodeBalancer, concurrencyLimiter,
+						dirCache, pathFanOut));
+		// the outbound handler added last sees the writes first
+		channel.pipeline().addLast(new AtmosPendingAuthHandler());
+	}
+
+	/**
+	 Atmos doesn't support the server-side copy, so the copy operation is failed w/ the client failure status before its
+	 request is built (unless the rename mode is set): nothing is written, the connection is released by the completion,
+	 the promise is not completed as the request is not sent
+	 */
+	@Override
+	protected void sendRequest(final Channel channel, final ChannelPromise channelPromise, final O op) {
+		if (!AtmosOpMode.RENAME.equals(opMode) && isCopyOp(op)) {
+			Loggers.ERR.debug("The server-side copy is not supported, use the rename op mode: {}", op);
+			op.status(Operation.Status.RESP_FAIL_CLIENT);
+			complete(channel, op);
+		} else {
+			super.sendRequest(channel, channelPromise, op);
+		}
+	}
+
+	private boolean isCopyOp(final O op) {
+		return CREATE.equals(op.type()) && !(op instanceof CompositeDataOperation) && !(op instanceof PartialDataOperation)
+						&& isCopy(op.srcPath(), op.dstPath());
+	}
+
+	/**
+	 The operation request is sent after the subtenant for the operation credential is created (if not yet), w/o
+	 blocking: the request is held by the {@link AtmosPendingAuthHandler} and signed again when the subtenant is created
+	 */
+	@Override
+	protected HttpRequest httpRequest(final O op, final String nodeAddr)
+					throws URISyntaxException {
+		PENDING_SUBTENANT.set(NO_PENDING_SUBTENANT);
+		try {
+			final var httpRequest = timedHttpRequest(op, nodeAddr);
+			final var pendingSubtenant = PENDING_SUBTENANT.get();
+			if (pendingSubtenant == NO_PENDING_SUBTENANT) {
+				return httpRequest;
+			}
+			return new AtmosPendingAuthRequest(
+							httpRequest, pendingSubtenant.future,
+							httpHeaders -> applyAuthHeaders(
+											httpHeaders, pendingSubtenant.httpMethod, pendingSubtenant.dstUriPath,
+											pendingSubtenant.credential));
+		} finally {
+			PENDING_SUBTENANT.remove();
+		}
+	}
+
+	private HttpRequest timedHttpRequest(final O op, final String nodeAddr)
+					throws URISyntaxException {
+		if (phaseHistograms == null) {
+			return metadataHttpRequest(op, nodeAddr);
+		}
+		final var signNanos = SIGN_NANOS.get();
+		signNanos[0] = -1;
+		final var httpRequest = metadataHttpRequest(op, nodeAddr);
+		phaseHistograms.recordSigning(op.type(), signNanos[0]); // not signed if negative
+		return httpRequest;
+	}
+
+	private HttpRequest metadataHttpRequest(final O op, final String nodeAddr)
+					throws URISyntaxException {
+		if (metadataGenerator == null && writeChecksum == null) {
+			return pooledSubtenantHttpRequest(op, nodeAddr);
+		}
+		REQUEST_OP.set(op);
+		try {
+			return pooledSubtenantHttpRequest(op, nodeAddr);
+		} finally {
+			REQUEST_OP.remove();
+		}
+	}
+
+	private HttpRequest pooledSubtenantHttpRequest(final O op, final String nodeAddr)
+					throws URISyntaxException {
+		if (subtenantPool == null || subtenantPool.isEmpty() || !(op instanceof DataOperation)) {
+			return dataOrStripeHttpRequest(op, nodeAddr);
+		}
+		final DataItem item;
+		if (op instanceof PartialDataOperation) { // the same subtenant for all parts
+			item = ((PartialDataOperation<? extends DataItem>) op).parent().item();
+		} else {
+			item = ((DataOperation<? extends DataItem>) op).item();
+		}
+		POOLED_SUBTENANT_ID.set(subtenantPool.subtenantId(item.offset()));
+		try {
+			return dataOrStripeHttpRequest(op, nodeAddr);
+		} finally {
+			POOLED_SUBTENANT_ID.remove();
+		}
+	}
+
+	private HttpRequest dataOrStripeHttpRequest(final O op, final String nodeAddr)
+					throws URISyntaxException {
+		if (op instanceof CompositeDataOperation) {
+			return stripedHttpRequest((CompositeDataOperation<? extends DataItem>) op, nodeAddr);
+		} else if (op instanceof PartialDataOperation) {
+			final var partialOp = (PartialDataOperation<? extends DataItem>) op;
+			switch (op.type()) {
+			case CREATE:
+			case UPDATE:
+				return stripeRequest(partialOp, HttpMethod.PUT, nodeAddr);
+			case READ:
+				return stripeRequest(partialOp, HttpMethod.GET, nodeAddr);
+			default:
+				// noop, delete: nothing to do with the part but to check it's readable
+				return stripeRequest(partialOp, HttpMethod.HEAD, nodeAddr);
+			}
+		} else if (CREATE.equals(op.type()) && isCopy(op.srcPath(), op.dstPath())) {
+			return renameRequest(op, nodeAddr); // the copy is failed before in the other modes
+		} else if (tagQuery != null && OpType.READ.equals(op.type())) {
+			return tagQueryRequest(op, nodeAddr);
+		} else if (opMode.isMetadata() && isMetadataOpType(op.type())) {
+			return metadataRequest(op, nodeAddr);
+		} else {
+			if (CREATE.equals(op.type())) {
+				return withParentDirs(
+								op.item(), op.srcPath(), op.dstPath(), op.credential(), super.httpRequest(op, nodeAddr));
+			}
+			return super.httpRequest(op, nodeAddr);
+		}
+	}
+
+	/**
+	 The composite operation request before the parts are processed (initial state) either after all the parts are
+	 acknowledged (final state)
+	 */
+	private HttpRequest stripedHttpRequest(
+					final CompositeDataOperation<? extends DataItem> compositeOp, final String nodeAddr) {
+		final var done = compositeOp.allSubOperationsDone();
+		switch (compositeOp.type()) {
+		case CREATE:
+			if (done) {
+				return stripesRequest(compositeOp, HttpMethod.HEAD, nodeAddr);
+			}
+			// create the empty object, the parts will be written by the sub-operations
+			return withParentDirs(
+							(I) compositeOp.item(), compositeOp.srcPath(), compositeOp.dstPath(), compositeOp.credential(),
+							stripedCreateInitRequest(compositeOp, nodeAddr));
+		case DELETE:
+			// the parts can't be deleted separately, so the object is deleted once when all the parts are checked
+			return stripesRequest(compositeOp, done ? HttpMethod.DELETE : HttpMethod.HEAD, nodeAddr);
+		default:
+			// read, update, noop: check the object exists, the parts are processed by the sub-operations
+			return stripesRequest(compositeOp, HttpMethod.HEAD, nodeAddr);
+		}
+	}
+
+	/**
+	 @return the destination path of the new file: the leaf directory of the fan-out tree under the given destination path
+	 if the fan-out is enabled. The leaf is computed from the original destination path each time, the operation is not
+	 modified, so the retried request is not spread again
+	 */
+	private String fileDstPath(final I item, final String srcPath, final String dstPath) {
+		return pathFanOut == null ? dstPath : pathFanOut.fileDstPath(srcPath, dstPath, item.name());
+	}
+
+	/**
+	 @return the file create request to be sent after the missing parent directories are created (by the
+	 {@link AtmosParentDirsHandler}) if the directories auto creation is enabled. The directories are created w/ the
+	 operation credential and the pooled subtenant (if any)
+	 */
+	private HttpRequest withParentDirs(
+					final I item, final String srcPath, final String dstPath, final Credential credential,
+					final HttpRequest createReq) {
+		if (dirCache == null) {
+			return createReq;
+		}
+		final var parentDirs = dirCache.missing(
+						AtmosDirectoryCache.parentDir(fileDstPath(item, srcPath, dstPath), item.name()));
+		return parentDirs.isEmpty() ?
+						createReq :
+						new AtmosParentDirsRequest(createReq, parentDirs, credential, POOLED_SUBTENANT_ID.get());
+	}
+
+	static boolean isCopy(final String srcPath, final String dstPath) {
+		return srcPath != null && !srcPath.isEmpty() && !srcPath.equals(dstPath);
+	}
+
+	/**
+	 Move the object from the source path to the destination path in the namespace
+	 */
+	private HttpRequest renameRequest(final O op, final String nodeAddr) {
+		final var item = op.item();
+		final var uri = dataUriPath(item, op.srcPath(), null, CREATE) + QUERY_RENAME;
+		final var httpHeaders = new DefaultHttpHeaders();
+		if (nodeAddr != null) {
+			httpHeaders.set(HttpHeaderNames.HOST, nodeAddr);
+		}
+		httpHeaders.set(HttpHeaderNames.CONTENT_LENGTH, 0);
+		httpHeaders.set(KEY_X_EMC_FILESYSTEM_ACCESS_ENABLED, Boolean.toString(fsAccess));
+		// the new path is relative to the namespace root
+		final var dstUriPath = dataUriPath(item, op.srcPath(), op.dstPath(), CREATE); // not spread
+		httpHeaders.set(KEY_X_EMC_PATH, dstUriPath.substring(NS_URI_BASE.length() + 1));
+		applyDynamicHeaders(httpHeaders);
+		applySharedHeaders(httpHeaders);
+		applyAuthHeaders(httpHeaders, HttpMethod.POST, uri, op.credential());
+		return new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, uri, httpHeaders);
+	}
+
+	private static boolean isMetadataOpType(final OpType opType) {
+		return OpType.READ.equals(opType) || OpType.UPDATE.equals(opType) || OpType.DELETE.equals(opType);
+	}
+
+	/** @return true if the operation is done w/ the metadata request in the metadata mode, i.e. not striped */
+	private static boolean isMetadataRequestOp(final Operation<?> op) {
+		return op instanceof DataOperation && !(op instanceof CompositeDataOperation)
+						&& !(op instanceof PartialDataOperation);
+	}
+
+	/**
+	 Read the metadata (user or system), update either delete the user metadata of the object
+	 */
+	private HttpRequest metadataRequest(final O op, final String nodeAddr) {
+		final var opType = op.type();
+		final HttpMethod httpMethod;
+		final String query;
+		final var httpHeaders = new DefaultHttpHeaders();
+		if (nodeAddr != null) {
+			httpHeaders.set(HttpHeaderNames.HOST, nodeAddr);
+		}
+		httpHeaders.set(HttpHeaderNames.CONTENT_LENGTH, 0);
+		if (fsAccess) {
+			httpHeaders.set(KEY_X_EMC_FILESYSTEM_ACCESS_ENABLED, Boolean.toString(fsAccess));
+		}
+		switch (opType) {
+		case READ:
+			httpMethod = HttpMethod.GET;
+			query = AtmosOpMode.SYSTEM_METADATA.equals(opMode) ? QUERY_METADATA_SYSTEM : QUERY_METADATA_USER;
+			break;
+		case UPDATE:
+			httpMethod = HttpMethod.POST;
+			query = QUERY_METADATA_USER;
+			opMetadataGenerator.apply(httpHeaders);
+			break;
+		case DELETE:
+			httpMethod = HttpMethod.DELETE;
+			query = QUERY_METADATA_USER;
+			httpHeaders.set(KEY_X_EMC_TAGS, opMetadataGenerator.keys());
+			break;
+		default:
+			throw new AssertionError("Unsupported metadata operation type: " + opType);
+		}
+		final var uri = dataUriPath(op.item(), op.srcPath(), op.dstPath(), opType) + query;
+		applyDynamicHeaders(httpHeaders);
+		applySharedHeaders(httpHeaders);
+		applyAuthHeaders(httpHeaders, httpMethod, uri, op.credential());
+		return new AtmosMetadataRequest(httpMethod, uri, httpHeaders);
+	}
+
+	/**
+	 Request the next page of the objects having the next listable tag
+	 */
+	private HttpRequest tagQueryRequest(final O op, final String nodeAddr) {
+		final var cursor = tagQuery.nextCursor();
+		final var httpHeaders = new DefaultHttpHeaders();
+		if (nodeAddr != null) {
+			httpHeaders.set(HttpHeaderNames.HOST, nodeAddr);
+		}
+		httpHeaders.set(HttpHeaderNames.CONTENT_LENGTH, 0);
+		httpHeaders.set(KEY_X_EMC_TAGS, tagQuery.tag(cursor.tagIndex));
+		final var pageSize = tagQuery.pageSize();
+		if (pageSize > 0) {
+			httpHeaders.set(KEY_X_EMC_LIMIT, pageSize);
+		}
+		final var token = cursor.token();
+		if (token != null) {
+			httpHeaders.set(KEY_X_EMC_TOKEN, token);
+		}
+		applyDynamicHeaders(httpHeaders);
+		applySharedHeaders(httpHeaders);
+		applyAuthHeaders(httpHeaders, HttpMethod.GET, OBJ_URI_BASE, op.credential());
+		return new AtmosTagQueryRequest(cursor, OBJ_URI_BASE, httpHeaders);
+	}
+
+	/**
+	 Set the x-emc-wschecksum header for the create and append requests. Invoked before the request is signed, the
+	 content length and the range headers are set already. The ranged updates (not append) are not supported by Atmos
+	 write checksums so the header is not set for them.
+	 */
+	private void applyWriteChecksumHeader(
+					final HttpHeaders httpHeaders, final DataOperation<? extends DataItem> dataOp) {
+		final var item = dataOp.item();
+		final String checksum;
+		try {
+			switch (dataOp.type()) {
+			case CREATE:
+				final var size = contentLength(httpHeaders);
+				checksum = size < 0 ? null : writeChecksum.create(item, size);
+				break;
+			case UPDATE:
+				final var rangeStart = rangeStart(httpHeaders.get(HttpHeaderNames.RANGE));
+				final var appendSize = contentLength(httpHeaders);
+				if (rangeStart >= 0 && rangeStart == size(item) && appendSize >= 0) {
+					checksum = writeChecksum.append(item, rangeStart, appendSize);
+				} else {
+					checksum = null;
+				}
+				break;
+			case DELETE:
+				// no header, just drop the digest state of the deleted object
+				writeChecksum.forget(item);
+				checksum = null;
+				break;
+			default:
+				checksum = null;
+			}
+		} catch (final IOException e) {
+			LogUtil.exception(Level.WARN, e, "Failed to calculate the write checksum for the item \"{}\"", item);
+			return;
+		}
+		if (checksum != null) {
+			httpHeaders.set(KEY_X_EMC_WSCHECKSUM, checksum);
+		}
+	}
+
+	/** @return the content length header value, -1 if absent or invalid */
+	private static long contentLength(final HttpHeaders httpHeaders) {
+		final var value = httpHeaders.get(HttpHeaderNames.CONTENT_LENGTH);
+		if (value == null) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(value);
+		} catch (final NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/** @return the start position of the single byte range, -1 if the range is not single or absent */
+	private static long rangeStart(final String range) {
+		if (range == null || !range.startsWith(RANGE_PREFIX) || range.indexOf(',') > 0) {
+			return -1;
+		}
+		final var rangeSepPos = range.indexOf('-', RANGE_PREFIX.length());
+		if (rangeSepPos <= RANGE_PREFIX.length()) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(range.substring(RANGE_PREFIX.length(), rangeSepPos));
+		} catch (final NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private HttpRequest stripedCreateInitRequest(
+					final CompositeDataOperation<? extends DataItem> compositeOp, final String nodeAddr) {
+		final var item = compositeOp.item();
+		final var httpMethod = HttpMethod.POST;
+		final var uriPath = dataUriPath(
+						(I) item, compositeOp.srcPath(), compositeOp.dstPath(), CREATE);
+		final var httpHeaders = new DefaultHttpHeaders();
+		if (nodeAddr != null) {
+			httpHeaders.set(HttpHeaderNames.HOST, nodeAddr);
+		}
+		httpHeaders.set(HttpHeaderNames.CONTENT_LENGTH, 0);
+		applyMetaDataHeaders(httpHeaders);
+		applyDynamicHeaders(httpHeaders);
+		applySharedHeaders(httpHeaders);
+		applyAuthHeaders(httpHeaders, httpMethod, uriPath, compositeOp.credential());
+		return new DefaultHttpRequest(HttpVersion.HTTP_1_1, httpMethod, uriPath, httpHeaders);
+	}
+
+	/**
+	 Write (ranged update) either read (ranged read) the object part. The part content is verified against its own
+	 position in the object so the parts don't need to be reassembled. The striped create part is written after the
+	 preceding parts, see {@link AtmosStripesOrder}.
+	 */
+	private HttpRequest stripeRequest(
+					final PartialDataOperation<? extends DataItem> partialOp,
+					final HttpMethod httpMethod,
+					final String nodeAddr) {
+		final var parentOp = partialOp.parent();
+		final var parentItem = parentOp.item(); // the part item name is not updated w/ the Atmos object id
+		final var partItem = partialOp.item();
+		final var uriPath = dataUriPath((I) parentItem, parentOp.srcPath(), parentOp.dstPath(), OpType.UPDATE);
+		final var httpHeaders = new DefaultHttpHeaders();
+		if (nodeAddr != null) {
+			httpHeaders.set(HttpHeaderNames.HOST, nodeAddr);
+		}
+		final var partPos = partItem.offset() - parentItem.offset();
+		try {
+			final var partSize = size(partItem);
+			httpHeaders.set(HttpHeaderNames.CONTENT_LENGTH, HttpMethod.PUT.equals(httpMethod) ? partSize : 0);
+			httpHeaders.set(HttpHeaderNames.RANGE, "bytes=" + partPos + '-' + (partPos + partSize - 1));
+		} catch (final IOException e) {
+			throw new AssertionError(e);
+		}
+		applyDynamicHeaders(httpHeaders);
+		applySharedHeaders(httpHeaders);
+		applyAuthHeaders(httpHeaders, httpMethod, uriPath, partialOp.credential());
+		final var req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, httpMethod, uriPath, httpHeaders);
+		if (CREATE.equals(partialOp.type())) {
+			return new AtmosStripeRequest(req, stripesOrder.written(parentOp, partPos));
+		}
+		return req;
+	}
+
+	/** Release the next part write of the striped create */
+	private void stripeCompleted(final PartialDataOperation<? extends DataItem> partialOp) {
+		final var parentOp = partialOp.parent();
+		final var parentItem = parentOp.item();
+		final var partItem = partialOp.item();
+		try {
+			stripesOrder.partWritten(
+							parentOp, partItem.offset() - parentItem.offset() + size(partItem), size(parentItem),
+							Operation.Status.SUCC.equals(partialOp.status()));
+		} catch (final IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 Check the object exists (before the parts are processed) either is complete (after all parts are acknowledged), or
+	 delete the object after all the parts are checked
+	 */
+	private HttpRequest stripesRequest(
+					final CompositeDataOperation<? extends DataItem> compositeOp,
+					final HttpMethod httpMethod,
+					final String nodeAddr) {
+		final var item = compositeOp.item();
+		final var opType = HttpMethod.DELETE.equals(httpMethod) ? OpType.DELETE : OpType.NOOP;
+		final var uriPath = dataUriPath((I) item, compositeOp.srcPath(), compositeOp.dstPath(), opType);
+		final var httpHeaders = new DefaultHttpHeaders();
+		if (nodeAddr != null) {
+			httpHeaders.set(HttpHeaderNames.HOST, nodeAddr);
+		}
+		httpHeaders.set(HttpHeaderNames.CONTENT_LENGTH, 0);
+		applyDynamicHeaders(httpHeaders);
+		applySharedHeaders(httpHeaders);
+		applyAuthHeaders(httpHeaders, httpMethod, uriPath, compositeOp.credential());
+		return new DefaultHttpRequest(HttpVersion.HTTP_1_1, httpMethod, uriPath, httpHeaders);
+	}
+
+	private static long size(final DataItem item)
+					throws IOException {
+		return item.size();
 	}
 
 	@Override
@@ -203,13 +1325,27 @@ public class AtmosStorageDriver<I extends Item, O extends Operation<I>>
 
 	@Override
 	protected final HttpMethod pathHttpMethod(final OpType opType) {
-		throw new AssertionError("Not implemented yet");
+		switch (opType) {
+		case NOOP:
+			return HttpMethod.HEAD;
+		case CREATE:
+			return HttpMethod.POST;
+		case READ:
+			return HttpMethod.GET;
+		case DELETE:
+			return HttpMethod.DELETE;
+		default:
+			throw new AssertionError("Unsupported directory operation type: " + opType);
+		}
 	}
 
 	@Override
 	protected final String dataUriPath(
 					final I item, final String srcPath, final String dstPath, final OpType opType) {
 		if (fsAccess) {
+			if (CREATE.equals(opType)) {
+				return NS_URI_BASE + super.dataUriPath(item, srcPath, fileDstPath(item, srcPath, dstPath), opType);
+			}
 			return NS_URI_BASE + super.dataUriPath(item, srcPath, dstPath, opType);
 		} else if (CREATE.equals(opType)) {
 			return OBJ_URI_BASE;
@@ -231,11 +1367,29 @@ public class AtmosStorageDriver<I extends Item, O extends Operation<I>>
 	@Override
 	protected final String pathUriPath(
 					final I item, final String srcPath, final String dstPath, final OpType opType) {
-		throw new AssertionError("Not implemented yet");
+		if (!fsAccess) {
+			throw new AssertionError("The directories are supported only if the filesystem access is enabled");
+		}
+		// the trailing slash means the directory for the namespace interface
+		return NS_URI_BASE + super.dataUriPath(item, srcPath, dstPath, opType) + '/';
 	}
 
 	@Override
-	protected final void applyMetaDataHeaders(final HttpHeaders httpHeaders) {}
+	protected final void applyMetaDataHeaders(final HttpHeaders httpHeaders) {
+		final var op = REQUEST_OP.get();
+		if (op == null) {
+			return;
+		}
+		final var opType = op.type();
+		if (metadataGenerator != null && (CREATE.equals(opType) || OpType.UPDATE.equals(opType))) {
+			metadataGenerator.apply(httpHeaders);
+		}
+		// the striped operations are not supported by the write checksums
+		if (writeChecksum != null && op instanceof DataOperation && !(op instanceof CompositeDataOperation)
+						&& !(op instanceof PartialDataOperation)) {
+			applyWriteChecksumHeader(httpHeaders, (DataOperation<? extends DataItem>) op);
+		}
+	}
 
 	@Override
 	protected final void applyAuthHeaders(
@@ -243,95 +1397,226 @@ public class AtmosStorageDriver<I extends Item, O extends Operation<I>>
 					final HttpMethod httpMethod,
 					final String dstUriPath,
 					final Credential credential) {
+		final var pooledSubtenantId = POOLED_SUBTENANT_ID.get();
+		final Credential signCredential;
 		final String authToken;
 		final String uid;
 		final String secret;
 		if (credential != null) {
-			authToken = authTokens.get(credential);
+			signCredential = credential;
+			authToken = pooledSubtenantId == null ? authTokens.get(credential) : pooledSubtenantId;
 			uid = credential.getUid();
 			secret = credential.getSecret();
 		} else if (this.credential != null) {
-			authToken = authTokens.get(this.credential);
+			signCredential = this.credential;
+			authToken = pooledSubtenantId == null ? authTokens.get(this.credential) : pooledSubtenantId;
 			uid = this.credential.getUid();
 			secret = this.credential.getSecret();
 		} else {
+			signCredential = null;
 			authToken = null;
 			uid = null;
 			secret = null;
 		}
 
+		if (authToken == null && signCredential != null && PENDING_SUBTENANT.get() != null
+						&& !dstUriPath.startsWith(SUBTENANT_URI_BASE)) {
+			// the operation request is being built, it's signed again when the subtenant is created
+			PENDING_SUBTENANT.set(
+							new PendingSubtenant(subtenantFuture(signCredential), credential, httpMethod, dstUriPath));
+		}
+
 		if (uid != null && !uid.isEmpty()) {
 			if (authToken != null && !authToken.isEmpty() && !dstUriPath.equals(SUBTENANT_URI_BASE)) {
-				httpHeaders.set(KEY_X_EMC_UID, authToken + '/' + uid);
+				httpHeaders.set(KEY_X_EMC_UID, uidHeaderValue(authToken, uid));
 			} else {
 				httpHeaders.set(KEY_X_EMC_UID, uid);
 			}
 		}
 
 		if (secret != null && !secret.isEmpty()) {
-			final var mac = MAC_BY_SECRET.get().computeIfAbsent(secret, GET_MAC_BY_SECRET);
-			final var canonicalForm = getCanonical(httpHeaders, httpMethod, dstUriPath);
-			final byte sigData[] = mac.doFinal(canonicalForm.getBytes());
-			httpHeaders.set(KEY_X_EMC_SIGNATURE, BASE64_ENCODER.encodeToString(sigData));
+			final var signStart = phaseHistograms == null ? 0 : System.nanoTime();
+			final var mac = macCache.mac(signCredential);
+			if (mac == null) {
+				return; // failed to init, logged already
+			}
+			final var buffCanonical = BUFF_CANONICAL.get();
+			writeCanonical(buffCanonical, httpHeaders, httpMethod, dstUriPath);
+			httpHeaders.set(KEY_X_EMC_SIGNATURE, buffCanonical.sign(mac));
+			if (phaseHistograms != null) {
+				// the operation request is signed the last, e.g. after its parent directory creation request
+				SIGN_NANOS.get()[0] = System.nanoTime() - signStart;
+			}
 		}
 	}
 
+	/** @return the cached "subtenant/uid" value, the token and the uid instances are reused for the same credential */
+	private static String uidHeaderValue(final String authToken, final String uid) {
+		final var slots = UID_HEADER_VALUES.get();
+		final var i = (31 * System.identityHashCode(authToken) + System.identityHashCode(uid))
+						& (UID_HEADER_VALUE_SLOT_COUNT - 1);
+		var slot = slots[i];
+		if (slot == null || slot[0] != authToken || slot[1] != uid) {
+			slot = new String[] { authToken, uid, authToken + '/' + uid };
+			slots[i] = slot;
+		}
+		return slot[2];
+	}
+
 	protected String getCanonical(
 					final HttpHeaders httpHeaders, final HttpMethod httpMethod, final String dstUriPath) {
 		final var buffCanonical = BUFF_CANONICAL.get();
-		buffCanonical.setLength(0); // reset/clear
-		buffCanonical.append(httpMethod.name());
+		writeCanonical(buffCanonical, httpHeaders, httpMethod, dstUriPath);
+		return buffCanonical.toString();
+	}
 
-		for (final var headerName : HEADERS_CANONICAL) {
-			if (httpHeaders.contains(headerName)) {
-				for (final var headerValue : httpHeaders.getAll(headerName)) {
-					buffCanonical.append('\n').append(headerValue);
-				}
-			} else if (sharedHeaders != null && sharedHeaders.contains(headerName)) {
-				buffCanonical.append('\n').append(sharedHeaders.get(headerName));
-			} else {
+	private void writeCanonical(
+					final AtmosCanonicalBuffer buffCanonical,
+					final HttpHeaders httpHeaders,
+					final HttpMethod httpMethod,
+					final String dstUriPath) {
+		buffCanonical.reset();
+		buffCanonical.append(httpMethod.asciiName());
+
+		final var shared = sharedCanonical();
+		// x-emc-*: the shared ones are sorted already, merge the request specific ones only
+		buffCanonical.putEmcHeaders(shared);
+		putRequestHeaders(buffCanonical, httpHeaders);
+
+		CharSequence sharedValue;
+		for (var i = 0; i < HEADERS_CANONICAL.length; i++) {
+			// all the request header values (if any) replace the shared header value
+			if (!buffCanonical.appendCanonicalValues(i)) {
 				buffCanonical.append('\n');
+				sharedValue = shared.canonicalValues[i];
+				if (sharedValue != null) {
+					buffCanonical.append(sharedValue);
+				}
 			}
 		}
 
 		buffCanonical.append('\n').append(dstUriPath);
+		buffCanonical.appendEmcHeaders();
+
+		if (Loggers.MSG.isTraceEnabled()) {
+			Loggers.MSG.trace("Canonical representation:\n{}", buffCanonical);
+		}
+	}
 
-		// x-emc-*
-		String headerName;
-		Map<String, String> sortedHeaders = new TreeMap<>();
-		if (sharedHeaders != null) {
-			for (final var header : sharedHeaders) {
-				headerName = header.getKey().toLowerCase();
-				if (headerName.startsWith(PREFIX_KEY_X_EMC) && !headerName.equals(KEY_X_EMC_SIGNATURE)) {
-					sortedHeaders.put(headerName, header.getValue());
+	private AtmosSharedCanonical sharedCanonical() {
+		var shared = sharedCanonical;
+		if (shared == null || !shared.isValidFor(sharedHeaders)) {
+			shared = AtmosSharedCanonical.compile(sharedHeaders);
+			sharedCanonical = shared;
+		}
+		return shared;
+	}
+
+	/** Should be invoked after the shared headers modification to recompile the shared part of the canonical form */
+	protected final void sharedHeadersChanged() {
+		sharedCanonical = null;
+	}
+
+	/**
+	 Collect the canonical headers values and the x-emc-* headers of the request in the single pass over all the request
+	 headers, the repeated canonical header values are kept in the order
+	 */
+	private static void putRequestHeaders(final AtmosCanonicalBuffer buffCanonical, final HttpHeaders httpHeaders) {
+		final var headersIter = httpHeaders.iteratorCharSequence();
+		Map.Entry<CharSequence, CharSequence> header;
+		CharSequence headerName;
+		while (headersIter.hasNext()) {
+			header = headersIter.next();
+			headerName = header.getKey();
+			if (startsWithIgnoreCase(headerName, PREFIX_KEY_X_EMC)) {
+				if (!contentEqualsIgnoreCase(headerName, KEY_X_EMC_SIGNATURE)) {
+					buffCanonical.putEmcHeader(headerName, header.getValue());
+				}
+			} else {
+				for (var i = 0; i < HEADERS_CANONICAL.length; i++) {
+					if (contentEqualsIgnoreCase(headerName, HEADERS_CANONICAL[i])) {
+						buffCanonical.putCanonicalValue(i, header.getValue());
+						break;
+					}
 				}
 			}
 		}
-		for (final var header : httpHeaders) {
-			headerName = header.getKey().toLowerCase();
-			if (headerName.startsWith(PREFIX_KEY_X_EMC) && !headerName.equals(KEY_X_EMC_SIGNATURE)) {
-				sortedHeaders.put(headerName, header.getValue());
-			}
+	}
+
+	@Override
+	public void complete(final Channel channel, final O op) {
+		if (op instanceof PartialDataOperation && CREATE.equals(op.type())) {
+			stripeCompleted((PartialDataOperation<? extends DataItem>) op);
 		}
-		for (final var sortedHeader : sortedHeaders.entrySet()) {
-			buffCanonical
-							.append('\n')
-							.append(sortedHeader.getKey())
-							.append(':')
-							.append(sortedHeader.getValue());
+		if (phaseHistograms != null) {
+			phaseHistograms.recordCompleted(op); // before the base hands the operation over to be reused
 		}
-
-		if (Loggers.MSG.isTraceEnabled()) {
-			Loggers.MSG.trace("Canonical representation:\n{}", buffCanonical);
+		if (opMode.isMetadata() && OpType.UPDATE.equals(op.type()) && isMetadataRequestOp(op)) {
+			// the item content is not changed by the metadata update, so no updated ranges should be committed to the item
+			for (final var rangesMask : ((DataOperation<? extends DataItem>) op).markedRangesMaskPair()) {
+				rangesMask.clear();
+			}
+		}
+		super.complete(channel, op);
+		if (concurrencyLimiter != null) {
+			concurrencyLimiter.permitReleased(); // the permit is released by the base
 		}
-
-		return buffCanonical.toString();
 	}
 
 	@Override
 	protected final void applyCopyHeaders(final HttpHeaders httpHeaders, final String srcPath)
 					throws URISyntaxException {}
 
+	/** Output the error codes, the concurrency limit and the latency phases stats (cumulative since the start) */
+	private void logStats() {
+		final var errorCodeCountersStr = errorCodeCounters.toString();
+		if (!errorCodeCountersStr.isEmpty()) {
+			Loggers.MSG.info("{}: error codes: {}", this, errorCodeCountersStr);
+		}
+		if (concurrencyLimiter != null) {
+			Loggers.MSG.info("{}: {}", this, concurrencyLimiter);
+		}
+		if (phaseHistograms != null) {
+			Loggers.MSG.info("{}: latency phases (microseconds):{}", this, phaseHistograms);
+		}
+	}
+
+	@Override
+	protected void doClose() throws IOException {
+		listingCursors.values().forEach(AtmosListing::cancel);
+		listingCursors.clear();
+		synchronized (this) {
+			if (objIdsInput != null) {
+				objIdsInput.close();
+				objIdsInput = null;
+			}
+		}
+		if (objIdsOutput != null) {
+			objIdsOutput.close();
+			Loggers.MSG.info("{}: {}", this, objIdsOutput);
+		}
+		if (subtenantPool != null && subtenantPoolCleanup) {
+			subtenantPool.deleteAll(this::deleteSubtenant);
+		}
+		if (statsExecutor != null) {
+			statsExecutor.shutdownNow();
+		}
+		logStats();
+		if (tagQuery != null) {
+			Loggers.MSG.info("{}: {}", this, tagQuery);
+		}
+		if (nodeBalancer != null) {
+			nodeBalancer.close();
+			Loggers.MSG.info("{}: storage nodes: {}", this, nodeBalancer);
+		}
+		if (macCache.missCount() > 0) {
+			Loggers.MSG.info("{}: {}", this, macCache);
+		}
+		backgroundExecutor.shutdownNow();
+		nodeClient.close();
+		super.doClose();
+	}
+
 	@Override
 	public final String toString() {
 		return String.format(super.toString(), "atmos");
@@ -0,0 +1,24 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpRequest;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ The striped create part write request which should be sent after the preceding parts are written, keeps the preceding
+ parts future for the {@link AtmosStripesOrderHandler}
+ */
+final class AtmosStripeRequest
+				extends DefaultHttpRequest {
+
+	final CompletableFuture<Boolean> precedingPartsWritten;
+
+	/**
+	 @param req the ranged update request w/o the content
+	 @param precedingPartsWritten completed when the object is written up to the part position
+	 */
+	AtmosStripeRequest(final HttpRequest req, final CompletableFuture<Boolean> precedingPartsWritten) {
+		super(req.protocolVersion(), req.method(), req.uri(), req.headers());
+		this.precedingPartsWritten = precedingPartsWritten;
+	}
+}
@@ -0,0 +1,53 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ The write order of the striped object create parts. Atmos rejects the ranged update starting beyond the current end of
+ the object, while the striped create starts from the empty object, so each part may be written only after all the
+ preceding parts are. The part write waits for the object to be written up to the part position asynchronously.
+ */
+final class AtmosStripesOrder {
+
+	private static final CompletableFuture<Boolean> WRITTEN = CompletableFuture.completedFuture(true);
+
+	/** The written object positions futures by the striped create operation (identity) */
+	private final Map<Object, Map<Long, CompletableFuture<Boolean>>> writtenPositions = new ConcurrentHashMap<>();
+
+	/**
+	 @param stripedOp the striped create operation
+	 @param pos the part position in the object
+	 @return the future completed with true when the object is written up to the given position, or with false if a
+	 preceding part write failed
+	 */
+	CompletableFuture<Boolean> written(final Object stripedOp, final long pos) {
+		if (pos == 0) {
+			return WRITTEN;
+		}
+		return writtenPositions
+						.computeIfAbsent(stripedOp, op -> new ConcurrentHashMap<>())
+						.computeIfAbsent(pos, p -> new CompletableFuture<>());
+	}
+
+	/**
+	 Report the part write result, the next part write is released
+	 @param stripedOp the striped create operation
+	 @param end the part end position (exclusive) in the object
+	 @param size the object size
+	 @param success true if the part is written, false otherwise
+	 */
+	void partWritten(final Object stripedOp, final long end, final long size, final boolean success) {
+		if (end < size) {
+			written(stripedOp, end).complete(success);
+		} else { // the last part, all the preceding parts are done
+			writtenPositions.remove(stripedOp);
+		}
+	}
+
+	/** @return the count of the striped creates being written */
+	int pendingCount() {
+		return writtenPositions.size();
+	}
+}
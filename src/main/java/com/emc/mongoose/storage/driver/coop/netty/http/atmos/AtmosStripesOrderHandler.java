@@ -0,0 +1,63 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.PendingWriteQueue;
+import java.nio.channels.ClosedChannelException;
+
+/**
+ Holds the {@link AtmosStripeRequest} and its content until the preceding parts of the object are written, w/o blocking.
+ If a preceding part write fails, the request is sent anyway, so the operation fails with the storage response. Per
+ channel instance.
+ */
+final class AtmosStripesOrderHandler
+				extends ChannelDuplexHandler {
+
+	private PendingWriteQueue pendingWrites = null;
+	private boolean waiting = false;
+
+	@Override
+	public final void handlerAdded(final ChannelHandlerContext ctx) {
+		pendingWrites = new PendingWriteQueue(ctx);
+	}
+
+	@Override
+	public final void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+		if (waiting) {
+			pendingWrites.add(msg, promise);
+		} else if (msg instanceof AtmosStripeRequest && !((AtmosStripeRequest) msg).precedingPartsWritten.isDone()) {
+			waiting = true;
+			pendingWrites.add(msg, promise);
+			((AtmosStripeRequest) msg).precedingPartsWritten.whenCompleteAsync(
+							(written, e) -> releaseWrites(ctx), ctx.executor());
+		} else {
+			ctx.write(msg, promise);
+		}
+	}
+
+	@Override
+	public final void flush(final ChannelHandlerContext ctx) {
+		if (!waiting) {
+			ctx.flush();
+		} // else the queued writes are flushed when released
+	}
+
+	private void releaseWrites(final ChannelHandlerContext ctx) {
+		if (waiting) { // else the channel is closed
+			waiting = false;
+			pendingWrites.removeAndWriteAll();
+			ctx.flush();
+		}
+	}
+
+	@Override
+	public final void channelInactive(final ChannelHandlerContext ctx)
+					throws Exception {
+		if (waiting) {
+			waiting = false;
+			pendingWrites.removeAndFailAll(new ClosedChannelException());
+		}
+		super.channelInactive(ctx);
+	}
+}
@@ -0,0 +1,102 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.github.akurilov.commons.lang.Exceptions.throwUnchecked;
+
+import com.emc.mongoose.base.logging.Loggers;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ The subtenants created before the load step start. The data operations are distributed over the pooled subtenants by
+ the item id which is stable between the load steps, so the sequentially generated item ids are distributed in the round
+ robin order.
+ */
+final class AtmosSubtenantPool {
+
+	private final String[] subtenantIds;
+	private final int concurrency;
+
+	private AtmosSubtenantPool(final String[] subtenantIds, final int concurrency) {
+		this.subtenantIds = subtenantIds;
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 Create the subtenants concurrently and wait until all are created
+	 @param size the count of the subtenants to create
+	 @param concurrency the max count of the concurrent subtenant creation requests
+	 @param subtenantCreateFunc the function creating the subtenant, returns null if failed
+	 @return the pool of the subtenants successfully created
+	 */
+	static AtmosSubtenantPool create(
+					final int size, final int concurrency, final Supplier<String> subtenantCreateFunc) {
+		final var executor = Executors.newFixedThreadPool(Math.min(size, concurrency));
+		try {
+			final List<CompletableFuture<String>> futures = new ArrayList<>(size);
+			for (var i = 0; i < size; i++) {
+				futures.add(CompletableFuture.supplyAsync(subtenantCreateFunc, executor));
+			}
+			final var subtenantIds = new ArrayList<String>(size);
+			for (final var future : futures) {
+				subtenantIds.add(future.get());
+			}
+			final var createdSubtenantIds = subtenantIds.stream().filter(Objects::nonNull).toArray(String[]::new);
+			if (createdSubtenantIds.length < size) {
+				Loggers.ERR.warn("Failed to create {} of {} pooled subtenants", size - createdSubtenantIds.length, size);
+			}
+			Loggers.MSG.info("Created {} pooled subtenants", createdSubtenantIds.length);
+			return new AtmosSubtenantPool(createdSubtenantIds, concurrency);
+		} catch (final InterruptedException e) {
+			throwUnchecked(e);
+		} catch (final ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return null;
+	}
+
+	boolean isEmpty() {
+		return subtenantIds.length == 0;
+	}
+
+	String subtenantId(final long itemId) {
+		return subtenantIds[(int) Math.floorMod(itemId, (long) subtenantIds.length)];
+	}
+
+	/**
+	 Delete all pooled subtenants concurrently and wait until done
+	 @param subtenantDeleteFunc the function deleting the subtenant, returns false if failed
+	 */
+	void deleteAll(final Predicate<String> subtenantDeleteFunc) {
+		if (subtenantIds.length == 0) {
+			return;
+		}
+		final var executor = Executors.newFixedThreadPool(Math.min(subtenantIds.length, concurrency));
+		try {
+			final List<CompletableFuture<Boolean>> futures = new ArrayList<>(subtenantIds.length);
+			for (final var subtenantId : subtenantIds) {
+				futures.add(CompletableFuture.supplyAsync(() -> subtenantDeleteFunc.test(subtenantId), executor));
+			}
+			var deletedCount = 0;
+			for (final var future : futures) {
+				if (future.get()) {
+					deletedCount++;
+				}
+			}
+			Loggers.MSG.info("Deleted {} of {} pooled subtenants", deletedCount, subtenantIds.length);
+		} catch (final InterruptedException e) {
+			throwUnchecked(e);
+		} catch (final ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosMetadataGenerator.LISTABLE_KEY_PREFIX;
+
+import io.netty.util.AsciiString;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ The listable tag query load state: the queried tags ("tag0", "tag1", ... the same as the generated listable metadata
+ keys), the listing cursors per tag and the results counters. Each query requests the next page for the next tag in
+ the round robin order using the idle cursor of the tag, the tag listing is restarted when its last page is got. The
+ cursor (the continuation token) is owned by the single in-flight query: if there's no idle cursor for the tag, the
+ new one is created to list the tag from the 1st page, so the concurrent queries never share the continuation token.
+ The count of the cursors per tag is bounded by the count of the concurrent queries.
+ */
+final class AtmosTagQuery {
+
+	/** The tag listing state, accessed only by the owning query */
+	static final class Cursor {
+
+		final int tagIndex;
+		private String token = null;
+
+		private Cursor(final int tagIndex) {
+			this.tagIndex = tagIndex;
+		}
+
+		/** @return the continuation token, null to request the 1st page */
+		String token() {
+			return token;
+		}
+	}
+
+	private final AsciiString[] tags;
+	private final Queue<Cursor>[] idleCursors;
+	private final AtomicLong queryCounter = new AtomicLong(0);
+	private final int pageSize;
+	private final LongAdder pageCount = new LongAdder();
+	private final LongAdder objCount = new LongAdder();
+	private volatile long startTimeNanos = 0;
+
+	/**
+	 @param cardinality the count of the different tags to query
+	 @param pageSize the max count of the objects per page
+	 */
+	AtmosTagQuery(final int cardinality, final int pageSize) {
+		tags = new AsciiString[cardinality];
+		for (var i = 0; i < cardinality; i++) {
+			tags[i] = new AsciiString(LISTABLE_KEY_PREFIX + i);
+		}
+		@SuppressWarnings("unchecked")
+		final Queue<Cursor>[] idleCursors = new Queue[cardinality];
+		for (var i = 0; i < cardinality; i++) {
+			idleCursors[i] = new ConcurrentLinkedQueue<>();
+		}
+		this.idleCursors = idleCursors;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 @return the cursor of the tag to query next, owned by the caller until {@link #release(Cursor)}. The cursor which is
+	 not released (e.g. the request is not sent) is just lost, the tag listing is restarted by the new one
+	 */
+	Cursor nextCursor() {
+		if (startTimeNanos == 0) {
+			startTimeNanos = System.nanoTime();
+		}
+		final var tagIndex = (int) (queryCounter.getAndIncrement() % tags.length);
+		final var cursor = idleCursors[tagIndex].poll();
+		return cursor == null ? new Cursor(tagIndex) : cursor;
+	}
+
+	/** @param cursor the cursor to make available for the next queries of the tag */
+	void release(final Cursor cursor) {
+		idleCursors[cursor.tagIndex].offer(cursor);
+	}
+
+	/** @return the count of the idle cursors for the tag */
+	int idleCursorCount(final int tagIndex) {
+		return idleCursors[tagIndex].size();
+	}
+
+	AsciiString tag(final int tagIndex) {
+		return tags[tagIndex];
+	}
+
+	int pageSize() {
+		return pageSize;
+	}
+
+	/**
+	 @param cursor the cursor owned by the query
+	 @param nextToken the continuation token got in the response, null if the page is the last one
+	 */
+	void pageHeaders(final Cursor cursor, final String nextToken) {
+		cursor.token = nextToken;
+	}
+
+	/** @param objCount the count of the objects in the page got */
+	void pageDone(final int objCount) {
+		pageCount.increment();
+		this.objCount.add(objCount);
+	}
+
+	@Override
+	public final String toString() {
+		final var pages = pageCount.sum();
+		final var objs = objCount.sum();
+		final var startTime = startTimeNanos;
+		final var elapsedSeconds = startTime == 0 ? 0 : (System.nanoTime() - startTime) / 1e9;
+		return String.format(
+						"tag queries: pages=%d, objects=%d, objects/s=%.1f, objects/page=%.1f", pages, objs,
+						elapsedSeconds > 0 ? objs / elapsedSeconds : 0, pages > 0 ? (double) objs / pages : 0);
+	}
+}
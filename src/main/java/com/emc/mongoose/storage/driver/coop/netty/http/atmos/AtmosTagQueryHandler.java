@@ -0,0 +1,101 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_TOKEN;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ByteProcessor;
+
+/**
+ Tracks the listable tag query responses: updates the continuation token of the query cursor and counts the
+ "<ObjectID>" elements in the page content as the content chunks pass through the pipeline, the page is neither parsed
+ into the entries nor aggregated. The cursor is released when the response is done (the token is kept if the response
+ is not successful, so the same page is requested again) or the channel is closed. Per channel instance.
+ */
+final class AtmosTagQueryHandler
+				extends ChannelDuplexHandler
+				implements ByteProcessor {
+
+	private static final byte[] OBJ_ID_START_TAG = "<ObjectID>".getBytes(US_ASCII);
+
+	private final AtmosTagQuery tagQuery;
+	private AtmosTagQuery.Cursor cursor = null;
+	private boolean success = false;
+	private int tagMatchLen = 0;
+	private int objCount = 0;
+
+	AtmosTagQueryHandler(final AtmosTagQuery tagQuery) {
+		this.tagQuery = tagQuery;
+	}
+
+	@Override
+	public final void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise)
+					throws Exception {
+		if (msg instanceof AtmosTagQueryRequest) {
+			releaseCursor();
+			cursor = ((AtmosTagQueryRequest) msg).cursor;
+		}
+		super.write(ctx, msg, promise);
+	}
+
+	@Override
+	public final void channelRead(final ChannelHandlerContext ctx, final Object msg)
+					throws Exception {
+		if (cursor != null) {
+			if (msg instanceof HttpResponse) {
+				final var resp = (HttpResponse) msg;
+				success = HttpStatusClass.SUCCESS.equals(resp.status().codeClass());
+				if (success) {
+					tagQuery.pageHeaders(cursor, resp.headers().get(KEY_X_EMC_TOKEN));
+				}
+				tagMatchLen = 0;
+				objCount = 0;
+			}
+			if (success && msg instanceof HttpContent) {
+				final var content = ((HttpContent) msg).content();
+				content.forEachByte(content.readerIndex(), content.readableBytes(), this);
+			}
+			if (msg instanceof LastHttpContent) {
+				if (success) {
+					tagQuery.pageDone(objCount);
+				}
+				releaseCursor();
+			}
+		}
+		super.channelRead(ctx, msg);
+	}
+
+	@Override
+	public final void channelInactive(final ChannelHandlerContext ctx)
+					throws Exception {
+		releaseCursor();
+		super.channelInactive(ctx);
+	}
+
+	private void releaseCursor() {
+		if (cursor != null) {
+			tagQuery.release(cursor);
+			cursor = null;
+		}
+	}
+
+	@Override
+	public final boolean process(final byte b) {
+		if (b == OBJ_ID_START_TAG[tagMatchLen]) {
+			tagMatchLen++;
+			if (tagMatchLen == OBJ_ID_START_TAG.length) {
+				objCount++;
+				tagMatchLen = 0;
+			}
+		} else {
+			tagMatchLen = b == OBJ_ID_START_TAG[0] ? 1 : 0;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,20 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+
+/**
+ The listable tag query request, keeps the cursor owned by the query for the {@link AtmosTagQueryHandler}
+ */
+final class AtmosTagQueryRequest
+				extends DefaultHttpRequest {
+
+	final AtmosTagQuery.Cursor cursor;
+
+	AtmosTagQueryRequest(final AtmosTagQuery.Cursor cursor, final String uri, final HttpHeaders headers) {
+		super(HttpVersion.HTTP_1_1, HttpMethod.GET, uri, headers);
+		this.cursor = cursor;
+	}
+}
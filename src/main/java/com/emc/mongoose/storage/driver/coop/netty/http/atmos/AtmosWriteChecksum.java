@@ -0,0 +1,159 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import com.emc.mongoose.base.item.DataItem;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Calculates the x-emc-wschecksum header values. The item content is streamed through the digest using the reusable
+ (thread local) heap buffer so the object content is never buffered entirely and the digest reads the buffer array
+ directly. The digest state is kept for the recently written objects (the oldest is evicted when the limit is reached)
+ so the next append may continue from it instead of the whole object content digesting. The state is keyed by the
+ item data offset which identifies the item content, as the item name is replaced with the Atmos object id after the
+ object is created.
+ Note that the signed header should be sent before the content, so the checksum can't be calculated from the bytes
+ being sent and the content is generated twice: for the checksum and for the sending. The Atmos "SHA0" algorithm is
+ not available in the JRE so "MD5" is used.
+ */
+final class AtmosWriteChecksum {
+
+	static final String ALGORITHM = "MD5";
+
+	static final int STATE_COUNT_LIMIT = 0x10000;
+
+	private static final int BUFF_SIZE = 0x10000;
+	private static final ThreadLocal<ByteBuffer> BUFF = ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFF_SIZE));
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private static final class State {
+
+		final long offset;
+		final MessageDigest digest;
+
+		State(final long offset, final MessageDigest digest) {
+			this.offset = offset;
+			this.digest = digest;
+		}
+	}
+
+	private final Map<Long, State> stateByItemOffset;
+	private final LongAdder digestedSize = new LongAdder();
+
+	/**
+	 @param stateCountLimit the max count of the objects to keep the digest state for
+	 */
+	AtmosWriteChecksum(final int stateCountLimit) {
+		stateByItemOffset = Collections.synchronizedMap(
+						new LinkedHashMap<>() {
+							@Override
+							protected final boolean removeEldestEntry(final Map.Entry<Long, State> eldest) {
+								return size() > stateCountLimit;
+							}
+						});
+	}
+
+	/**
+	 @param item the item to create
+	 @param size the new item size
+	 @return the header value for the whole item content
+	 */
+	String create(final DataItem item, final long size)
+					throws IOException {
+		final var digest = newDigest();
+		update(digest, item, 0, size);
+		return headerValue(item, size, digest);
+	}
+
+	/**
+	 @param item the item to append the data to
+	 @param from the current item size
+	 @param size the appended data size
+	 @return the header value for the item content including the appended data
+	 */
+	String append(final DataItem item, final long from, final long size)
+					throws IOException {
+		final var state = stateByItemOffset.get(item.offset());
+		final MessageDigest digest;
+		if (state != null && state.offset == from) {
+			try {
+				digest = (MessageDigest) state.digest.clone();
+			} catch (final CloneNotSupportedException e) {
+				throw new AssertionError(e);
+			}
+		} else { // no state, digest the existing content first
+			digest = newDigest();
+			update(digest, item, 0, from);
+		}
+		update(digest, item, from, size);
+		return headerValue(item, from + size, digest);
+	}
+
+	void forget(final DataItem item) {
+		stateByItemOffset.remove(item.offset());
+	}
+
+	int stateCount() {
+		return stateByItemOffset.size();
+	}
+
+	/** @return the total count of the bytes passed through the digests */
+	long digestedSize() {
+		return digestedSize.sum();
+	}
+
+	private String headerValue(final DataItem item, final long offset, final MessageDigest digest) {
+		try {
+			stateByItemOffset.put(item.offset(), new State(offset, (MessageDigest) digest.clone()));
+		} catch (final CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+		final var hash = digest.digest();
+		final var value = new StringBuilder(ALGORITHM.length() + 21 + 2 * hash.length)
+						.append(ALGORITHM)
+						.append('/')
+						.append(offset)
+						.append('/');
+		for (final var b : hash) {
+			value.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+		}
+		return value.toString();
+	}
+
+	private void update(final MessageDigest digest, final DataItem item, final long from, final long size)
+					throws IOException {
+		if (size == 0) {
+			return;
+		}
+		final DataItem range = item.slice(from, size); // don't affect the item's own position
+		final var buff = BUFF.get();
+		var remaining = size;
+		int n;
+		while (remaining > 0) {
+			buff.clear();
+			if (remaining < BUFF_SIZE) {
+				buff.limit((int) remaining);
+			}
+			n = range.read(buff);
+			if (n <= 0) {
+				throw new IOException("Unexpected end of the item content, " + remaining + " bytes remaining");
+			}
+			digest.update(buff.array(), 0, n);
+			remaining -= n;
+		}
+		digestedSize.add(size);
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	}
+}
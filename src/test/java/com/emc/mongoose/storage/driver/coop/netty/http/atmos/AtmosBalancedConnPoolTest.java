@@ -0,0 +1,152 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.github.akurilov.netty.connection.pool.NonBlockingConnPool.ATTR_KEY_NODE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.github.akurilov.netty.connection.pool.NonBlockingConnPool;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class AtmosBalancedConnPoolTest {
+
+	private static final String[] NODE_ADDRS = { "127.0.0.1", "127.0.0.2" };
+
+	/** Leases the new connections to the nodes in the round robin order, up to the limit of the not released ones */
+	private static final class RoundRobinConnPool
+					implements NonBlockingConnPool {
+
+		private final String[] nodeAddrs;
+		private final int leasedCountLimit;
+		private final List<Channel> released = new ArrayList<>();
+		private int leaseCount = 0;
+
+		private RoundRobinConnPool(final String... nodeAddrs) {
+			this(Integer.MAX_VALUE, nodeAddrs);
+		}
+
+		private RoundRobinConnPool(final int leasedCountLimit, final String... nodeAddrs) {
+			this.nodeAddrs = nodeAddrs;
+			this.leasedCountLimit = leasedCountLimit;
+		}
+
+		@Override
+		public final void preConnect(final int count) {
+		}
+
+		@Override
+		public final Channel lease() {
+			if (leaseCount - released.size() >= leasedCountLimit) {
+				return null;
+			}
+			final var conn = new EmbeddedChannel();
+			conn.attr(ATTR_KEY_NODE).set(nodeAddrs[leaseCount++ % nodeAddrs.length]);
+			return conn;
+		}
+
+		@Override
+		public final int lease(final List<Channel> conns, final int maxCount) {
+			for (var i = 0; i < maxCount; i++) {
+				conns.add(lease());
+			}
+			return maxCount;
+		}
+
+		@Override
+		public final void release(final Channel conn) {
+			released.add(conn);
+		}
+
+		@Override
+		public final void release(final List<Channel> conns) {
+			released.addAll(conns);
+		}
+
+		@Override
+		public final void close() {
+		}
+	}
+
+	@Test
+	public void testNoBalancer()
+					throws Exception {
+		final var connPool = new RoundRobinConnPool(NODE_ADDRS);
+		try (final var balancedConnPool = new AtmosBalancedConnPool(connPool, () -> null, NODE_ADDRS.length)) {
+			final var conn = balancedConnPool.lease();
+			balancedConnPool.release(conn);
+			assertEquals(List.of(conn), connPool.released);
+			balancedConnPool.lease();
+			assertEquals(2, connPool.leaseCount);
+		}
+	}
+
+	@Test
+	public void testSelectedNodeConnLeased()
+					throws Exception {
+		final var connPool = new RoundRobinConnPool(NODE_ADDRS);
+		try (
+						final var balancer = new AtmosNodeBalancer(NODE_ADDRS, 3, 3600, nodeAddr -> false);
+						final var balancedConnPool = new AtmosBalancedConnPool(connPool, () -> balancer, NODE_ADDRS.length)) {
+			// make the 2nd node always selected
+			for (var i = 0; i < 3; i++) {
+				balancer.failed(NODE_ADDRS[0]);
+			}
+			final List<Channel> conns = new ArrayList<>();
+			assertEquals(4, balancedConnPool.lease(conns, 4));
+			for (final var conn : conns) {
+				assertEquals(NODE_ADDRS[1], conn.attr(ATTR_KEY_NODE).get());
+			}
+			// the connections to the 1st node are returned to the wrapped pool at once
+			assertEquals(8, connPool.leaseCount);
+			assertEquals(4, connPool.released.size());
+			for (final var conn : connPool.released) {
+				assertEquals(NODE_ADDRS[0], conn.attr(ATTR_KEY_NODE).get());
+			}
+			// the released connections are not kept by the decorator
+			balancedConnPool.release(conns);
+			assertEquals(connPool.leaseCount, connPool.released.size());
+		}
+	}
+
+	@Test
+	public void testAnyNodeConnIfSelectedNotLeased()
+					throws Exception {
+		// the wrapped pool has the connections to the 1st node only
+		final var connPool = new RoundRobinConnPool(NODE_ADDRS[0]);
+		try (
+						final var balancer = new AtmosNodeBalancer(NODE_ADDRS, 3, 3600, nodeAddr -> false);
+						final var balancedConnPool = new AtmosBalancedConnPool(connPool, () -> balancer, NODE_ADDRS.length)) {
+			for (var i = 0; i < 3; i++) {
+				balancer.failed(NODE_ADDRS[0]);
+			}
+			final var conn = balancedConnPool.lease();
+			assertEquals(NODE_ADDRS[0], conn.attr(ATTR_KEY_NODE).get());
+			// the lease attempts are limited by the nodes count, the other leased connection is released
+			assertEquals(2, connPool.leaseCount);
+			assertEquals(1, connPool.released.size());
+			assertNotSame(conn, connPool.released.get(0));
+		}
+	}
+
+	@Test
+	public void testWrappedPoolExhausted()
+					throws Exception {
+		final var connPool = new RoundRobinConnPool(1, NODE_ADDRS);
+		try (
+						final var balancer = new AtmosNodeBalancer(NODE_ADDRS, 3, 3600, nodeAddr -> false);
+						final var balancedConnPool = new AtmosBalancedConnPool(connPool, () -> balancer, NODE_ADDRS.length)) {
+			for (var i = 0; i < 3; i++) {
+				balancer.failed(NODE_ADDRS[1]);
+			}
+			final List<Channel> conns = new ArrayList<>();
+			assertEquals(1, balancedConnPool.lease(conns, 4));
+			assertSame(NODE_ADDRS[0], conns.get(0).attr(ATTR_KEY_NODE).get());
+			assertNull(balancedConnPool.lease());
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static org.junit.Assert.assertEquals;
+
+import com.emc.mongoose.base.item.op.Operation;
+import java.util.concurrent.Semaphore;
+import org.junit.Test;
+
+public class AtmosConcurrencyLimiterTest {
+
+	private static final int MAX_LIMIT = 100;
+
+	@Test
+	public void testAdditiveIncrease() {
+		final var throttle = new Semaphore(MAX_LIMIT);
+		final var limiter = new AtmosConcurrencyLimiter(throttle, MAX_LIMIT, 10, 5, 0.5, 2);
+		assertEquals(10, limiter.limit());
+		assertEquals(10, throttle.availablePermits());
+		for (var i = 0; i < 10; i++) {
+			limiter.completed(1000, Operation.Status.SUCC);
+		}
+		assertEquals(15, limiter.limit());
+		assertEquals(15, throttle.availablePermits());
+		for (var i = 0; i < 1000; i++) {
+			limiter.completed(1000, Operation.Status.SUCC);
+		}
+		assertEquals(MAX_LIMIT, limiter.limit());
+		assertEquals(MAX_LIMIT, throttle.availablePermits());
+	}
+
+	@Test
+	public void testMultiplicativeDecreaseOnFailure() {
+		final var throttle = new Semaphore(MAX_LIMIT);
+		final var limiter = new AtmosConcurrencyLimiter(throttle, MAX_LIMIT, 10, 30, 0.5, 2);
+		for (var i = 0; i < 10 + 40; i++) {
+			limiter.completed(1000, Operation.Status.SUCC);
+		}
+		assertEquals(70, limiter.limit());
+		limiter.completed(1000, Operation.Status.RESP_FAIL_SVC);
+		for (var i = 1; i < 70; i++) {
+			limiter.completed(1000, Operation.Status.SUCC);
+		}
+		assertEquals(35, limiter.limit());
+		assertEquals(35, throttle.availablePermits());
+	}
+
+	@Test
+	public void testDecreaseOnLatencySpike() {
+		final var throttle = new Semaphore(MAX_LIMIT);
+		final var limiter = new AtmosConcurrencyLimiter(throttle, MAX_LIMIT, 20, 20, 0.5, 2);
+		for (var i = 0; i < 20; i++) {
+			limiter.completed(1000, Operation.Status.SUCC);
+		}
+		assertEquals(40, limiter.limit());
+		for (var i = 0; i < 40; i++) {
+			limiter.completed(3000, Operation.Status.SUCC);
+		}
+		assertEquals(20, limiter.limit());
+	}
+
+	@Test
+	public void testDecreaseWhilePermitsInUse() {
+		final var throttle = new Semaphore(MAX_LIMIT);
+		final var limiter = new AtmosConcurrencyLimiter(throttle, MAX_LIMIT, 50, 10, 0.5, 2);
+		throttle.acquireUninterruptibly(50); // all permits are in use
+		for (var i = 0; i < 50; i++) {
+			limiter.completed(0, Operation.Status.RESP_FAIL_SVC);
+		}
+		assertEquals(25, limiter.limit());
+		throttle.release(50); // the operations are done
+		limiter.permitReleased();
+		assertEquals(25, throttle.availablePermits());
+	}
+
+	@Test
+	public void testDebtPaidOnPermitRelease() {
+		final var throttle = new Semaphore(MAX_LIMIT);
+		final var limiter = new AtmosConcurrencyLimiter(throttle, MAX_LIMIT, 50, 10, 0.5, 2);
+		throttle.acquireUninterruptibly(50); // all permits are in use
+		for (var i = 0; i < 50; i++) {
+			limiter.completed(0, Operation.Status.RESP_FAIL_SVC);
+		}
+		assertEquals(25, limiter.limit());
+		// the completion doesn't take the permits not released yet
+		limiter.completed(1000, Operation.Status.SUCC);
+		assertEquals(0, throttle.availablePermits());
+		for (var i = 0; i < 25; i++) {
+			throttle.release();
+			limiter.permitReleased();
+			assertEquals(0, throttle.availablePermits());
+		}
+		for (var i = 0; i < 25; i++) {
+			throttle.release();
+			limiter.permitReleased();
+		}
+		assertEquals(25, throttle.availablePermits());
+	}
+}
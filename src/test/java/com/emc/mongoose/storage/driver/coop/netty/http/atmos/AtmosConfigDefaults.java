@@ -0,0 +1,54 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.github.akurilov.confuse.Config;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ The driver configuration defaults loaded once from the bundled defaults file, so the tests and the benchmarks don't
+ repeat each driver option (and don't miss the new ones). The values are keyed by the "-" separated paths.
+ */
+final class AtmosConfigDefaults {
+
+	private static final String DEFAULTS_RES_PATH = "/config/defaults-storage-atmos.yaml";
+	private static final Map<String, Object> VALUES = load();
+
+	private AtmosConfigDefaults() {
+	}
+
+	/** Set the driver defaults to the given configuration, the caller overrides the specific values after */
+	static void apply(final Config config) {
+		VALUES.forEach(config::val);
+	}
+
+	private static Map<String, Object> load() {
+		try (final var in = AtmosConfigDefaults.class.getResourceAsStream(DEFAULTS_RES_PATH)) {
+			if (in == null) {
+				throw new IllegalStateException("No resource found: " + DEFAULTS_RES_PATH);
+			}
+			final Map<String, Object> tree = new ObjectMapper(new YAMLFactory()).readValue(in, Map.class);
+			final Map<String, Object> values = new LinkedHashMap<>();
+			flatten(null, tree, values);
+			return Collections.unmodifiableMap(values);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void flatten(final String path, final Map<String, Object> tree, final Map<String, Object> values) {
+		for (final var e : tree.entrySet()) {
+			final var key = path == null ? e.getKey() : path + '-' + e.getKey();
+			final var value = e.getValue();
+			if (value instanceof Map) {
+				flatten(key, (Map<String, Object>) value, values);
+			} else {
+				values.put(key, value);
+			}
+		}
+	}
+}
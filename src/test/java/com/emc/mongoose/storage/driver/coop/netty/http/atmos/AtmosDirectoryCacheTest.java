@@ -0,0 +1,82 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class AtmosDirectoryCacheTest {
+
+	@Test
+	public void testParentDir() {
+		assertEquals("/dir0/dir1", AtmosDirectoryCache.parentDir("/dir0/dir1/file0"));
+		assertEquals("/dir0", AtmosDirectoryCache.parentDir("/dir0/dir1/"));
+		assertEquals("", AtmosDirectoryCache.parentDir("/file0"));
+		assertEquals("/dir0", AtmosDirectoryCache.parentDir("/dir0", "file0"));
+		assertEquals("/dir0", AtmosDirectoryCache.parentDir("/dir0/", "/file0"));
+		assertEquals("/dir0/dir1", AtmosDirectoryCache.parentDir("/dir0", "/dir0/dir1/file0"));
+		assertEquals("/dir0/dir1", AtmosDirectoryCache.parentDir("dir0", "dir1/file0"));
+		assertEquals("", AtmosDirectoryCache.parentDir(null, "file0"));
+	}
+
+	private static List<String> paths(final List<AtmosDirectoryCache.PendingDir> dirs) {
+		return dirs.stream().map(dir -> dir.path).collect(Collectors.toList());
+	}
+
+	@Test
+	public void testParentsCreatedOnce() {
+		final var dirCache = new AtmosDirectoryCache(100);
+		final var dirs = dirCache.missing("/dir0/dir1/dir2");
+		assertEquals(List.of("/dir0", "/dir0/dir1", "/dir0/dir1/dir2"), paths(dirs));
+		assertTrue(dirs.stream().allMatch(dir -> dir.owned));
+		// the concurrent caller waits for the same pending creations
+		final var waitedDirs = dirCache.missing("/dir0/dir1/dir3");
+		assertEquals(List.of("/dir0", "/dir0/dir1", "/dir0/dir1/dir3"), paths(waitedDirs));
+		assertFalse(waitedDirs.get(0).owned);
+		assertSame(dirs.get(0).future, waitedDirs.get(0).future);
+		assertFalse(waitedDirs.get(1).owned);
+		assertTrue(waitedDirs.get(2).owned);
+		for (final var dir : dirs) {
+			dirCache.done(dir, true);
+			assertTrue(dir.future.join());
+		}
+		assertEquals(1, dirCache.pendingCount());
+		assertEquals(List.of(), dirCache.missing("/dir0/dir1"));
+		assertEquals(List.of(), dirCache.missing("/dir0/dir1/dir2"));
+		assertEquals(List.of(), dirCache.missing(""));
+		assertEquals(List.of(), dirCache.missing("/"));
+		dirCache.done(waitedDirs.get(2), true);
+		assertEquals(0, dirCache.pendingCount());
+		assertEquals(4, dirCache.size());
+	}
+
+	@Test
+	public void testEvictionAndInvalidation() {
+		final var dirCache = new AtmosDirectoryCache(2);
+		for (final var path : List.of("/dir0", "/dir1", "/dir2")) {
+			dirCache.missing(path).forEach(dir -> dirCache.done(dir, true));
+		}
+		assertEquals(2, dirCache.size());
+		assertEquals(List.of("/dir0"), paths(dirCache.missing("/dir0"))); // evicted
+		assertEquals(List.of(), dirCache.missing("/dir2"));
+		dirCache.invalidate("/dir2");
+		assertEquals(List.of("/dir2"), paths(dirCache.missing("/dir2")));
+	}
+
+	@Test
+	public void testCreateFailure() {
+		final var dirCache = new AtmosDirectoryCache(100);
+		final var dirs = dirCache.missing("/dir0/dir1");
+		dirCache.done(dirs.get(0), false);
+		dirCache.done(dirs.get(1), false);
+		assertFalse(dirs.get(0).future.join());
+		assertEquals(0, dirCache.size());
+		assertEquals(0, dirCache.pendingCount());
+		// the next caller tries again
+		assertTrue(dirCache.missing("/dir0/dir1").get(0).owned);
+	}
+}
@@ -0,0 +1,840 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.EmcConstants.KEY_X_EMC_SIGNATURE;
+import static com.emc.mongoose.storage.driver.coop.netty.http.EmcConstants.KEY_X_EMC_UID;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_SUBTENANT_ID;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_LIMIT;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_LISTABLE_META;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_META;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_PATH;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_TAGS;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_TOKEN;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.NS_URI_BASE;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.OBJ_URI_BASE;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.SERVICE_URI;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.SIGN_METHOD;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.SUBTENANT_URI_BASE;
+import static com.github.akurilov.commons.lang.Exceptions.throwUnchecked;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ In-process Atmos REST API stand-in for the integration and load tests. Keeps the objects, the namespace files and the
+ directories in memory. Supports:
+ <ul>
+ <li>the object API: create (POST, the id is returned in the Location header), read (GET, ranged), update (PUT,
+ ranged), delete, HEAD, the user/system metadata (?metadata/user, ?metadata/system), the listable tag query</li>
+ <li>the namespace API: the same file operations, the directories creation and paged listing, rename (?rename)</li>
+ <li>the subtenants creation (the "subtenantID" response header) and deletion</li>
+ <li>the x-emc-signature validation for the registered uids, the subtenant ids are checked too</li>
+ </ul>
+ The response latency and the "server busy" (code 1040) failures may be injected.
+ */
+public final class AtmosEmulator
+				implements Closeable {
+
+	private static final int MAX_CONTENT_LENGTH = 0x4000000;
+	private static final long MAX_CLOCK_SKEW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	private static final int DEFAULT_LIST_LIMIT = 1000;
+	private static final String QUERY_METADATA_USER = "metadata/user";
+	private static final String QUERY_METADATA_SYSTEM = "metadata/system";
+	private static final String QUERY_RENAME = "rename";
+	private static final String XML_HEADER = "<?xml version='1.0' encoding='UTF-8'?>\n";
+	private static final Base64.Decoder BASE64_DECODER = Base64.getDecoder();
+	private static final Base64.Encoder BASE64_ENCODER = Base64.getEncoder();
+
+	/** Both the object and the namespace entry, the directory has no content */
+	private static final class StoredObject {
+
+		final String id;
+		final boolean directory;
+		byte[] data = new byte[0];
+		int size = 0;
+		final Map<String, String> meta = new TreeMap<>();
+		final Map<String, String> listableMeta = new TreeMap<>();
+
+		StoredObject(final String id, final boolean directory) {
+			this.id = id;
+			this.directory = directory;
+		}
+	}
+
+	private static final class Response {
+
+		final HttpResponseStatus status;
+		final ByteBuf content;
+		final Map<CharSequence, Object> headers = new HashMap<>();
+
+		Response(final HttpResponseStatus status, final ByteBuf content) {
+			this.status = status;
+			this.content = content;
+		}
+
+		Response(final HttpResponseStatus status) {
+			this(status, Unpooled.EMPTY_BUFFER);
+		}
+
+		Response header(final CharSequence name, final Object value) {
+			headers.put(name, value);
+			return this;
+		}
+	}
+
+	private final Map<String, byte[]> secretByUid;
+	private final long idPrefix = ThreadLocalRandom.current().nextLong() >>> 1;
+	private final AtomicLong idSeq = new AtomicLong(0);
+	private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+	/** The namespace: the directory path (w/o the trailing slash, the root is empty) -> the children by name */
+	private final Map<String, NavigableMap<String, StoredObject>> dirs = new ConcurrentHashMap<>();
+	private final Map<String, NavigableSet<String>> idsByTag = new ConcurrentHashMap<>();
+	private final Map<String, Boolean> subtenants = new ConcurrentHashMap<>();
+	private final LongAdder requestCount = new LongAdder();
+	private final LongAdder throttledCount = new LongAdder();
+	private final ChannelHandler handler = new AtmosRequestHandler();
+	private final ThreadLocal<Map<String, Mac>> macByUid = ThreadLocal.withInitial(HashMap::new);
+
+	private volatile long latencyMillis = 0;
+	private volatile double throttleFraction = 0;
+	private volatile boolean parentDirsRequired = false;
+	private volatile Queue<String> requestLog = null;
+	private EventLoopGroup eventLoopGroup = null;
+	private Channel serverChannel = null;
+
+	/**
+	 @param secretByUid the Base-64 encoded secret keys by the uid, the requests are not authenticated if empty
+	 */
+	public AtmosEmulator(final Map<String, String> secretByUid) {
+		final Map<String, byte[]> secrets = new HashMap<>();
+		secretByUid.forEach((uid, secret) -> secrets.put(uid, BASE64_DECODER.decode(secret)));
+		this.secretByUid = Collections.unmodifiableMap(secrets);
+		dirs.put("", new ConcurrentSkipListMap<>());
+	}
+
+	/**
+	 @param port the port to listen, 0 to choose any free port
+	 @param threadCount the count of the I/O threads, 0 for the Netty's default
+	 @return the listening port
+	 */
+	public int start(final int port, final int threadCount) {
+		eventLoopGroup = new NioEventLoopGroup(threadCount);
+		try {
+			serverChannel = new ServerBootstrap()
+							.group(eventLoopGroup)
+							.channel(NioServerSocketChannel.class)
+							.childHandler(
+											new ChannelInitializer<SocketChannel>() {
+												@Override
+												protected final void initChannel(final SocketChannel channel) {
+													final var pipeline = channel.pipeline();
+													pipeline.addLast(new HttpServerCodec());
+													pipeline.addLast(new HttpObjectAggregator(MAX_CONTENT_LENGTH));
+													pipeline.addLast(handler);
+												}
+											})
+							.bind(port)
+							.sync()
+							.channel();
+		} catch (final InterruptedException e) {
+			throwUnchecked(e);
+		}
+		return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+	}
+
+	/** @param latencyMillis the delay before each response, milliseconds */
+	public AtmosEmulator latency(final long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+		return this;
+	}
+
+	/** @param throttleFraction the fraction of the requests to fail with "server busy", [0; 1] */
+	public AtmosEmulator throttleFraction(final double throttleFraction) {
+		this.throttleFraction = throttleFraction;
+		return this;
+	}
+
+	/** @param parentDirsRequired if true, the namespace file creation fails if the parent directory is missing */
+	public AtmosEmulator parentDirsRequired(final boolean parentDirsRequired) {
+		this.parentDirsRequired = parentDirsRequired;
+		return this;
+	}
+
+	/** @param enabled if true, the method and the URI of each request are logged, see {@link #loggedRequests()} */
+	public AtmosEmulator requestLog(final boolean enabled) {
+		this.requestLog = enabled ? new ConcurrentLinkedQueue<>() : null;
+		return this;
+	}
+
+	/** @return the logged requests in the order of receiving, e.g. "GET /rest/objects/...?metadata/user" */
+	List<String> loggedRequests() {
+		final var log = requestLog;
+		return log == null ? Collections.emptyList() : new ArrayList<>(log);
+	}
+
+	/**
+	 @param id the object id
+	 @return the user metadata (both listable and not) copy, null if the object doesn't exist
+	 */
+	Map<String, String> userMetadata(final String id) {
+		final var obj = objects.get(id);
+		if (obj == null) {
+			return null;
+		}
+		synchronized (obj) {
+			final Map<String, String> meta = new TreeMap<>(obj.meta);
+			meta.putAll(obj.listableMeta);
+			return meta;
+		}
+	}
+
+	public long requestCount() {
+		return requestCount.sum();
+	}
+
+	public long throttledCount() {
+		return throttledCount.sum();
+	}
+
+	/** @return the count of the objects including the namespace files and directories */
+	public int objectCount() {
+		return objects.size();
+	}
+
+	/** @return the shareable request handler expecting the aggregated requests, e.g. for the embedded channel tests */
+	ChannelHandler handler() {
+		return handler;
+	}
+
+	@Override
+	public final void close() {
+		if (serverChannel != null) {
+			serverChannel.close().syncUninterruptibly();
+			serverChannel = null;
+		}
+		if (eventLoopGroup != null) {
+			eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+			eventLoopGroup = null;
+		}
+		objects.clear();
+		dirs.clear();
+		idsByTag.clear();
+		subtenants.clear();
+	}
+
+	@ChannelHandler.Sharable
+	private final class AtmosRequestHandler
+					extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+		@Override
+		protected final void channelRead0(final ChannelHandlerContext ctx, final FullHttpRequest req) {
+			requestCount.increment();
+			final var log = requestLog;
+			if (log != null) {
+				log.add(req.method() + " " + req.uri());
+			}
+			final var keepAlive = HttpUtil.isKeepAlive(req);
+			final var resp = toHttpResponse(handle(req), HttpMethod.HEAD.equals(req.method()));
+			HttpUtil.setKeepAlive(resp, keepAlive);
+			final var latency = latencyMillis;
+			if (latency > 0) {
+				ctx.executor().schedule(() -> respond(ctx, resp, keepAlive), latency, TimeUnit.MILLISECONDS);
+			} else {
+				respond(ctx, resp, keepAlive);
+			}
+		}
+
+		private void respond(final ChannelHandlerContext ctx, final FullHttpResponse resp, final boolean keepAlive) {
+			final var writeFuture = ctx.writeAndFlush(resp);
+			if (!keepAlive) {
+				writeFuture.addListener(ChannelFutureListener.CLOSE);
+			}
+		}
+	}
+
+	private static FullHttpResponse toHttpResponse(final Response r, final boolean head) {
+		final var resp = new DefaultFullHttpResponse(
+						HttpVersion.HTTP_1_1, r.status, head ? Unpooled.EMPTY_BUFFER : r.content);
+		final var headers = resp.headers();
+		r.headers.forEach(headers::set);
+		if (!headers.contains(HttpHeaderNames.CONTENT_LENGTH)) {
+			HttpUtil.setContentLength(resp, r.content.readableBytes());
+		}
+		if (head) {
+			r.content.release();
+		}
+		return resp;
+	}
+
+	private Response handle(final FullHttpRequest req) {
+		final var rawUri = req.uri();
+		final var queryPos = rawUri.indexOf('?');
+		final var path = queryPos < 0 ? rawUri : rawUri.substring(0, queryPos);
+		final var query = queryPos < 0 ? "" : rawUri.substring(queryPos + 1);
+		final var headers = req.headers();
+		final var throttle = throttleFraction;
+		if (throttle > 0 && ThreadLocalRandom.current().nextDouble() < throttle) {
+			throttledCount.increment();
+			return error(HttpResponseStatus.INTERNAL_SERVER_ERROR, 1040, "The server is busy");
+		}
+		final var authError = authenticate(req, path);
+		if (authError != null) {
+			return authError;
+		}
+		final var method = req.method();
+		if (path.equals(SERVICE_URI)) {
+			return new Response(HttpResponseStatus.OK);
+		} else if (path.equals(SUBTENANT_URI_BASE) && HttpMethod.PUT.equals(method)) {
+			final var subtenantId = String.format("%016x%016x", idPrefix, idSeq.incrementAndGet());
+			subtenants.put(subtenantId, Boolean.TRUE);
+			return new Response(HttpResponseStatus.CREATED).header(KEY_SUBTENANT_ID, subtenantId);
+		} else if (path.startsWith(SUBTENANT_URI_BASE + '/') && HttpMethod.DELETE.equals(method)) {
+			final var subtenantId = path.substring(SUBTENANT_URI_BASE.length() + 1);
+			return subtenants.remove(subtenantId) == null ?
+							error(HttpResponseStatus.NOT_FOUND, 1008, "The subtenant doesn't exist") :
+							new Response(HttpResponseStatus.NO_CONTENT);
+		} else if (path.equals(OBJ_URI_BASE) || path.equals(OBJ_URI_BASE + '/')) {
+			if (HttpMethod.POST.equals(method)) {
+				final var obj = newObject(false);
+				objects.put(obj.id, obj);
+				update(obj, req.content(), null);
+				updateMetadata(obj, headers);
+				return new Response(HttpResponseStatus.CREATED)
+								.header(HttpHeaderNames.LOCATION, OBJ_URI_BASE + '/' + obj.id);
+			} else if (HttpMethod.GET.equals(method)) {
+				return tagQuery(headers);
+			}
+		} else if (path.startsWith(OBJ_URI_BASE + '/')) {
+			final var obj = objects.get(path.substring(OBJ_URI_BASE.length() + 1));
+			if (obj == null) {
+				return error(HttpResponseStatus.NOT_FOUND, 1003, "The requested object was not found");
+			}
+			return handleExisting(req, method, query, obj, null);
+		} else if (path.startsWith(NS_URI_BASE + '/')) {
+			return handleNamespace(req, method, query, path.substring(NS_URI_BASE.length()));
+		}
+		return error(HttpResponseStatus.BAD_REQUEST, 1008, "Invalid resource: " + method + " " + path);
+	}
+
+	private Response handleNamespace(
+					final FullHttpRequest req, final HttpMethod method, final String query, final String nsPath) {
+		final var dirRequest = nsPath.endsWith("/");
+		final var entryPath = dirRequest ? nsPath.substring(0, nsPath.length() - 1) : nsPath;
+		if (entryPath.isEmpty()) {
+			if (HttpMethod.GET.equals(method)) {
+				return listDirectory("", req.headers());
+			}
+			return error(HttpResponseStatus.BAD_REQUEST, 1008, "Invalid resource: root directory");
+		}
+		final var parentPath = parentPath(entryPath);
+		final var name = entryPath.substring(parentPath.length() + 1);
+		final var parent = dirs.get(parentPath);
+		final var entry = parent == null ? null : parent.get(name);
+		if (HttpMethod.POST.equals(method) && query.isEmpty()) {
+			if (entry != null) {
+				return error(HttpResponseStatus.BAD_REQUEST, 1016, "The resource already exists");
+			}
+			final var createdParent = parentDirsRequired ? parent : ensureDirectory(parentPath);
+			if (createdParent == null) {
+				return error(HttpResponseStatus.NOT_FOUND, 1003, "The parent directory was not found");
+			}
+			final var obj = newObject(dirRequest);
+			if (createdParent.putIfAbsent(name, obj) != null) {
+				return error(HttpResponseStatus.BAD_REQUEST, 1016, "The resource already exists");
+			}
+			objects.put(obj.id, obj);
+			if (dirRequest) {
+				dirs.putIfAbsent(entryPath, new ConcurrentSkipListMap<>());
+			} else {
+				update(obj, req.content(), null);
+			}
+			updateMetadata(obj, req.headers());
+			return new Response(HttpResponseStatus.CREATED)
+							.header(HttpHeaderNames.LOCATION, OBJ_URI_BASE + '/' + obj.id);
+		}
+		if (entry == null) {
+			return error(HttpResponseStatus.NOT_FOUND, 1003, "The requested object was not found");
+		}
+		if (entry.directory && HttpMethod.GET.equals(method) && query.isEmpty()) {
+			return listDirectory(entryPath, req.headers());
+		}
+		if (HttpMethod.POST.equals(method) && QUERY_RENAME.equals(query)) {
+			return rename(parent, name, entry, req.headers().get(KEY_X_EMC_PATH));
+		}
+		return handleExisting(req, method, query, entry, entryPath);
+	}
+
+	/**
+	 @param nsPath the namespace path if the object is addressed by the path, null otherwise
+	 */
+	private Response handleExisting(
+					final FullHttpRequest req, final HttpMethod method, final String query, final StoredObject obj,
+					final String nsPath) {
+		final var headers = req.headers();
+		if (QUERY_METADATA_USER.equals(query)) {
+			if (HttpMethod.GET.equals(method)) {
+				final var resp = new Response(HttpResponseStatus.OK);
+				synchronized (obj) {
+					if (!obj.meta.isEmpty()) {
+						resp.header(KEY_X_EMC_META, joinMetadata(obj.meta));
+					}
+					if (!obj.listableMeta.isEmpty()) {
+						resp.header(KEY_X_EMC_LISTABLE_META, joinMetadata(obj.listableMeta));
+					}
+				}
+				return resp;
+			} else if (HttpMethod.POST.equals(method)) {
+				updateMetadata(obj, headers);
+				return new Response(HttpResponseStatus.OK);
+			} else if (HttpMethod.DELETE.equals(method)) {
+				final var tags = headers.get(KEY_X_EMC_TAGS);
+				if (tags != null) {
+					for (final var tag : tags.split(",")) {
+						removeMetadata(obj, tag.trim());
+					}
+				}
+				return new Response(HttpResponseStatus.NO_CONTENT);
+			}
+		} else if (QUERY_METADATA_SYSTEM.equals(query) && HttpMethod.GET.equals(method)) {
+			final int size;
+			synchronized (obj) {
+				size = obj.size;
+			}
+			return new Response(HttpResponseStatus.OK).header(
+							KEY_X_EMC_META, "objectid=" + obj.id + ", size=" + size + ", type="
+											+ (obj.directory ? "directory" : "regular"));
+		} else if (query.isEmpty()) {
+			if (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method)) {
+				return read(obj, headers.get(HttpHeaderNames.RANGE));
+			} else if (HttpMethod.PUT.equals(method) && !obj.directory) {
+				final var rangeError = update(obj, req.content(), headers.get(HttpHeaderNames.RANGE));
+				if (rangeError != null) {
+					return rangeError;
+				}
+				updateMetadata(obj, headers);
+				return new Response(HttpResponseStatus.OK);
+			} else if (HttpMethod.DELETE.equals(method)) {
+				return delete(obj, nsPath);
+			}
+		}
+		return error(HttpResponseStatus.BAD_REQUEST, 1008, "Invalid resource: " + method + " ?" + query);
+	}
+
+	private StoredObject newObject(final boolean directory) {
+		return new StoredObject(String.format("%028x%016x", idPrefix, idSeq.incrementAndGet()), directory);
+	}
+
+	/** @return the directory children map, null if the directory is missing and couldn't be created */
+	private NavigableMap<String, StoredObject> ensureDirectory(final String dirPath) {
+		var dir = dirs.get(dirPath);
+		if (dir == null) {
+			final var parentPath = parentPath(dirPath);
+			final var parent = ensureDirectory(parentPath);
+			if (parent == null) {
+				return null;
+			}
+			final var name = dirPath.substring(parentPath.length() + 1);
+			final var obj = newObject(true);
+			final var existing = parent.putIfAbsent(name, obj);
+			if (existing == null) {
+				objects.put(obj.id, obj);
+			} else if (!existing.directory) {
+				return null;
+			}
+			dirs.putIfAbsent(dirPath, new ConcurrentSkipListMap<>());
+			dir = dirs.get(dirPath);
+		}
+		return dir;
+	}
+
+	private Response read(final StoredObject obj, final String range) {
+		synchronized (obj) {
+			if (range == null) {
+				return new Response(HttpResponseStatus.OK, Unpooled.copiedBuffer(obj.data, 0, obj.size));
+			}
+			final var bounds = parseRange(range, obj.size);
+			if (bounds == null || bounds[0] >= obj.size) {
+				return error(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE, 1004, "Invalid range: " + range);
+			}
+			final var end = Math.min(bounds[1], obj.size - 1);
+			return new Response(
+							HttpResponseStatus.PARTIAL_CONTENT,
+							Unpooled.copiedBuffer(obj.data, (int) bounds[0], (int) (end - bounds[0] + 1)))
+							.header(HttpHeaderNames.CONTENT_RANGE, "bytes " + bounds[0] + "-" + end + "/" + obj.size);
+		}
+	}
+
+	/** @return the error response if the range is invalid, null if updated */
+	private static Response update(final StoredObject obj, final ByteBuf content, final String range) {
+		final var len = content.readableBytes();
+		synchronized (obj) {
+			final long offset;
+			if (range == null) {
+				offset = 0;
+				obj.size = 0;
+			} else {
+				final var bounds = parseRange(range, Long.MAX_VALUE);
+				if (bounds == null || bounds[0] > obj.size || bounds[1] - bounds[0] + 1 != len) {
+					return error(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE, 1004, "Invalid range: " + range);
+				}
+				offset = bounds[0];
+			}
+			final var newSize = Math.max(obj.size, offset + len);
+			if (newSize > MAX_CONTENT_LENGTH) {
+				return error(HttpResponseStatus.BAD_REQUEST, 1002, "The object size limit exceeded");
+			}
+			if (newSize > obj.data.length) {
+				final var newCapacity = Math.max(newSize, Math.min(MAX_CONTENT_LENGTH, 2L * obj.data.length));
+				final var newData = new byte[(int) newCapacity];
+				System.arraycopy(obj.data, 0, newData, 0, obj.size);
+				obj.data = newData;
+			}
+			content.getBytes(content.readerIndex(), obj.data, (int) offset, len);
+			obj.size = (int) newSize;
+		}
+		return null;
+	}
+
+	/**
+	 @param range the range header value, e.g. "bytes=0-99" or "bytes=100-"
+	 @param size the object size used as the end bound for the open range
+	 @return the inclusive bounds, null if the range is invalid
+	 */
+	private static long[] parseRange(final String range, final long size) {
+		if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+			return null;
+		}
+		final var sepPos = range.indexOf('-');
+		if (sepPos < 0) {
+			return null;
+		}
+		try {
+			final var start = Long.parseLong(range.substring("bytes=".length(), sepPos).trim());
+			final var endStr = range.substring(sepPos + 1).trim();
+			final var end = endStr.isEmpty() ? size - 1 : Long.parseLong(endStr);
+			return start < 0 || end < start ? null : new long[] { start, end };
+		} catch (final NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private Response delete(final StoredObject obj, final String nsPath) {
+		if (obj.directory) {
+			if (nsPath == null) {
+				return error(HttpResponseStatus.BAD_REQUEST, 1008, "The directory should be deleted by the path");
+			}
+			final var dir = dirs.get(nsPath);
+			if (dir != null && !dir.isEmpty()) {
+				return error(HttpResponseStatus.BAD_REQUEST, 1023, "The directory is not empty");
+			}
+			dirs.remove(nsPath);
+		}
+		objects.remove(obj.id);
+		if (nsPath != null) {
+			final var parentPath = parentPath(nsPath);
+			final var parent = dirs.get(parentPath);
+			if (parent != null) {
+				parent.remove(nsPath.substring(parentPath.length() + 1), obj);
+			}
+		} else {
+			// the namespace file may be deleted by id too
+			dirs.values().forEach(dir -> dir.values().remove(obj));
+		}
+		synchronized (obj) {
+			obj.listableMeta.keySet().forEach(tag -> untag(tag, obj.id));
+			obj.listableMeta.clear();
+		}
+		return new Response(HttpResponseStatus.NO_CONTENT);
+	}
+
+	private Response rename(
+					final NavigableMap<String, StoredObject> srcParent, final String srcName, final StoredObject obj,
+					final String dstPath) {
+		if (dstPath == null || dstPath.isEmpty()) {
+			return error(HttpResponseStatus.BAD_REQUEST, 1002, "The destination path is missing");
+		}
+		if (obj.directory) {
+			return error(HttpResponseStatus.BAD_REQUEST, 1008, "The directory rename is not supported");
+		}
+		final var entryPath = dstPath.startsWith("/") ? dstPath : '/' + dstPath;
+		final var parentPath = parentPath(entryPath);
+		final var dstParent = parentDirsRequired ? dirs.get(parentPath) : ensureDirectory(parentPath);
+		if (dstParent == null) {
+			return error(HttpResponseStatus.NOT_FOUND, 1003, "The parent directory was not found");
+		}
+		if (dstParent.putIfAbsent(entryPath.substring(parentPath.length() + 1), obj) != null) {
+			return error(HttpResponseStatus.BAD_REQUEST, 1016, "The resource already exists");
+		}
+		srcParent.remove(srcName, obj);
+		return new Response(HttpResponseStatus.OK);
+	}
+
+	private Response listDirectory(final String dirPath, final HttpHeaders headers) {
+		final var dir = dirs.get(dirPath);
+		if (dir == null) {
+			return error(HttpResponseStatus.NOT_FOUND, 1003, "The requested object was not found");
+		}
+		final var limit = listLimit(headers);
+		final var token = headers.get(KEY_X_EMC_TOKEN);
+		final var entries = token == null ? dir : dir.tailMap(token, false);
+		final var xml = new StringBuilder(XML_HEADER)
+						.append("<ListDirectoryResponse xmlns='http://www.emc.com/cos/'>\n<DirectoryList>\n");
+		var count = 0;
+		String lastName = null;
+		for (final var e : entries.entrySet()) {
+			if (count == limit) {
+				break;
+			}
+			final var obj = e.getValue();
+			final int size;
+			synchronized (obj) {
+				size = obj.size;
+			}
+			xml.append("<DirectoryEntry><ObjectID>").append(obj.id).append("</ObjectID><FileType>")
+							.append(obj.directory ? "directory" : "regular").append("</FileType><Filename>")
+							.append(e.getKey()).append("</Filename><SystemMetadataList><Metadata><Name>size</Name>")
+							.append("<Value>").append(size).append("</Value></Metadata></SystemMetadataList>")
+							.append("</DirectoryEntry>\n");
+			lastName = e.getKey();
+			count++;
+		}
+		xml.append("</DirectoryList>\n</ListDirectoryResponse>\n");
+		final var resp = xmlResponse(xml);
+		if (count == limit && lastName != null && entries.higherKey(lastName) != null) {
+			resp.header(KEY_X_EMC_TOKEN, lastName);
+		}
+		return resp;
+	}
+
+	private Response tagQuery(final HttpHeaders headers) {
+		final var tag = headers.get(KEY_X_EMC_TAGS);
+		if (tag == null || tag.isEmpty()) {
+			return error(HttpResponseStatus.BAD_REQUEST, 1002, "The tag is missing");
+		}
+		final var ids = idsByTag.get(tag.trim());
+		if (ids == null) {
+			return error(HttpResponseStatus.NOT_FOUND, 1003, "The requested object was not found");
+		}
+		final var limit = listLimit(headers);
+		final var token = headers.get(KEY_X_EMC_TOKEN);
+		final var pageIds = token == null ? ids : ids.tailSet(token, false);
+		final var xml = new StringBuilder(XML_HEADER).append("<ListObjectsResponse xmlns='http://www.emc.com/cos/'>\n");
+		var count = 0;
+		String lastId = null;
+		for (final var id : pageIds) {
+			if (count == limit) {
+				break;
+			}
+			xml.append("<Object><ObjectID>").append(id).append("</ObjectID></Object>\n");
+			lastId = id;
+			count++;
+		}
+		xml.append("</ListObjectsResponse>\n");
+		final var resp = xmlResponse(xml);
+		if (count == limit && lastId != null && pageIds.higher(lastId) != null) {
+			resp.header(KEY_X_EMC_TOKEN, lastId);
+		}
+		return resp;
+	}
+
+	private static int listLimit(final HttpHeaders headers) {
+		final var limit = headers.getInt(KEY_X_EMC_LIMIT, DEFAULT_LIST_LIMIT);
+		return limit > 0 ? limit : DEFAULT_LIST_LIMIT;
+	}
+
+	private void updateMetadata(final StoredObject obj, final HttpHeaders headers) {
+		final var meta = headers.get(KEY_X_EMC_META);
+		final var listableMeta = headers.get(KEY_X_EMC_LISTABLE_META);
+		synchronized (obj) {
+			if (meta != null) {
+				parseMetadata(meta, obj.meta);
+			}
+			if (listableMeta != null) {
+				parseMetadata(listableMeta, obj.listableMeta);
+				obj.listableMeta.keySet().forEach(
+								tag -> idsByTag.computeIfAbsent(tag, t -> new ConcurrentSkipListSet<>()).add(obj.id));
+			}
+		}
+	}
+
+	private void removeMetadata(final StoredObject obj, final String name) {
+		synchronized (obj) {
+			obj.meta.remove(name);
+			if (obj.listableMeta.remove(name) != null) {
+				untag(name, obj.id);
+			}
+		}
+	}
+
+	private void untag(final String tag, final String id) {
+		final var ids = idsByTag.get(tag);
+		if (ids != null) {
+			ids.remove(id);
+		}
+	}
+
+	private static void parseMetadata(final String src, final Map<String, String> dst) {
+		for (final var pair : src.split(",")) {
+			final var sepPos = pair.indexOf('=');
+			if (sepPos < 0) {
+				dst.put(pair.trim(), "");
+			} else {
+				dst.put(pair.substring(0, sepPos).trim(), pair.substring(sepPos + 1).trim());
+			}
+		}
+	}
+
+	private static String joinMetadata(final Map<String, String> meta) {
+		final var s = new StringBuilder();
+		meta.forEach((name, value) -> {
+			if (s.length() > 0) {
+				s.append(", ");
+			}
+			s.append(name).append('=').append(value);
+		});
+		return s.toString();
+	}
+
+	/** @return the error response if the request is not authenticated, null otherwise */
+	private Response authenticate(final FullHttpRequest req, final String path) {
+		if (secretByUid.isEmpty()) {
+			return null;
+		}
+		final var headers = req.headers();
+		final var uidHeader = headers.get(KEY_X_EMC_UID);
+		if (uidHeader == null) {
+			return error(HttpResponseStatus.FORBIDDEN, 1033, "The uid is missing");
+		}
+		final var sepPos = uidHeader.indexOf('/');
+		final var uid = sepPos < 0 ? uidHeader : uidHeader.substring(sepPos + 1);
+		if (sepPos > 0 && !subtenants.containsKey(uidHeader.substring(0, sepPos))) {
+			return error(HttpResponseStatus.FORBIDDEN, 1033, "Unknown subtenant: " + uidHeader);
+		}
+		if (!secretByUid.containsKey(uid)) {
+			return error(HttpResponseStatus.FORBIDDEN, 1033, "Unknown uid: " + uid);
+		}
+		final var date = headers.get(HttpHeaderNames.DATE);
+		if (date != null) {
+			final var parsedDate = DateFormatter.parseHttpDate(date);
+			if (parsedDate == null
+							|| Math.abs(System.currentTimeMillis() - parsedDate.getTime()) > MAX_CLOCK_SKEW_MILLIS) {
+				return error(HttpResponseStatus.FORBIDDEN, 1037, "The request has expired");
+			}
+		}
+		final var sig = headers.get(KEY_X_EMC_SIGNATURE);
+		if (sig == null) {
+			return error(HttpResponseStatus.FORBIDDEN, 1032, "The signature is missing");
+		}
+		final var expectedSig = sign(uid, canonical(req.method(), req.uri(), headers));
+		if (!MessageDigest.isEqual(expectedSig.getBytes(UTF_8), sig.trim().getBytes(UTF_8))) {
+			return error(HttpResponseStatus.FORBIDDEN, 1032, "The signature doesn't match");
+		}
+		return null;
+	}
+
+	/**
+	 The canonical request representation: the method, the content type, the range, the date, the request URI and the
+	 x-emc-* headers (except the signature) sorted by the lower case name, one per line
+	 */
+	static String canonical(final HttpMethod method, final String uri, final HttpHeaders headers) {
+		final var s = new StringBuilder(method.name());
+		for (final var name : new CharSequence[] {
+						HttpHeaderNames.CONTENT_TYPE, HttpHeaderNames.RANGE, HttpHeaderNames.DATE
+		}) {
+			s.append('\n');
+			final var value = headers.get(name);
+			if (value != null) {
+				s.append(value);
+			}
+		}
+		s.append('\n').append(uri);
+		final Map<String, String> emcHeaders = new TreeMap<>();
+		for (final var header : headers) {
+			final var name = header.getKey().toLowerCase(Locale.ROOT);
+			if (name.startsWith("x-emc-") && !name.contentEquals(KEY_X_EMC_SIGNATURE)) {
+				emcHeaders.put(name, header.getValue().trim().replaceAll("\\s+", " "));
+			}
+		}
+		emcHeaders.forEach((name, value) -> s.append('\n').append(name).append(':').append(value));
+		return s.toString();
+	}
+
+	private String sign(final String uid, final String canonical) {
+		final var mac = macByUid.get().computeIfAbsent(uid, u -> {
+			try {
+				final var m = Mac.getInstance(SIGN_METHOD);
+				m.init(new SecretKeySpec(secretByUid.get(u), SIGN_METHOD));
+				return m;
+			} catch (final NoSuchAlgorithmException | InvalidKeyException e) {
+				throw new AssertionError(e);
+			}
+		});
+		return BASE64_ENCODER.encodeToString(mac.doFinal(canonical.getBytes(UTF_8)));
+	}
+
+	/** @return the parent directory path w/o the trailing slash, empty for the root */
+	private static String parentPath(final String path) {
+		final var sepPos = path.lastIndexOf('/');
+		return sepPos > 0 ? path.substring(0, sepPos) : "";
+	}
+
+	private static Response xmlResponse(final CharSequence xml) {
+		return new Response(HttpResponseStatus.OK, Unpooled.copiedBuffer(xml, UTF_8))
+						.header(HttpHeaderNames.CONTENT_TYPE, "text/xml");
+	}
+
+	private static Response error(final HttpResponseStatus status, final int code, final String message) {
+		final var xml = XML_HEADER + "<Error>\n<Code>" + code + "</Code>\n<Message>" + message
+						+ "</Message>\n</Error>\n";
+		return new Response(status, Unpooled.copiedBuffer(xml, UTF_8)).header(HttpHeaderNames.CONTENT_TYPE, "text/xml");
+	}
+}
@@ -0,0 +1,286 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.EmcConstants.KEY_X_EMC_SIGNATURE;
+import static com.emc.mongoose.storage.driver.coop.netty.http.EmcConstants.KEY_X_EMC_UID;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_SUBTENANT_ID;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_LIMIT;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_PATH;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_TOKEN;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.OBJ_ID_LENGTH;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.SIGN_METHOD;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AtmosEmulatorTest {
+
+	private static final String UID = "user1";
+	private static final String SECRET = Base64.getEncoder().encodeToString("secret1".getBytes(UTF_8));
+
+	private AtmosEmulator emulator;
+	private EmbeddedChannel channel;
+	private String subtenantId = null;
+
+	@Before
+	public void setUp() {
+		emulator = new AtmosEmulator(Collections.singletonMap(UID, SECRET));
+		channel = new EmbeddedChannel(emulator.handler());
+	}
+
+	@After
+	public void tearDown() {
+		channel.finishAndReleaseAll();
+		emulator.close();
+	}
+
+	private FullHttpResponse request(
+					final HttpMethod method, final String uri, final String content, final Map<String, String> headers) {
+		final var reqHeaders = new DefaultHttpHeaders();
+		reqHeaders.set(HttpHeaderNames.DATE, DateFormatter.format(new Date()));
+		headers.forEach(reqHeaders::set);
+		reqHeaders.set(KEY_X_EMC_UID, subtenantId == null ? UID : subtenantId + '/' + UID);
+		reqHeaders.set(KEY_X_EMC_SIGNATURE, sign(AtmosEmulator.canonical(method, uri, reqHeaders)));
+		return request(method, uri, content, reqHeaders);
+	}
+
+	private FullHttpResponse request(
+					final HttpMethod method, final String uri, final String content, final HttpHeaders headers) {
+		final FullHttpRequest req = new DefaultFullHttpRequest(
+						HttpVersion.HTTP_1_1, method, uri,
+						content == null ? Unpooled.EMPTY_BUFFER : Unpooled.copiedBuffer(content, UTF_8));
+		req.headers().set(headers);
+		channel.writeInbound(req);
+		final FullHttpResponse resp = channel.readOutbound();
+		assertNull(channel.readOutbound());
+		return resp;
+	}
+
+	private static String sign(final String canonical) {
+		try {
+			final var mac = Mac.getInstance(SIGN_METHOD);
+			mac.init(new SecretKeySpec(Base64.getDecoder().decode(SECRET), SIGN_METHOD));
+			return Base64.getEncoder().encodeToString(mac.doFinal(canonical.getBytes(UTF_8)));
+		} catch (final NoSuchAlgorithmException | InvalidKeyException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static String content(final FullHttpResponse resp) {
+		try {
+			return resp.content().toString(UTF_8);
+		} finally {
+			resp.release();
+		}
+	}
+
+	@Test
+	public void testCanonical() {
+		final var headers = new DefaultHttpHeaders();
+		headers.set(HttpHeaderNames.CONTENT_TYPE, "application/octet-stream");
+		headers.set(HttpHeaderNames.DATE, "Thu, 05 Jun 2008 16:38:19 GMT");
+		headers.set("X-Emc-Uid", "6039ac182f194e15b9261d73ce044939/user1");
+		headers.set("x-emc-meta", "part1=buy,  part2=sell");
+		headers.set("x-emc-signature", "ignored");
+		headers.set("X-Other", "ignored");
+		assertEquals(
+						"POST\napplication/octet-stream\n\nThu, 05 Jun 2008 16:38:19 GMT\n/rest/objects\n"
+										+ "x-emc-meta:part1=buy, part2=sell\nx-emc-uid:6039ac182f194e15b9261d73ce044939/user1",
+						AtmosEmulator.canonical(HttpMethod.POST, "/rest/objects", headers));
+	}
+
+	@Test
+	public void testObjectLifecycle() {
+		var resp = request(HttpMethod.POST, "/rest/objects", "0123456789", Collections.emptyMap());
+		assertEquals(HttpResponseStatus.CREATED, resp.status());
+		final var location = resp.headers().get(HttpHeaderNames.LOCATION);
+		resp.release();
+		assertTrue(location.startsWith("/rest/objects/"));
+		assertEquals(OBJ_ID_LENGTH, location.length() - "/rest/objects/".length());
+
+		resp = request(HttpMethod.GET, location, null, Collections.singletonMap("Range", "bytes=2-4"));
+		assertEquals(HttpResponseStatus.PARTIAL_CONTENT, resp.status());
+		assertEquals("234", content(resp));
+
+		// overwrite the tail and append
+		resp = request(HttpMethod.PUT, location, "abcd", Collections.singletonMap("Range", "bytes=8-11"));
+		assertEquals(HttpResponseStatus.OK, resp.status());
+		resp.release();
+		resp = request(HttpMethod.GET, location, null, Collections.emptyMap());
+		assertEquals(HttpResponseStatus.OK, resp.status());
+		assertEquals("01234567abcd", content(resp));
+
+		// the update can't start beyond the object end
+		resp = request(HttpMethod.PUT, location, "efgh", Collections.singletonMap("Range", "bytes=13-16"));
+		assertEquals(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE, resp.status());
+		assertTrue(content(resp).contains("<Code>1004</Code>"));
+
+		resp = request(HttpMethod.GET, location, null, Collections.singletonMap("Range", "bytes=12-"));
+		assertEquals(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE, resp.status());
+		assertTrue(content(resp).contains("<Code>1004</Code>"));
+
+		resp = request(HttpMethod.HEAD, location, null, Collections.emptyMap());
+		assertEquals(HttpResponseStatus.OK, resp.status());
+		assertEquals(12, resp.headers().getInt(HttpHeaderNames.CONTENT_LENGTH).intValue());
+		assertEquals("", content(resp));
+
+		resp = request(HttpMethod.DELETE, location, null, Collections.emptyMap());
+		assertEquals(HttpResponseStatus.NO_CONTENT, resp.status());
+		resp.release();
+		resp = request(HttpMethod.GET, location, null, Collections.emptyMap());
+		assertEquals(HttpResponseStatus.NOT_FOUND, resp.status());
+		assertTrue(content(resp).contains("<Code>1003</Code>"));
+		assertEquals(0, emulator.objectCount());
+	}
+
+	@Test
+	public void testSignatureValidation() {
+		final var headers = new DefaultHttpHeaders();
+		headers.set(KEY_X_EMC_UID, UID);
+		headers.set(KEY_X_EMC_SIGNATURE, sign("GET\n\n\n\n/rest/service\nx-emc-uid:" + UID));
+		var resp = request(HttpMethod.GET, "/rest/service", null, headers);
+		assertEquals(HttpResponseStatus.OK, resp.status());
+		resp.release();
+
+		headers.set(KEY_X_EMC_SIGNATURE, sign("GET\n\n\n\n/rest/objects\nx-emc-uid:" + UID));
+		resp = request(HttpMethod.GET, "/rest/service", null, headers);
+		assertEquals(HttpResponseStatus.FORBIDDEN, resp.status());
+		assertTrue(content(resp).contains("<Code>1032</Code>"));
+
+		headers.set(KEY_X_EMC_UID, "user2");
+		resp = request(HttpMethod.GET, "/rest/service", null, headers);
+		assertEquals(HttpResponseStatus.FORBIDDEN, resp.status());
+		assertTrue(content(resp).contains("<Code>1033</Code>"));
+	}
+
+	@Test
+	public void testSubtenant() {
+		subtenantId = "0123456789abcdef";
+		var resp = request(HttpMethod.GET, "/rest/service", null, Collections.emptyMap());
+		assertEquals(HttpResponseStatus.FORBIDDEN, resp.status());
+		resp.release();
+
+		subtenantId = null;
+		resp = request(HttpMethod.PUT, "/rest/subtenant", null, Collections.emptyMap());
+		assertEquals(HttpResponseStatus.CREATED, resp.status());
+		subtenantId = resp.headers().get(KEY_SUBTENANT_ID);
+		resp.release();
+		resp = request(HttpMethod.GET, "/rest/service", null, Collections.emptyMap());
+		assertEquals(HttpResponseStatus.OK, resp.status());
+		resp.release();
+
+		final var createdSubtenantId = subtenantId;
+		subtenantId = null;
+		resp = request(HttpMethod.DELETE, "/rest/subtenant/" + createdSubtenantId, null, Collections.emptyMap());
+		assertEquals(HttpResponseStatus.NO_CONTENT, resp.status());
+		resp.release();
+	}
+
+	@Test
+	public void testNamespace() {
+		for (var i = 0; i < 5; i++) {
+			final var resp = request(
+							HttpMethod.POST, "/rest/namespace/dir0/dir1/file" + i, "data" + i, Collections.emptyMap());
+			assertEquals(HttpResponseStatus.CREATED, resp.status());
+			resp.release();
+		}
+		var resp = request(HttpMethod.POST, "/rest/namespace/dir0/dir1/file0", "x", Collections.emptyMap());
+		assertEquals(HttpResponseStatus.BAD_REQUEST, resp.status());
+		assertTrue(content(resp).contains("<Code>1016</Code>"));
+		resp = request(HttpMethod.POST, "/rest/namespace/dir0/", null, Collections.emptyMap());
+		assertTrue(content(resp).contains("<Code>1016</Code>"));
+
+		// paged listing
+		final Map<String, String> headers = new HashMap<>();
+		headers.put(KEY_X_EMC_LIMIT, "3");
+		resp = request(HttpMethod.GET, "/rest/namespace/dir0/dir1/", null, headers);
+		assertEquals(HttpResponseStatus.OK, resp.status());
+		final var token = resp.headers().get(KEY_X_EMC_TOKEN);
+		var page = content(resp);
+		assertTrue(page.contains("<Filename>file0</Filename>"));
+		assertTrue(page.contains("<Filename>file2</Filename>"));
+		assertFalse(page.contains("<Filename>file3</Filename>"));
+		headers.put(KEY_X_EMC_TOKEN, token);
+		resp = request(HttpMethod.GET, "/rest/namespace/dir0/dir1/", null, headers);
+		assertNull(resp.headers().get(KEY_X_EMC_TOKEN));
+		page = content(resp);
+		assertFalse(page.contains("<Filename>file2</Filename>"));
+		assertTrue(page.contains("<Filename>file4</Filename>"));
+
+		resp = request(
+						HttpMethod.POST, "/rest/namespace/dir0/dir1/file4?rename", null,
+						Collections.singletonMap(KEY_X_EMC_PATH, "dir2/file5"));
+		assertEquals(HttpResponseStatus.OK, resp.status());
+		resp.release();
+		resp = request(HttpMethod.GET, "/rest/namespace/dir2/file5", null, Collections.emptyMap());
+		assertEquals("data4", content(resp));
+		resp = request(HttpMethod.GET, "/rest/namespace/dir0/dir1/file4", null, Collections.emptyMap());
+		assertEquals(HttpResponseStatus.NOT_FOUND, resp.status());
+		resp.release();
+
+		resp = request(HttpMethod.DELETE, "/rest/namespace/dir0/dir1/", null, Collections.emptyMap());
+		assertEquals(HttpResponseStatus.BAD_REQUEST, resp.status());
+		resp.release();
+	}
+
+	@Test
+	public void testParentDirsRequired() {
+		emulator.parentDirsRequired(true);
+		var resp = request(HttpMethod.POST, "/rest/namespace/dir0/file0", "x", Collections.emptyMap());
+		assertEquals(HttpResponseStatus.NOT_FOUND, resp.status());
+		resp.release();
+		resp = request(HttpMethod.POST, "/rest/namespace/dir0/", null, Collections.emptyMap());
+		assertEquals(HttpResponseStatus.CREATED, resp.status());
+		resp.release();
+		resp = request(HttpMethod.POST, "/rest/namespace/dir0/file0", "x", Collections.emptyMap());
+		assertEquals(HttpResponseStatus.CREATED, resp.status());
+		resp.release();
+	}
+
+	@Test
+	public void testTagQuery() {
+		final var headers = Collections.singletonMap("x-emc-listable-meta", "tag0=, tag1=");
+		for (var i = 0; i < 3; i++) {
+			request(HttpMethod.POST, "/rest/objects", "x", headers).release();
+		}
+		request(HttpMethod.POST, "/rest/objects", "x", Collections.emptyMap()).release();
+		final var resp = request(HttpMethod.GET, "/rest/objects", null, Collections.singletonMap("x-emc-tags", "tag1"));
+		assertEquals(HttpResponseStatus.OK, resp.status());
+		assertEquals(3, content(resp).split("<ObjectID>", -1).length - 1);
+	}
+
+	@Test
+	public void testThrottling() {
+		emulator.throttleFraction(1);
+		final var resp = request(HttpMethod.GET, "/rest/service", null, Collections.emptyMap());
+		assertEquals(HttpResponseStatus.INTERNAL_SERVER_ERROR, resp.status());
+		assertTrue(content(resp).contains("<Code>1040</Code>"));
+		assertEquals(1, emulator.throttledCount());
+	}
+}
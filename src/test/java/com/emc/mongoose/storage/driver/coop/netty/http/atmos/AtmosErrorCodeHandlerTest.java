@@ -0,0 +1,67 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+public class AtmosErrorCodeHandlerTest {
+
+	private static void respond(
+					final EmbeddedChannel channel, final HttpResponseStatus status, final String... contentChunks) {
+		channel.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, status));
+		for (var i = 0; i < contentChunks.length - 1; i++) {
+			channel.writeInbound(new DefaultHttpContent(Unpooled.copiedBuffer(contentChunks[i], US_ASCII)));
+		}
+		if (contentChunks.length > 0) {
+			channel.writeInbound(
+							new DefaultLastHttpContent(
+											Unpooled.copiedBuffer(contentChunks[contentChunks.length - 1], US_ASCII)));
+		} else {
+			channel.writeInbound(LastHttpContent.EMPTY_LAST_CONTENT);
+		}
+		Object msg;
+		while (null != (msg = channel.readInbound())) {
+			ReferenceCountUtil.release(msg);
+		}
+	}
+
+	@Test
+	public void testErrorCodeSplitOverChunks() {
+		final var counters = new AtmosErrorCodeCounters();
+		final var channel = new EmbeddedChannel(new AtmosErrorCodeHandler(counters));
+		respond(
+						channel, HttpResponseStatus.INTERNAL_SERVER_ERROR,
+						"<?xml version='1.0' encoding='UTF-8'?>\n<Error>\n<Co", "de>10", "40</Code>\n",
+						"<Message>Server busy.</Message></Error>");
+		respond(
+						channel, HttpResponseStatus.NOT_FOUND,
+						"<Error><Code>1003</Code><Message>The requested object was not found.</Message></Error>");
+		respond(
+						channel, HttpResponseStatus.NOT_FOUND,
+						"<Error><Code>1003</Code><Message>The requested object was not found.</Message></Error>");
+		assertEquals(1, counters.count(1040));
+		assertEquals(2, counters.count(1003));
+		assertEquals(0, counters.count(AtmosErrorCodeCounters.CODE_UNKNOWN));
+		assertEquals("1003 (object not found): 2, 1040 (server busy): 1", counters.toString());
+	}
+
+	@Test
+	public void testNoErrorCode() {
+		final var counters = new AtmosErrorCodeCounters();
+		final var channel = new EmbeddedChannel(new AtmosErrorCodeHandler(counters));
+		respond(channel, HttpResponseStatus.SERVICE_UNAVAILABLE);
+		respond(channel, HttpResponseStatus.OK, "<Error><Code>1003</Code></Error>");
+		assertEquals(1, counters.count(AtmosErrorCodeCounters.CODE_UNKNOWN));
+		assertEquals(0, counters.count(1003));
+	}
+}
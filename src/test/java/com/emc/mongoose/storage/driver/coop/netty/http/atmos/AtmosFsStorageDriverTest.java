@@ -38,6 +38,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import org.junit.After;
 import org.junit.Test;
@@ -91,6 +92,7 @@ public class AtmosFsStorageDriverTest extends AtmosStorageDriver {
 			config.val("storage-net-node-addrs", Collections.singletonList("127.0.0.1"));
 			config.val("storage-net-node-port", 9024);
 			config.val("storage-net-node-connAttemptsLimit", 0);
+			AtmosConfigDefaults.apply(config);
 			config.val("storage-net-http-fsAccess", true);
 			config.val(
 							"storage-net-http-headers",
@@ -128,9 +130,10 @@ public class AtmosFsStorageDriverTest extends AtmosStorageDriver {
 	}
 
 	@Override
-	protected FullHttpResponse executeHttpRequest(final FullHttpRequest httpRequest) {
+	protected CompletableFuture<FullHttpResponse> executeHttpRequest(
+					final String nodeAddr, final FullHttpRequest httpRequest) {
 		httpRequestsLog.add(httpRequest);
-		return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+		return CompletableFuture.completedFuture(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
 	}
 
 	@After
@@ -219,4 +222,12 @@ public class AtmosFsStorageDriverTest extends AtmosStorageDriver {
 										+ credential.getUid(),
 						canonicalReq);
 	}
+
+	@Test
+	public void testDirectoryUriPath() {
+		final DataItem dataItem = new DataItemImpl("dir1", 0, 0);
+		assertEquals(AtmosApi.NS_URI_BASE + "/dir0/dir1/", pathUriPath(dataItem, null, "/dir0", OpType.CREATE));
+		assertEquals(HttpMethod.POST, pathHttpMethod(OpType.CREATE));
+		assertEquals(HttpMethod.DELETE, pathHttpMethod(OpType.DELETE));
+	}
 }
@@ -0,0 +1,62 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class AtmosLatencyHistogramTest {
+
+	@Test
+	public void testIndexBounds() {
+		var prevIndex = -1;
+		for (var value = 0L; value < 100_000; value++) {
+			final var index = AtmosLatencyHistogram.index(value);
+			assertTrue(index == prevIndex || index == prevIndex + 1);
+			assertTrue(AtmosLatencyHistogram.lowerBound(index) <= value);
+			assertTrue(AtmosLatencyHistogram.lowerBound(index + 1) > value);
+			prevIndex = index;
+		}
+		assertEquals(AtmosLatencyHistogram.INDEX_COUNT - 1, AtmosLatencyHistogram.index(Long.MAX_VALUE));
+		assertTrue(AtmosLatencyHistogram.lowerBound(AtmosLatencyHistogram.INDEX_COUNT - 1) > 0);
+	}
+
+	@Test
+	public void testQuantiles() {
+		final var histogram = new AtmosLatencyHistogram();
+		for (var value = 1L; value <= 10_000; value++) {
+			histogram.record(value);
+		}
+		histogram.record(-1); // ignored
+		assertEquals(10_000, histogram.count());
+		assertEquals(5_000.5, histogram.mean(), 0.01);
+		assertEquals(10_000, histogram.max());
+		assertEquals(5_000, histogram.quantile(0.5), 5_000 / 16);
+		assertEquals(9_900, histogram.quantile(0.99), 9_900 / 16);
+		assertEquals(10_000, histogram.quantile(1));
+		assertEquals(0, new AtmosLatencyHistogram().quantile(0.5));
+	}
+
+	@Test
+	public void testConcurrentRecording()
+					throws Exception {
+		final var histogram = new AtmosLatencyHistogram();
+		final List<Thread> threads = new ArrayList<>();
+		for (var i = 0; i < 4; i++) {
+			final var thread = new Thread(() -> {
+				for (var value = 0L; value < 100_000; value++) {
+					histogram.record(value % 100);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (final var thread : threads) {
+			thread.join();
+		}
+		assertEquals(400_000, histogram.count());
+		assertEquals(99, histogram.max());
+	}
+}
@@ -0,0 +1,120 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class AtmosListingCursorTest {
+
+	/** The pages of the given size, the token is the index of the next page */
+	private static AtmosListingPage page(final String token, final int pageSize, final int totalCount) {
+		final var pageIndex = token == null ? 0 : Integer.parseInt(token);
+		final List<AtmosListingPage.Entry> entries = new ArrayList<>();
+		for (var i = pageIndex * pageSize; i < Math.min(totalCount, (pageIndex + 1) * pageSize); i++) {
+			entries.add(new AtmosListingPage.Entry("file" + i, false, i));
+		}
+		final var nextToken = (pageIndex + 1) * pageSize < totalCount ? Integer.toString(pageIndex + 1) : null;
+		return new AtmosListingPage(entries, nextToken);
+	}
+
+	@Test
+	public void testPages()
+					throws Exception {
+		final List<String> loadedTokens = Collections.synchronizedList(new ArrayList<>());
+		final var executor = Executors.newSingleThreadExecutor();
+		try {
+			final var cursor = new AtmosListingCursor(
+							"/dir0", (path, token) -> {
+								assertEquals("/dir0", path);
+								loadedTokens.add(token);
+								return page(token, 10, 25);
+							},
+							executor);
+			final List<AtmosListingPage.Entry> entries = new ArrayList<>();
+			assertEquals(7, cursor.next(entries, 7));
+			// the 2nd page is requested in background as soon as the 1st one is received
+			final var deadline = System.currentTimeMillis() + 10_000;
+			while (loadedTokens.size() < 2 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(1);
+			}
+			assertEquals(2, loadedTokens.size());
+			assertEquals(13, cursor.next(entries, 13)); // crosses the page boundary
+			assertEquals(5, cursor.next(entries, 100));
+			assertEquals(0, cursor.next(entries, 100));
+			assertEquals(25, entries.size());
+			for (var i = 0; i < entries.size(); i++) {
+				assertEquals("file" + i, entries.get(i).name);
+			}
+			assertNull(loadedTokens.get(0));
+			assertEquals(List.of("1", "2"), loadedTokens.subList(1, 3));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testPageFailure()
+					throws Exception {
+		final var executor = Executors.newSingleThreadExecutor();
+		try {
+			final var cursor = new AtmosListingCursor(
+							"/dir0", (path, token) -> {
+								if (token == null) {
+									return page(null, 10, 100);
+								}
+								throw new IOException("Listing \"/dir0\": got response 500");
+							},
+							executor);
+			final List<AtmosListingPage.Entry> entries = new ArrayList<>();
+			assertEquals(10, cursor.next(entries, 10));
+			try {
+				cursor.next(entries, 10);
+				fail();
+			} catch (final IOException expected) {
+				assertEquals("Listing \"/dir0\": got response 500", expected.getMessage());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testCancelInterruptsPrefetch()
+					throws Exception {
+		final var prefetchStarted = new CountDownLatch(1);
+		final var prefetchInterrupted = new CountDownLatch(1);
+		final var executor = Executors.newSingleThreadExecutor();
+		try {
+			final var cursor = new AtmosListingCursor(
+							"/dir0", (path, token) -> {
+								if (token == null) {
+									return page(null, 10, 100);
+								}
+								prefetchStarted.countDown();
+								try {
+									Thread.sleep(60_000);
+								} catch (final InterruptedException e) {
+									prefetchInterrupted.countDown();
+								}
+								return page(token, 10, 100);
+							},
+							executor);
+			assertEquals(1, cursor.next(new ArrayList<>(), 1));
+			assertTrue(prefetchStarted.await(10, TimeUnit.SECONDS));
+			cursor.cancel();
+			assertTrue(prefetchInterrupted.await(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
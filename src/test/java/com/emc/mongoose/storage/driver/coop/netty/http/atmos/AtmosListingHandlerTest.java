@@ -0,0 +1,72 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import javax.xml.parsers.SAXParserFactory;
+import org.junit.Test;
+
+public class AtmosListingHandlerTest {
+
+	private static List<AtmosListingPage.Entry> parse(final String xml)
+					throws Exception {
+		final var handler = new AtmosListingHandler();
+		SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(xml.getBytes(UTF_8)), handler);
+		return handler.entries();
+	}
+
+	@Test
+	public void testDirectoryListing()
+					throws Exception {
+		final var entries = parse(
+						"<?xml version='1.0' encoding='UTF-8'?>\n"
+										+ "<ListDirectoryResponse xmlns='http://www.emc.com/cos/'><DirectoryList>"
+										+ "<DirectoryEntry><ObjectID>4fccd760a1f2194004fcce05b010a304ffc5aa15c541</ObjectID>"
+										+ "<FileType>regular</FileType><Filename>file0</Filename>"
+										+ "<SystemMetadataList><Metadata><Name>size</Name><Value>1024</Value></Metadata>"
+										+ "</SystemMetadataList>"
+										+ "<UserMetadataList><Metadata><Name>size</Name><Value>1</Value><Listable>false</Listable>"
+										+ "</Metadata></UserMetadataList></DirectoryEntry>"
+										+ "<DirectoryEntry><ObjectID>4fccd760a1f2194004fcce05b010a304ffc5aa15c542</ObjectID>"
+										+ "<FileType>directory</FileType><Filename>dir0</Filename></DirectoryEntry>"
+										+ "</DirectoryList></ListDirectoryResponse>");
+		assertEquals(2, entries.size());
+		assertEquals("file0", entries.get(0).name);
+		assertFalse(entries.get(0).directory);
+		assertEquals(1024, entries.get(0).size); // not the user metadata value having the same name
+		assertEquals("dir0", entries.get(1).name);
+		assertTrue(entries.get(1).directory);
+		assertEquals(0, entries.get(1).size);
+	}
+
+	@Test
+	public void testObjectsListing()
+					throws Exception {
+		final var entries = parse(
+						"<ListObjectsResponse>"
+										+ "<Object><ObjectID>4fccd760a1f2194004fcce05b010a304ffc5aa15c541</ObjectID>"
+										+ "<UserMetadataList><Metadata><Name>size</Name><Value>1</Value></Metadata>"
+										+ "</UserMetadataList>"
+										+ "<SystemMetadataList><Metadata><Name>size</Name><Value>2048</Value></Metadata>"
+										+ "</SystemMetadataList></Object>"
+										+ "</ListObjectsResponse>");
+		assertEquals(1, entries.size());
+		assertEquals("4fccd760a1f2194004fcce05b010a304ffc5aa15c541", entries.get(0).name);
+		assertEquals(2048, entries.get(0).size);
+	}
+
+	@Test
+	public void testObjectIdsListing()
+					throws Exception {
+		final var entries = parse(
+						"<ListObjectsResponse><ObjectID>4fccd760a1f2194004fcce05b010a304ffc5aa15c541</ObjectID>"
+										+ "<ObjectID>4fccd760a1f2194004fcce05b010a304ffc5aa15c542</ObjectID></ListObjectsResponse>");
+		assertEquals(2, entries.size());
+		assertEquals("4fccd760a1f2194004fcce05b010a304ffc5aa15c542", entries.get(1).name);
+		assertFalse(entries.get(1).directory);
+	}
+}
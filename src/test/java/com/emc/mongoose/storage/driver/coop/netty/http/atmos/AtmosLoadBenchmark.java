@@ -0,0 +1,327 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.base.Constants.APP_NAME;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.emc.mongoose.base.data.DataInput;
+import com.emc.mongoose.base.env.Extension;
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.item.DataItemImpl;
+import com.emc.mongoose.base.item.op.OpType;
+import com.emc.mongoose.base.item.op.Operation;
+import com.emc.mongoose.base.item.op.data.DataOperation;
+import com.emc.mongoose.base.item.op.data.DataOperationImpl;
+import com.emc.mongoose.base.storage.Credential;
+import com.github.akurilov.commons.collection.TreeUtil;
+import com.github.akurilov.commons.system.SizeInBytes;
+import com.github.akurilov.confuse.Config;
+import com.github.akurilov.confuse.SchemaProvider;
+import com.github.akurilov.confuse.impl.BasicConfig;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ The end-to-end load scenarios run by the driver against the in-process Atmos emulator over the loopback interface.
+ The throughput and the operation duration percentiles are written to the JSON results file and compared with the
+ baseline results file if it exists: the run fails if any scenario throughput drops or the tail (99%, 99.9%) duration
+ rises by more than the threshold percentage. Configured by the system properties (see the "loadBenchmark" Gradle task).
+ */
+public final class AtmosLoadBenchmark {
+
+	private static final Credential CREDENTIAL = Credential.getInstance("user1", "u5QtPuQx+W5nrrQQEg7nArBqSgC8qLiDt2RhQthb");
+	private static final int BATCH_SIZE = 4096;
+	private static final String FS_DIR = "/load-benchmark";
+	private static final Pattern BASELINE_SCENARIO = Pattern.compile("\"([^\"]+)\"\\s*:\\s*\\{([^}]*)}");
+	private static final Pattern BASELINE_VALUE = Pattern.compile("\"(\\w+)\"\\s*:\\s*([-+.0-9eE]+)");
+
+	static final class Result {
+
+		final long opCount;
+		final long failCount;
+		final double opsPerSec;
+		final long p50Micros;
+		final long p99Micros;
+		final long p999Micros;
+
+		/**
+		 @param durations the successful operations durations (microseconds), sorted in place
+		 */
+		Result(final long failCount, final long elapsedNanos, final long[] durations, final int count) {
+			opCount = count;
+			this.failCount = failCount;
+			opsPerSec = elapsedNanos > 0 ? count * 1e9 / elapsedNanos : 0;
+			Arrays.sort(durations, 0, count);
+			p50Micros = percentile(durations, count, 0.5);
+			p99Micros = percentile(durations, count, 0.99);
+			p999Micros = percentile(durations, count, 0.999);
+		}
+
+		private static long percentile(final long[] sortedValues, final int count, final double p) {
+			return count == 0 ? 0 : sortedValues[Math.min(count - 1, (int) Math.ceil(p * count) - 1)];
+		}
+
+		String toJson() {
+			return String.format(
+							"{\"opCount\": %d, \"failCount\": %d, \"opsPerSec\": %.1f, \"p50Micros\": %d, "
+											+ "\"p99Micros\": %d, \"p999Micros\": %d}",
+							opCount, failCount, opsPerSec, p50Micros, p99Micros, p999Micros);
+		}
+	}
+
+	public static void main(final String... args)
+					throws Exception {
+		final var resultsFile = Paths.get(System.getProperty("atmos.bench.results", "load-benchmark-results.json"));
+		final var baselineFile = Paths.get(System.getProperty("atmos.bench.baseline", "load-benchmark-baseline.json"));
+		final var threshold = Double.parseDouble(System.getProperty("atmos.bench.threshold", "10")) / 100;
+		final var opCount = Integer.getInteger("atmos.bench.opCount", 20_000);
+		final var smallSize = new SizeInBytes(System.getProperty("atmos.bench.smallSize", "10KB")).get();
+		final var largeOpCount = Integer.getInteger("atmos.bench.largeOpCount", 32);
+		final var largeSize = new SizeInBytes(System.getProperty("atmos.bench.largeSize", "8MB")).get();
+		final var subtenantCount = Integer.getInteger("atmos.bench.subtenantCount", 1_000);
+		final var concurrency = Integer.getInteger("atmos.bench.concurrency", 64);
+
+		final Map<String, Result> results = new LinkedHashMap<>();
+		final var secretByUid = Collections.singletonMap(CREDENTIAL.getUid(), CREDENTIAL.getSecret());
+		try (final var emulator = new AtmosEmulator(secretByUid)) {
+			final var port = emulator.start(0, 0);
+			try (final var driver = driver(port, false, concurrency)) {
+				driver.start();
+				final var smallItems = items(opCount, smallSize);
+				results.put("small-create", run(driver, ops(OpType.CREATE, smallItems, null)));
+				results.put("small-read", run(driver, ops(OpType.READ, smallItems, null)));
+				results.put("small-delete", run(driver, ops(OpType.DELETE, smallItems, null)));
+				final var largeItems = items(largeOpCount, largeSize);
+				results.put("large-create", run(driver, ops(OpType.CREATE, largeItems, null)));
+				results.put("large-read", run(driver, ops(OpType.READ, largeItems, null)));
+				run(driver, ops(OpType.DELETE, largeItems, null)); // cleanup, not measured
+				results.put("subtenant-create", createSubtenants(driver, subtenantCount));
+			}
+			try (final var driver = driver(port, true, concurrency)) {
+				driver.start();
+				results.put("fs-create", run(driver, ops(OpType.CREATE, items(opCount, smallSize), FS_DIR)));
+			}
+		}
+
+		final var json = new StringBuilder("{\n");
+		results.forEach((scenario, result) -> {
+			json.append(json.length() > 2 ? ",\n" : "")
+							.append("\t\"").append(scenario).append("\": ").append(result.toJson());
+			System.out.println(scenario + ": " + result.toJson());
+		});
+		json.append("\n}\n");
+		final var resultsDir = resultsFile.toAbsolutePath().getParent();
+		if (resultsDir != null) {
+			Files.createDirectories(resultsDir);
+		}
+		Files.write(resultsFile, json.toString().getBytes(UTF_8));
+		System.out.println("The results are written to " + resultsFile.toAbsolutePath());
+
+		final var regressions = regressions(results, baselineFile, threshold);
+		if (!regressions.isEmpty()) {
+			regressions.forEach(System.err::println);
+			System.exit(1);
+		}
+	}
+
+	private static AtmosStorageDriver<DataItem, DataOperation<DataItem>> driver(
+					final int port, final boolean fsAccess, final int concurrency)
+					throws Exception {
+		final var config = config(port, fsAccess, concurrency);
+		return new AtmosStorageDriver<>(
+						"load-benchmark-" + (fsAccess ? "fs" : "obj"),
+						DataInput.instance(null, "7a42d9c483244167", new SizeInBytes("4MB"), 16),
+						config.configVal("storage"),
+						false,
+						BATCH_SIZE);
+	}
+
+	static Config config(final int port, final boolean fsAccess, final int concurrency)
+					throws Exception {
+		final List<Map<String, Object>> configSchemas = new ArrayList<>();
+		for (final var extension : Extension.load(Thread.currentThread().getContextClassLoader())) {
+			final var schemaProvider = extension.schemaProvider();
+			if (schemaProvider != null) {
+				configSchemas.add(schemaProvider.schema());
+			}
+		}
+		SchemaProvider.resolve(APP_NAME, Thread.currentThread().getContextClassLoader())
+						.stream()
+						.findFirst()
+						.ifPresent(configSchemas::add);
+		final Map<String, Object> configSchema = TreeUtil.reduceForest(configSchemas);
+		final Config config = new BasicConfig("-", configSchema);
+		config.val("load-batch-size", BATCH_SIZE);
+		config.val("storage-driver-limit-concurrency", concurrency);
+		config.val("storage-namespace", null);
+		config.val("storage-net-transport", "nio");
+		config.val("storage-net-reuseAddr", true);
+		config.val("storage-net-bindBacklogSize", 0);
+		config.val("storage-net-keepAlive", true);
+		config.val("storage-net-rcvBuf", 0);
+		config.val("storage-net-sndBuf", 0);
+		config.val("storage-net-ssl-enabled", false);
+		config.val("storage-net-ssl-protocols", Collections.<String>emptyList());
+		config.val("storage-net-ssl-provider", "OPENSSL");
+		config.val("storage-net-tcpNoDelay", true);
+		config.val("storage-net-interestOpQueued", false);
+		config.val("storage-net-linger", 0);
+		config.val("storage-net-timeoutMilliSec", 0);
+		config.val("storage-net-ioRatio", 50);
+		config.val("storage-net-node-addrs", Collections.singletonList("127.0.0.1"));
+		config.val("storage-net-node-port", port);
+		config.val("storage-net-node-connAttemptsLimit", 0);
+		AtmosConfigDefaults.apply(config);
+		config.val("storage-atmos-latencyPhases-enabled", true);
+		config.val("storage-net-http-fsAccess", fsAccess);
+		config.val(
+						"storage-net-http-headers",
+						new HashMap<String, String>() {
+							{
+								put("Date", "#{date:formatNowRfc1123()}%{date:formatNowRfc1123()}");
+							}
+						});
+		config.val("storage-net-http-uri-args", Collections.EMPTY_MAP);
+		config.val("storage-auth-uid", CREDENTIAL.getUid());
+		config.val("storage-auth-token", null); // the subtenant is created by the driver
+		config.val("storage-auth-secret", CREDENTIAL.getSecret());
+		config.val("storage-driver-threads", 0);
+		config.val("storage-driver-limit-queue-input", 1_000_000);
+		config.val("storage-driver-limit-queue-output", 1_000_000);
+		return config;
+	}
+
+	private static List<DataItem> items(final int count, final long size) {
+		final List<DataItem> items = new ArrayList<>(count);
+		for (var i = 0; i < count; i++) {
+			items.add(new DataItemImpl(Long.toString(i, Character.MAX_RADIX), i, size));
+		}
+		return items;
+	}
+
+	private static List<DataOperation<DataItem>> ops(
+					final OpType opType, final List<DataItem> items, final String dstPath) {
+		return items.stream()
+						.map(item -> (DataOperation<DataItem>) new DataOperationImpl<>(
+										0, opType, item, null, dstPath, CREDENTIAL, null, 0))
+						.collect(Collectors.toList());
+	}
+
+	/** Submit all the operations and wait for the completion */
+	private static Result run(
+					final AtmosStorageDriver<DataItem, DataOperation<DataItem>> driver,
+					final List<DataOperation<DataItem>> ops)
+					throws IOException {
+		final var opCount = ops.size();
+		final var durations = new long[opCount];
+		final List<DataOperation<DataItem>> completedOps = new ArrayList<>(BATCH_SIZE);
+		var submittedCount = 0;
+		var completedCount = 0;
+		var succCount = 0;
+		final var start = System.nanoTime();
+		while (completedCount < opCount) {
+			while (submittedCount < opCount && driver.put(ops.get(submittedCount))) {
+				submittedCount++;
+			}
+			completedOps.clear();
+			driver.get(completedOps, BATCH_SIZE);
+			if (completedOps.isEmpty()) {
+				LockSupport.parkNanos(1);
+				continue;
+			}
+			for (final var op : completedOps) {
+				if (Operation.Status.SUCC.equals(op.status())) {
+					durations[succCount++] = op.duration();
+				}
+			}
+			completedCount += completedOps.size();
+		}
+		return new Result(completedCount - succCount, System.nanoTime() - start, durations, succCount);
+	}
+
+	/**
+	 The subtenant creation requests are sequential: the driver coalesces the concurrent requests for the same
+	 credential
+	 */
+	private static Result createSubtenants(
+					final AtmosStorageDriver<DataItem, DataOperation<DataItem>> driver, final int count) {
+		final var durations = new long[count];
+		var succCount = 0;
+		final var start = System.nanoTime();
+		for (var i = 0; i < count; i++) {
+			final var reqStart = System.nanoTime();
+			if (driver.requestNewAuthToken(CREDENTIAL) != null) {
+				durations[succCount++] = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - reqStart);
+			}
+		}
+		return new Result(count - succCount, System.nanoTime() - start, durations, succCount);
+	}
+
+	/** @return the regression descriptions, empty if no regressions or no baseline */
+	static List<String> regressions(final Map<String, Result> results, final Path baselineFile, final double threshold)
+					throws IOException {
+		final List<String> regressions = new ArrayList<>();
+		results.forEach((scenario, result) -> {
+			if (result.failCount > 0) {
+				regressions.add(scenario + ": " + result.failCount + " operations failed");
+			}
+		});
+		if (!Files.exists(baselineFile)) {
+			System.out.println("No baseline file " + baselineFile.toAbsolutePath() + ", skipping the comparison");
+			return regressions;
+		}
+		final var baseline = parseBaseline(new String(Files.readAllBytes(baselineFile), UTF_8));
+		results.forEach((scenario, result) -> {
+			final var base = baseline.get(scenario);
+			if (base == null) {
+				return;
+			}
+			final var baseOpsPerSec = base.getOrDefault("opsPerSec", 0.0);
+			if (result.opsPerSec < baseOpsPerSec * (1 - threshold)) {
+				regressions.add(
+								String.format(
+												"%s: throughput dropped %.1f -> %.1f op/s", scenario, baseOpsPerSec,
+												result.opsPerSec));
+			}
+			checkLatency(regressions, scenario, "p99Micros", base, result.p99Micros, threshold);
+			checkLatency(regressions, scenario, "p999Micros", base, result.p999Micros, threshold);
+		});
+		return regressions;
+	}
+
+	private static void checkLatency(
+					final List<String> regressions, final String scenario, final String name,
+					final Map<String, Double> base, final long value, final double threshold) {
+		final var baseValue = base.get(name);
+		if (baseValue != null && baseValue > 0 && value > baseValue * (1 + threshold)) {
+			regressions.add(String.format("%s: %s rose %.0f -> %d", scenario, name, baseValue, value));
+		}
+	}
+
+	/** Parses the results file format: the flat object of the scenario objects having the numeric values only */
+	static Map<String, Map<String, Double>> parseBaseline(final String json) {
+		final Map<String, Map<String, Double>> baseline = new HashMap<>();
+		final var scenarioMatcher = BASELINE_SCENARIO.matcher(json);
+		while (scenarioMatcher.find()) {
+			final Map<String, Double> values = new HashMap<>();
+			final var valueMatcher = BASELINE_VALUE.matcher(scenarioMatcher.group(2));
+			while (valueMatcher.find()) {
+				values.put(valueMatcher.group(1), Double.parseDouble(valueMatcher.group(2)));
+			}
+			baseline.put(scenarioMatcher.group(1), values);
+		}
+		return baseline;
+	}
+}
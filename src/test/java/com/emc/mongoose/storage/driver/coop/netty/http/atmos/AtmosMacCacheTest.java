@@ -0,0 +1,68 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.SIGN_METHOD;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.emc.mongoose.base.storage.Credential;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Test;
+
+public class AtmosMacCacheTest {
+
+	private static final Credential CREDENTIAL = Credential.getInstance("user1", "u5QtPuQx+W5nrrQQEg7nArBqSgC8qLiDt2RhQthb");
+
+	@Test
+	public void testSameThreadHit() {
+		final var cache = new AtmosMacCache(10);
+		final var mac = cache.mac(CREDENTIAL);
+		assertNotNull(mac);
+		assertSame(mac, cache.mac(CREDENTIAL));
+		assertEquals(1, cache.missCount());
+		assertEquals(1, cache.hitCount());
+		assertEquals(0, cache.cloneCount());
+	}
+
+	@Test
+	public void testOtherThreadClone()
+					throws Exception {
+		final var cache = new AtmosMacCache(10);
+		final var mac = cache.mac(CREDENTIAL);
+		final var otherThreadMac = CompletableFuture.supplyAsync(() -> cache.mac(CREDENTIAL)).get();
+		assertNotSame(mac, otherThreadMac);
+		assertEquals(1, cache.missCount());
+		assertEquals(1, cache.cloneCount());
+		final var data = "GET\n\n\n\n/rest/service".getBytes(UTF_8);
+		final var expectedMac = Mac.getInstance(SIGN_METHOD);
+		expectedMac.init(new SecretKeySpec(Base64.getDecoder().decode(CREDENTIAL.getSecret()), SIGN_METHOD));
+		final var expectedSig = expectedMac.doFinal(data);
+		assertArrayEquals(expectedSig, mac.doFinal(data));
+		assertArrayEquals(expectedSig, otherThreadMac.doFinal(data));
+	}
+
+	@Test
+	public void testEviction() {
+		final var cache = new AtmosMacCache(2);
+		for (var i = 0; i < 5; i++) {
+			assertNotNull(cache.mac(Credential.getInstance("user" + i, CREDENTIAL.getSecret())));
+		}
+		assertEquals(2, cache.size());
+		assertEquals(5, cache.missCount());
+		assertEquals(3, cache.evictCount());
+	}
+
+	@Test
+	public void testInvalidSecret() {
+		final var cache = new AtmosMacCache(10);
+		assertNull(cache.mac(Credential.getInstance("user1", "not a base64 secret")));
+		assertEquals(0, cache.size());
+	}
+}
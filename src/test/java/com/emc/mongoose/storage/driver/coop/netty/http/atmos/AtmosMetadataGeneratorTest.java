@@ -0,0 +1,44 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_LISTABLE_META;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_META;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import org.junit.Test;
+
+public class AtmosMetadataGeneratorTest {
+
+	@Test
+	public void testHeaders() {
+		final var generator = new AtmosMetadataGenerator(10, 20, 0.3);
+		final var headers = new DefaultHttpHeaders();
+		generator.apply(headers);
+		final var meta = headers.get(KEY_X_EMC_META).split(",");
+		assertEquals(7, meta.length);
+		for (var i = 0; i < meta.length; i++) {
+			assertTrue(meta[i], meta[i].matches("key" + i + "=0*[0-9a-f]{16}"));
+			assertEquals(20, meta[i].length() - meta[i].indexOf('=') - 1);
+		}
+		final var listableMeta = headers.get(KEY_X_EMC_LISTABLE_META).split(",");
+		assertEquals(3, listableMeta.length);
+		for (var i = 0; i < listableMeta.length; i++) {
+			assertTrue(listableMeta[i], listableMeta[i].matches("tag" + i + "=0*[0-9a-f]{16}"));
+		}
+		final var headers2 = new DefaultHttpHeaders();
+		generator.apply(headers2);
+		assertNotEquals(headers.get(KEY_X_EMC_META), headers2.get(KEY_X_EMC_META));
+	}
+
+	@Test
+	public void testShortValues() {
+		final var generator = new AtmosMetadataGenerator(2, 4, 0);
+		final var headers = new DefaultHttpHeaders();
+		generator.apply(headers);
+		assertTrue(headers.get(KEY_X_EMC_META), headers.get(KEY_X_EMC_META).matches("key0=[0-9a-f]{4},key1=[0-9a-f]{4}"));
+		assertFalse(headers.contains(KEY_X_EMC_LISTABLE_META));
+	}
+}
@@ -0,0 +1,54 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+public class AtmosMetadataRequestHandlerTest {
+
+	@Test
+	public void testContentDropped() {
+		final var channel = new EmbeddedChannel(new AtmosMetadataRequestHandler());
+		final var req = new AtmosMetadataRequest(
+						HttpMethod.POST, AtmosApi.OBJ_URI_BASE + "/foo" + AtmosApi.QUERY_METADATA_USER,
+						new DefaultHttpHeaders());
+		final var content = Unpooled.wrappedBuffer(new byte[0x100]);
+		final var lastContent = new DefaultLastHttpContent(Unpooled.wrappedBuffer(new byte[0x100]));
+		assertTrue(channel.writeOutbound(req, new DefaultHttpContent(content), lastContent));
+		assertSame(req, channel.readOutbound());
+		assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel.readOutbound());
+		assertNull(channel.readOutbound());
+		assertEquals(0, content.refCnt());
+		assertEquals(0, lastContent.refCnt());
+	}
+
+	@Test
+	public void testContentPassed() {
+		final var channel = new EmbeddedChannel(new AtmosMetadataRequestHandler());
+		channel.writeOutbound(
+						new AtmosMetadataRequest(HttpMethod.GET, AtmosApi.OBJ_URI_BASE + "/foo", new DefaultHttpHeaders()),
+						LastHttpContent.EMPTY_LAST_CONTENT);
+		final var req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.PUT, AtmosApi.OBJ_URI_BASE + "/foo");
+		channel.readOutbound();
+		channel.readOutbound();
+		channel.writeOutbound(req, new DefaultHttpContent(Unpooled.wrappedBuffer(new byte[0x100])));
+		assertSame(req, channel.readOutbound());
+		final HttpContent content = channel.readOutbound();
+		assertEquals(0x100, content.content().readableBytes());
+		ReferenceCountUtil.release(content);
+	}
+}
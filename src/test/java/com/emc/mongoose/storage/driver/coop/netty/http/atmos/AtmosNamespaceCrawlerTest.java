@@ -0,0 +1,101 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+public class AtmosNamespaceCrawlerTest {
+
+	/** The directory path (w/o the trailing slash) -> the children, the directory names end with slash */
+	private static final Map<String, List<String>> TREE = new HashMap<>();
+
+	static {
+		TREE.put("/root", List.of("dir0/", "file0", "file1", "dir1/"));
+		TREE.put("/root/dir0", List.of("file2", "dir2/"));
+		TREE.put("/root/dir0/dir2", List.of("file3", "file4", "file5"));
+		TREE.put("/root/dir1", List.of());
+	}
+
+	/** The listing page of 2 entries at most, the token is the position of the next entry */
+	private static AtmosListingPage page(final String path, final String token)
+					throws IOException {
+		final var dirPath = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+		final var children = TREE.get(dirPath);
+		if (children == null) {
+			throw new IOException("Listing \"" + path + "\": got response 404");
+		}
+		final var from = token == null ? 0 : Integer.parseInt(token);
+		final var to = Math.min(from + 2, children.size());
+		final List<AtmosListingPage.Entry> entries = new ArrayList<>();
+		for (final var child : children.subList(from, to)) {
+			final var directory = child.endsWith("/");
+			entries.add(new AtmosListingPage.Entry(
+							directory ? child.substring(0, child.length() - 1) : child, directory, child.length()));
+		}
+		return new AtmosListingPage(entries, to < children.size() ? Integer.toString(to) : null);
+	}
+
+	private static Set<String> crawl(final AtmosListing crawler)
+					throws IOException {
+		final Set<String> names = new TreeSet<>();
+		final List<AtmosListingPage.Entry> entries = new ArrayList<>();
+		while (crawler.next(entries, 2) > 0) {
+			entries.forEach(entry -> assertTrue(names.add(entry.name)));
+			entries.clear();
+		}
+		return names;
+	}
+
+	@Test
+	public void testRecursiveListing()
+					throws Exception {
+		final var executor = Executors.newCachedThreadPool();
+		try {
+			// the output queue is smaller than the files count to check the backpressure
+			final var crawler = new AtmosNamespaceCrawler(
+							"/root/", AtmosNamespaceCrawlerTest::page, executor, 3, 2);
+			assertEquals(
+							Set.of("file0", "file1", "dir0/file2", "dir0/dir2/file3", "dir0/dir2/file4", "dir0/dir2/file5"),
+							crawl(crawler));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testWorkerFailure()
+					throws Exception {
+		final var executor = Executors.newCachedThreadPool();
+		try {
+			final var crawler = new AtmosNamespaceCrawler(
+							"/root",
+							(path, token) -> {
+								if (path.startsWith("/root/dir0/dir2")) {
+									throw new IllegalStateException("Unexpected listing response");
+								}
+								return page(path, token);
+							},
+							executor,
+							3,
+							100);
+			try {
+				crawl(crawler);
+				fail();
+			} catch (final IOException expected) {
+				assertTrue(expected.getCause() instanceof IllegalStateException);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
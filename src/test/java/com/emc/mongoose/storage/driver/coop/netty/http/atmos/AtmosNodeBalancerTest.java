@@ -0,0 +1,89 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.emc.mongoose.base.item.op.Operation;
+import org.junit.Test;
+
+public class AtmosNodeBalancerTest {
+
+	private static final String[] NODE_ADDRS = { "127.0.0.1", "127.0.0.2" };
+
+	@Test
+	public void testFasterNodeSelected() {
+		try (final var balancer = new AtmosNodeBalancer(NODE_ADDRS, 3, 3600, nodeAddr -> false)) {
+			balancer.completed(NODE_ADDRS[0], 1000, Operation.Status.SUCC);
+			balancer.completed(NODE_ADDRS[1], 10, Operation.Status.SUCC);
+			var count = 0;
+			for (var i = 0; i < 1000; i++) {
+				if (NODE_ADDRS[1].equals(balancer.select())) {
+					count++;
+				}
+			}
+			// the slower node may be selected only if both candidates are the same node (1/4 of the cases)
+			assertEquals(750, count, 100);
+		}
+	}
+
+	@Test
+	public void testFailingNodeQuarantined() {
+		try (final var balancer = new AtmosNodeBalancer(NODE_ADDRS, 3, 3600, nodeAddr -> false)) {
+			balancer.failed(NODE_ADDRS[0]);
+			balancer.completed(NODE_ADDRS[0], 0, Operation.Status.RESP_FAIL_SVC);
+			balancer.completed(NODE_ADDRS[0], 0, Operation.Status.RESP_FAIL_SVC);
+			for (var i = 0; i < 100; i++) {
+				assertEquals(NODE_ADDRS[1], balancer.select());
+			}
+			for (var i = 0; i < 3; i++) {
+				balancer.failed(NODE_ADDRS[1]);
+			}
+			assertNull(balancer.select());
+		}
+	}
+
+	@Test
+	public void testFailuresNotInRow() {
+		try (final var balancer = new AtmosNodeBalancer(NODE_ADDRS, 2, 3600, nodeAddr -> false)) {
+			balancer.failed(NODE_ADDRS[0]);
+			balancer.completed(NODE_ADDRS[0], 100, Operation.Status.SUCC);
+			balancer.failed(NODE_ADDRS[0]);
+			balancer.failed(NODE_ADDRS[1]);
+			balancer.completed(NODE_ADDRS[1], 100, Operation.Status.SUCC);
+			balancer.failed(NODE_ADDRS[1]);
+			var count = 0;
+			for (var i = 0; i < 1000; i++) {
+				if (NODE_ADDRS[0].equals(balancer.select())) {
+					count++;
+				}
+			}
+			assertEquals(500, count, 100);
+		}
+	}
+
+	@Test
+	public void testNotSuccessfulNotAccounted() {
+		try (final var balancer = new AtmosNodeBalancer(NODE_ADDRS, 2, 3600, nodeAddr -> false)) {
+			balancer.completed(NODE_ADDRS[0], 1000, Operation.Status.SUCC);
+			balancer.completed(NODE_ADDRS[1], 10, Operation.Status.SUCC);
+			// the fast "not found" responses don't make the slow node look faster
+			for (var i = 0; i < 100; i++) {
+				balancer.completed(NODE_ADDRS[0], 1, Operation.Status.RESP_FAIL_NOT_FOUND);
+			}
+			var count = 0;
+			for (var i = 0; i < 1000; i++) {
+				if (NODE_ADDRS[1].equals(balancer.select())) {
+					count++;
+				}
+			}
+			assertEquals(750, count, 100);
+			// and don't reset the failures in a row
+			balancer.failed(NODE_ADDRS[0]);
+			balancer.completed(NODE_ADDRS[0], 1, Operation.Status.RESP_FAIL_NOT_FOUND);
+			balancer.failed(NODE_ADDRS[0]);
+			for (var i = 0; i < 100; i++) {
+				assertEquals(NODE_ADDRS[1], balancer.select());
+			}
+		}
+	}
+}
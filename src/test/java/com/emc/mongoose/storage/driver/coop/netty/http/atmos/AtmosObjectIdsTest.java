@@ -0,0 +1,104 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosObjectIdsOutput.RECORD_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.item.DataItemFactoryImpl;
+import com.emc.mongoose.base.item.DataItemImpl;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AtmosObjectIdsTest {
+
+	private Path file;
+
+	@Before
+	public void setUp()
+					throws Exception {
+		file = Files.createTempFile(getClass().getSimpleName(), ".bin");
+		Files.delete(file);
+	}
+
+	@After
+	public void tearDown()
+					throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	private static String objId(final int i) {
+		return String.format("%044x", 0xfedcba9876543210L * i + i);
+	}
+
+	private static List<DataItem> readAll(final Path file, final int limit)
+					throws Exception {
+		final var itemFactory = new DataItemFactoryImpl<DataItem>();
+		final List<DataItem> items = new ArrayList<>();
+		try (final var input = new AtmosObjectIdsInput(file)) {
+			int n;
+			do {
+				n = input.get(itemFactory, items, limit);
+			} while (n > 0);
+		}
+		return items;
+	}
+
+	@Test
+	public void testRoundTrip()
+					throws Exception {
+		final var count = 0x10000 + 3; // more than the output buffer capacity
+		try (final var output = new AtmosObjectIdsOutput(file)) {
+			for (var i = 0; i < count; i++) {
+				final var location = AtmosApi.OBJ_URI_BASE + '/' + objId(i);
+				output.put(location, AtmosApi.OBJ_URI_BASE.length() + 1, new DataItemImpl("0", i, 10 * i));
+			}
+		}
+		assertEquals((long) count * RECORD_SIZE, Files.size(file));
+		final var items = readAll(file, 1000);
+		assertEquals(count, items.size());
+		for (var i = 0; i < count; i++) {
+			final var item = items.get(i);
+			assertEquals('/' + objId(i), item.name());
+			assertEquals(i, item.offset());
+			assertEquals(10 * i, item.size());
+		}
+	}
+
+	@Test
+	public void testIncompleteRecordIgnored()
+					throws Exception {
+		try (final var output = new AtmosObjectIdsOutput(file)) {
+			for (var i = 0; i < 3; i++) {
+				output.put(objId(i), 0, new DataItemImpl("0", i, i));
+			}
+		}
+		Files.write(file, new byte[RECORD_SIZE - 1], StandardOpenOption.APPEND);
+		final var items = readAll(file, 2);
+		assertEquals(3, items.size());
+		assertEquals('/' + objId(2), items.get(2).name());
+	}
+
+	@Test
+	public void testFileTruncated()
+					throws Exception {
+		Files.write(file, new byte[10 * RECORD_SIZE]);
+		try (final var output = new AtmosObjectIdsOutput(file)) {
+			output.put(objId(1), 0, new DataItemImpl("0", 1, 1));
+		}
+		assertEquals(RECORD_SIZE, Files.size(file));
+	}
+
+	@Test
+	public void testNothingWritten()
+					throws Exception {
+		new AtmosObjectIdsOutput(file).close();
+		assertFalse(Files.exists(file));
+	}
+}
@@ -0,0 +1,120 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import java.util.List;
+import org.junit.Test;
+
+public class AtmosParentDirsHandlerTest {
+
+	private static EmbeddedChannel channel(final AtmosDirectoryCache dirCache) {
+		return new EmbeddedChannel(
+						new AtmosParentDirsHandler(
+										dirCache, (dirPath, nodeAddr, credential, subtenantId) -> new DefaultFullHttpRequest(
+														HttpVersion.HTTP_1_1, HttpMethod.POST, AtmosApi.NS_URI_BASE + dirPath + '/')));
+	}
+
+	private static AtmosParentDirsRequest createRequest(final AtmosDirectoryCache dirCache, final String filePath) {
+		return new AtmosParentDirsRequest(
+						new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, AtmosApi.NS_URI_BASE + filePath),
+						dirCache.missing(AtmosDirectoryCache.parentDir(filePath)), null, null);
+	}
+
+	private static void assertDirCreateRequest(final EmbeddedChannel channel, final String dirPath) {
+		final HttpRequest req = channel.readOutbound();
+		assertEquals(AtmosApi.NS_URI_BASE + dirPath + '/', req.uri());
+		ReferenceCountUtil.release(req);
+		assertNull(channel.readOutbound());
+	}
+
+	private static void respond(final EmbeddedChannel channel, final HttpResponseStatus status, final String content) {
+		channel.writeInbound(
+						new DefaultFullHttpResponse(
+										HttpVersion.HTTP_1_1, status, Unpooled.copiedBuffer(content, US_ASCII)));
+		assertNull(channel.readInbound()); // not passed to the next handlers
+	}
+
+	@Test
+	public void testParentDirsCreated() {
+		final var dirCache = new AtmosDirectoryCache(100);
+		final var channel = channel(dirCache);
+		final var req = createRequest(dirCache, "/dir0/dir1/file0");
+		final var content = new DefaultHttpContent(Unpooled.wrappedBuffer(new byte[0x100]));
+		channel.writeOutbound(req, content, LastHttpContent.EMPTY_LAST_CONTENT);
+		assertDirCreateRequest(channel, "/dir0");
+		respond(channel, HttpResponseStatus.CREATED, "");
+		assertDirCreateRequest(channel, "/dir0/dir1");
+		// created concurrently by another client
+		respond(channel, HttpResponseStatus.BAD_REQUEST, "<Error><Code>1016</Code></Error>");
+		assertSame(req, channel.readOutbound());
+		assertSame(content, channel.readOutbound());
+		assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel.readOutbound());
+		ReferenceCountUtil.release(content);
+		assertEquals(List.of(), dirCache.missing("/dir0/dir1"));
+		assertEquals(0, dirCache.pendingCount());
+		// the response to the file create request is passed
+		final var resp = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CREATED);
+		channel.writeInbound(resp);
+		assertSame(resp, channel.readInbound());
+	}
+
+	@Test
+	public void testParentDirWaited() {
+		final var dirCache = new AtmosDirectoryCache(100);
+		final var ownedDirs = dirCache.missing("/dir0");
+		final var channel = channel(dirCache);
+		final var req = createRequest(dirCache, "/dir0/file0");
+		channel.writeOutbound(req, LastHttpContent.EMPTY_LAST_CONTENT);
+		assertNull(channel.readOutbound());
+		dirCache.done(ownedDirs.get(0), true);
+		channel.runPendingTasks();
+		assertSame(req, channel.readOutbound());
+		assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel.readOutbound());
+	}
+
+	@Test
+	public void testParentDirFailed() {
+		final var dirCache = new AtmosDirectoryCache(100);
+		final var channel = channel(dirCache);
+		final var req = createRequest(dirCache, "/dir0/dir1/file0");
+		channel.writeOutbound(req, LastHttpContent.EMPTY_LAST_CONTENT);
+		assertDirCreateRequest(channel, "/dir0");
+		respond(channel, HttpResponseStatus.FORBIDDEN, "<Error><Code>1032</Code></Error>");
+		// the file create request is sent anyway, the operation fails with its response
+		assertSame(req, channel.readOutbound());
+		assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel.readOutbound());
+		assertEquals(0, dirCache.pendingCount());
+		assertEquals(0, dirCache.size());
+	}
+
+	@Test
+	public void testChannelClosed() {
+		final var dirCache = new AtmosDirectoryCache(100);
+		final var channel = channel(dirCache);
+		final var promise = channel.newPromise();
+		channel.write(createRequest(dirCache, "/dir0/dir1/file0"), promise);
+		channel.flush();
+		assertDirCreateRequest(channel, "/dir0");
+		channel.close();
+		assertFalse(promise.isSuccess());
+		assertTrue(promise.isDone());
+		assertEquals(0, dirCache.pendingCount());
+	}
+}
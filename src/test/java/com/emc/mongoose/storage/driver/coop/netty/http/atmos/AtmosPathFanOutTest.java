@@ -0,0 +1,55 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class AtmosPathFanOutTest {
+
+	@Test
+	public void testLayout() {
+		final var fanOut = new AtmosPathFanOut(2, 16);
+		final var dirPath = fanOut.dirPath("/dir0", "00003brre8lgz");
+		assertTrue(dirPath, dirPath.matches("/dir0/[0-9a-f]{2}/[0-9a-f]{2}"));
+		// reproducible
+		assertEquals(dirPath, fanOut.dirPath("/dir0", "00003brre8lgz"));
+		assertEquals(dirPath, new AtmosPathFanOut(2, 16).dirPath("/dir0/", "00003brre8lgz"));
+		assertEquals(dirPath.substring("/dir0".length()), fanOut.dirPath(null, "00003brre8lgz"));
+		assertEquals(dirPath.substring("/dir0/".length()) + "/00003brre8lgz", fanOut.fileName("00003brre8lgz"));
+		final var wideFanOut = new AtmosPathFanOut(1, 1000);
+		assertTrue(wideFanOut.dirPath("/dir0", "00003brre8lgz").matches("/dir0/[0-9a-f]{3}"));
+	}
+
+	@Test
+	public void testDistribution() {
+		final var fanOut = new AtmosPathFanOut(2, 4);
+		final Map<String, Integer> countByDir = new HashMap<>();
+		final var fileCount = 160_000;
+		for (var i = 0; i < fileCount; i++) {
+			countByDir.merge(fanOut.dirPath("/dir0", Long.toString(i, Character.MAX_RADIX)), 1, Integer::sum);
+		}
+		assertEquals(16, countByDir.size());
+		for (final var count : countByDir.values()) {
+			assertEquals(fileCount / 16, count, fileCount / 16 / 10);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyLeaves() {
+		new AtmosPathFanOut(6, 16);
+	}
+
+	@Test
+	public void testNotSpread() {
+		final var fanOut = new AtmosPathFanOut(2, 16);
+		final var fileName = fanOut.fileName("00003brre8lgz");
+		// the spread file is not spread again
+		assertEquals("/dir0", fanOut.fileDstPath(null, "/dir0", fileName));
+		assertEquals(fanOut.dirPath("/dir0", "00003brre8lgz"), fanOut.fileDstPath(null, "/dir0", "00003brre8lgz"));
+		// the copied file is not spread
+		assertEquals("/dir1", fanOut.fileDstPath("/dir0", "/dir1", "00003brre8lgz"));
+	}
+}
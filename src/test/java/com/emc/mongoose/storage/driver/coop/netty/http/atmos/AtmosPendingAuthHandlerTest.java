@@ -0,0 +1,79 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.EmcConstants.KEY_X_EMC_UID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+
+public class AtmosPendingAuthHandlerTest {
+
+	private static HttpRequest opRequest() {
+		final var req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, AtmosApi.OBJ_URI_BASE);
+		req.headers().set(KEY_X_EMC_UID, "user1");
+		return req;
+	}
+
+	private static AtmosPendingAuthRequest pendingAuthRequest(
+					final HttpRequest req, final CompletableFuture<String> subtenantFuture) {
+		return new AtmosPendingAuthRequest(
+						req, subtenantFuture, httpHeaders -> httpHeaders.set(KEY_X_EMC_UID, subtenantFuture.join() + "/user1"));
+	}
+
+	@Test
+	public void testRequestHeldUntilSubtenantCreated() {
+		final var channel = new EmbeddedChannel(new AtmosPendingAuthHandler());
+		final var subtenantFuture = new CompletableFuture<String>();
+		final var req = opRequest();
+		final var content = new DefaultHttpContent(Unpooled.wrappedBuffer(new byte[0x100]));
+		channel.writeOutbound(pendingAuthRequest(req, subtenantFuture), content, LastHttpContent.EMPTY_LAST_CONTENT);
+		assertNull(channel.readOutbound());
+		subtenantFuture.complete("subtenant1");
+		channel.runPendingTasks();
+		// the original request is sent signed again instead of the pending one
+		assertSame(req, channel.readOutbound());
+		assertEquals("subtenant1/user1", req.headers().get(KEY_X_EMC_UID));
+		assertSame(content, channel.readOutbound());
+		assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel.readOutbound());
+		ReferenceCountUtil.release(content);
+		// the next request is not held
+		final var nextReq = opRequest();
+		channel.writeOutbound(nextReq);
+		assertSame(nextReq, channel.readOutbound());
+	}
+
+	@Test
+	public void testSubtenantCreatedAlready() {
+		final var channel = new EmbeddedChannel(new AtmosPendingAuthHandler());
+		final var req = opRequest();
+		channel.writeOutbound(pendingAuthRequest(req, CompletableFuture.completedFuture("subtenant2")));
+		assertSame(req, channel.readOutbound());
+		assertEquals("subtenant2/user1", req.headers().get(KEY_X_EMC_UID));
+	}
+
+	@Test
+	public void testChannelClosedWhileWaiting() {
+		final var channel = new EmbeddedChannel(new AtmosPendingAuthHandler());
+		final var subtenantFuture = new CompletableFuture<String>();
+		final var future = channel.writeAndFlush(pendingAuthRequest(opRequest(), subtenantFuture));
+		assertNull(channel.readOutbound());
+		channel.close();
+		assertTrue(future.cause() instanceof ClosedChannelException);
+		subtenantFuture.complete("subtenant3");
+		channel.runPendingTasks();
+		assertNull(channel.readOutbound());
+	}
+}
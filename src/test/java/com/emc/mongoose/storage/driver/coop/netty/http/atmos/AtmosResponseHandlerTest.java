@@ -0,0 +1,36 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AtmosResponseHandlerTest {
+
+	private static final String OBJ_ID = "4fccd760a1f2194004fcce05b010a304ffc5aa15c541";
+
+	@Test
+	public void testObjectIdLocation() {
+		assertEquals('/' + OBJ_ID, AtmosResponseHandler.itemName(AtmosApi.OBJ_URI_BASE + '/' + OBJ_ID));
+		assertTrue(AtmosResponseHandler.isObjectIdLocation(AtmosApi.OBJ_URI_BASE + '/' + OBJ_ID));
+	}
+
+	@Test
+	public void testNonStandardObjectIdLocation() {
+		final var objId = OBJ_ID.toUpperCase() + "00";
+		assertEquals('/' + objId, AtmosResponseHandler.itemName(AtmosApi.OBJ_URI_BASE + '/' + objId));
+		assertFalse(AtmosResponseHandler.isObjectIdLocation(AtmosApi.OBJ_URI_BASE + '/' + objId));
+		assertFalse(AtmosResponseHandler.isObjectIdLocation(AtmosApi.OBJ_URI_BASE + '/' + OBJ_ID.toUpperCase()));
+	}
+
+	@Test
+	public void testNamespaceLocation() {
+		assertEquals("/dir0/00003brre8lgz", AtmosResponseHandler.itemName(AtmosApi.NS_URI_BASE + "/dir0/00003brre8lgz"));
+	}
+
+	@Test
+	public void testUnexpectedLocation() {
+		assertEquals("/foo/" + OBJ_ID, AtmosResponseHandler.itemName("/foo/" + OBJ_ID));
+	}
+}
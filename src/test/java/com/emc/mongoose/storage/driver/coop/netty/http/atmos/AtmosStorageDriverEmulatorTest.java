@@ -0,0 +1,473 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.emc.mongoose.base.data.DataInput;
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.item.DataItemImpl;
+import com.emc.mongoose.base.item.op.OpType;
+import com.emc.mongoose.base.item.op.Operation;
+import com.emc.mongoose.base.item.op.data.DataOperation;
+import com.emc.mongoose.base.item.op.data.DataOperationImpl;
+import com.emc.mongoose.base.storage.Credential;
+import com.github.akurilov.commons.system.SizeInBytes;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ The driver tests against the in-process Atmos emulator over the loopback interface: the requests are built and signed
+ by the driver and validated (including the signature) by the emulator.
+ */
+public class AtmosStorageDriverEmulatorTest {
+
+	private static final Credential CREDENTIAL = Credential.getInstance("user1", "u5QtPuQx+W5nrrQQEg7nArBqSgC8qLiDt2RhQthb");
+	private static final DataInput DATA_INPUT = DataInput.instance(
+					null, "7a42d9c483244167", new SizeInBytes("4MB"), 16);
+	private static final int BATCH_SIZE = 16;
+	private static final int CONCURRENCY = 4;
+	private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+	private AtmosEmulator emulator;
+	private int port;
+	private final List<AtmosStorageDriver<DataItem, DataOperation<DataItem>>> drivers = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		emulator = new AtmosEmulator(Collections.singletonMap(CREDENTIAL.getUid(), CREDENTIAL.getSecret()))
+						.requestLog(true);
+		port = emulator.start(0, 1);
+	}
+
+	@After
+	public void tearDown()
+					throws Exception {
+		for (final var driver : drivers) {
+			driver.close();
+		}
+		drivers.clear();
+		emulator.close();
+	}
+
+	@AfterClass
+	public static void tearDownClass()
+					throws Exception {
+		DATA_INPUT.close();
+	}
+
+	/**
+	 @param configValues the configuration values to override the defaults, the name and the value pairs
+	 @return the started driver
+	 */
+	private AtmosStorageDriver<DataItem, DataOperation<DataItem>> driver(
+					final boolean fsAccess, final Object... configValues)
+					throws Exception {
+		return startDriver(fsAccess, false, configValues);
+	}
+
+	private AtmosStorageDriver<DataItem, DataOperation<DataItem>> startDriver(
+					final boolean fsAccess, final boolean verifyFlag, final Object... configValues)
+					throws Exception {
+		final var config = AtmosLoadBenchmark.config(port, fsAccess, CONCURRENCY);
+		config.val("storage-atmos-latencyPhases-enabled", false);
+		for (var i = 0; i < configValues.length; i += 2) {
+			config.val((String) configValues[i], configValues[i + 1]);
+		}
+		final var driver = new AtmosStorageDriver<DataItem, DataOperation<DataItem>>(
+						"test-storage-driver-atmos-emulator", DATA_INPUT, config.configVal("storage"), verifyFlag, BATCH_SIZE);
+		drivers.add(driver);
+		driver.start();
+		return driver;
+	}
+
+	private static DataItem item(final int i, final long size) {
+		return new DataItemImpl(Long.toString(i, Character.MAX_RADIX), i, size);
+	}
+
+	private static DataOperation<DataItem> op(final OpType opType, final DataItem item, final String dstPath) {
+		return copyOp(opType, item, null, dstPath);
+	}
+
+	private static DataOperation<DataItem> copyOp(
+					final OpType opType, final DataItem item, final String srcPath, final String dstPath) {
+		return new DataOperationImpl<>(0, opType, item, srcPath, dstPath, CREDENTIAL, null, 0);
+	}
+
+	/** Submit the operations and wait until all are completed */
+	private static List<DataOperation<DataItem>> execute(
+					final AtmosStorageDriver<DataItem, DataOperation<DataItem>> driver,
+					final List<DataOperation<DataItem>> ops)
+					throws Exception {
+		final List<DataOperation<DataItem>> completedOps = new ArrayList<>(ops.size());
+		final var deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		var submittedCount = 0;
+		while (completedOps.size() < ops.size()) {
+			while (submittedCount < ops.size() && driver.put(ops.get(submittedCount))) {
+				submittedCount++;
+			}
+			if (0 == driver.get(completedOps, BATCH_SIZE)) {
+				if (System.currentTimeMillis() > deadline) {
+					fail("Timeout, completed " + completedOps.size() + " of " + ops.size() + " operations");
+				}
+				Thread.sleep(1);
+			}
+		}
+		return completedOps;
+	}
+
+	private static DataOperation<DataItem> execute(
+					final AtmosStorageDriver<DataItem, DataOperation<DataItem>> driver, final DataOperation<DataItem> op)
+					throws Exception {
+		return execute(driver, Collections.singletonList(op)).get(0);
+	}
+
+	private static void assertSucc(final DataOperation<DataItem> op) {
+		assertEquals(op.toString(), Operation.Status.SUCC, op.status());
+	}
+
+	private List<String> loggedRequests(final String method) {
+		return emulator.loggedRequests()
+						.stream()
+						.filter(req -> req.startsWith(method + ' '))
+						.collect(Collectors.toList());
+	}
+
+	/** @return the object id from the item name set by the driver from the Location response header */
+	private static String objId(final DataItem item) {
+		final var name = item.name();
+		return name.substring(name.lastIndexOf('/') + 1);
+	}
+
+	@Test
+	public void testUserMetadataRoundTrip()
+					throws Exception {
+		final var driver = driver(
+						false, "storage-atmos-op-mode", "userMetadata", "storage-atmos-metadata-count", 3,
+						"storage-atmos-metadata-listableFraction", 0.34);
+		final var item = item(1, 1024);
+		assertSucc(execute(driver, op(OpType.CREATE, item, null)));
+		final var objId = objId(item);
+		final var createdMeta = emulator.userMetadata(objId);
+		assertEquals(List.of("key0", "key1", "tag0"), new ArrayList<>(createdMeta.keySet()));
+
+		// the metadata update: the item content written by the framework after the request is dropped
+		assertSucc(execute(driver, op(OpType.UPDATE, item, null)));
+		final var updatedMeta = emulator.userMetadata(objId);
+		assertEquals(createdMeta.keySet(), updatedMeta.keySet());
+		assertNotEquals(createdMeta, updatedMeta);
+		assertEquals(
+						List.of("POST " + AtmosApi.OBJ_URI_BASE + '/' + objId + AtmosApi.QUERY_METADATA_USER),
+						loggedRequests("POST").subList(1, 2));
+
+		assertSucc(execute(driver, op(OpType.READ, item, null)));
+		assertEquals(
+						List.of("GET " + AtmosApi.OBJ_URI_BASE + '/' + objId + AtmosApi.QUERY_METADATA_USER),
+						loggedRequests("GET"));
+
+		assertSucc(execute(driver, op(OpType.DELETE, item, null)));
+		assertEquals(
+						List.of("DELETE " + AtmosApi.OBJ_URI_BASE + '/' + objId + AtmosApi.QUERY_METADATA_USER),
+						loggedRequests("DELETE"));
+		assertEquals(Map.of(), emulator.userMetadata(objId));
+		assertEquals(1, emulator.objectCount()); // the object itself is not deleted
+
+		// the connections are still usable after the dropped content, the next requests succeed
+		final List<DataOperation<DataItem>> ops = new ArrayList<>();
+		for (var i = 0; i < 10; i++) {
+			ops.add(op(OpType.UPDATE, item, null));
+		}
+		for (final var op : execute(driver, ops)) {
+			assertSucc(op);
+		}
+		assertEquals(createdMeta.keySet(), emulator.userMetadata(objId).keySet());
+	}
+
+	@Test
+	public void testMetadataOpsVerified()
+					throws Exception {
+		final var driver = startDriver(false, true, "storage-atmos-op-mode", "userMetadata");
+		final var item = item(10, 0x1000);
+		assertSucc(execute(driver, op(OpType.CREATE, item, null)));
+		final DataOperation<DataItem> updateOp = new DataOperationImpl<>(
+						0, OpType.UPDATE, item, null, null, CREDENTIAL, null, 1);
+		assertTrue(Arrays.stream(updateOp.markedRangesMaskPair()).anyMatch(rangesMask -> !rangesMask.isEmpty()));
+		assertSucc(execute(driver, updateOp));
+		// the metadata update doesn't mark the item content as updated
+		for (final var rangesMask : updateOp.markedRangesMaskPair()) {
+			assertTrue(rangesMask.isEmpty());
+		}
+		// the metadata read response is not verified as the item content
+		assertSucc(execute(driver, op(OpType.READ, item, null)));
+		// the object content still matches the item
+		assertSucc(execute(startDriver(false, true), op(OpType.READ, item, null)));
+	}
+
+	@Test
+	public void testSystemMetadataRead()
+					throws Exception {
+		final var driver = driver(false, "storage-atmos-op-mode", "systemMetadata");
+		final var item = item(2, 10);
+		assertSucc(execute(driver, op(OpType.CREATE, item, null)));
+		assertSucc(execute(driver, op(OpType.READ, item, null)));
+		assertEquals(
+						List.of("GET " + AtmosApi.OBJ_URI_BASE + '/' + objId(item) + AtmosApi.QUERY_METADATA_SYSTEM),
+						loggedRequests("GET"));
+	}
+
+	@Test
+	public void testFsUserMetadataRoundTrip()
+					throws Exception {
+		final var driver = driver(
+						true, "storage-atmos-op-mode", "userMetadata", "storage-atmos-metadata-count", 2);
+		final var item = item(3, 100);
+		assertSucc(execute(driver, op(OpType.CREATE, item, "/dir0")));
+		assertSucc(execute(driver, op(OpType.UPDATE, item, "/dir0")));
+		assertSucc(execute(driver, op(OpType.READ, item, "/dir0")));
+		assertEquals(
+						List.of("GET " + AtmosApi.NS_URI_BASE + "/dir0/" + item.name() + AtmosApi.QUERY_METADATA_USER),
+						loggedRequests("GET"));
+		assertTrue(loggedRequests("POST").contains(
+						"POST " + AtmosApi.NS_URI_BASE + "/dir0/" + item.name() + AtmosApi.QUERY_METADATA_USER));
+	}
+
+	@Test
+	public void testRename()
+					throws Exception {
+		final var driver = driver(true, "storage-atmos-op-mode", "rename");
+		final var item = item(4, 100);
+		assertSucc(execute(driver, op(OpType.CREATE, item, "/src")));
+		assertSucc(execute(driver, copyOp(OpType.CREATE, item, "/src", "/dst")));
+		assertEquals(
+						List.of("POST " + AtmosApi.NS_URI_BASE + "/src/" + item.name() + AtmosApi.QUERY_RENAME),
+						loggedRequests("POST").subList(1, 2));
+		// the object is moved to the path from the x-emc-path header
+		assertSucc(execute(driver, op(OpType.READ, item, "/dst")));
+		assertEquals(
+						Operation.Status.RESP_FAIL_NOT_FOUND, execute(driver, op(OpType.READ, item, "/src")).status());
+		assertEquals(3, emulator.objectCount()); // the file is not copied, the directories are counted too
+	}
+
+	@Test
+	public void testCopyRejected()
+					throws Exception {
+		final var driver = driver(true);
+		final var item = item(5, 100);
+		assertSucc(execute(driver, op(OpType.CREATE, item, "/src")));
+		final var requestCount = emulator.requestCount();
+		final List<DataOperation<DataItem>> ops = new ArrayList<>();
+		for (var i = 0; i < 10; i++) {
+			ops.add(copyOp(OpType.CREATE, item, "/src", "/dst"));
+		}
+		for (final var op : execute(driver, ops)) {
+			assertEquals(op.toString(), Operation.Status.RESP_FAIL_CLIENT, op.status());
+		}
+		assertEquals(requestCount, emulator.requestCount()); // the copy requests are not sent
+		// the connections remain usable
+		assertSucc(execute(driver, op(OpType.READ, item, "/src")));
+	}
+
+	@Test
+	public void testParentDirsCreated()
+					throws Exception {
+		emulator.parentDirsRequired(true);
+		final var driver = driver(true, "storage-atmos-dir-cache-size", 100);
+		final List<DataOperation<DataItem>> ops = new ArrayList<>();
+		for (var i = 0; i < 100; i++) {
+			ops.add(op(OpType.CREATE, item(i, 10), i % 2 == 0 ? "/dir0/dir1" : "/dir0/dir2"));
+		}
+		for (final var op : execute(driver, ops)) {
+			assertSucc(op);
+		}
+		// each missing directory is created once by the concurrent creates
+		for (final var dirPath : List.of("/dir0/", "/dir0/dir1/", "/dir0/dir2/")) {
+			assertEquals(List.of("POST " + AtmosApi.NS_URI_BASE + dirPath), loggedRequests("POST")
+							.stream()
+							.filter(req -> req.endsWith(AtmosApi.NS_URI_BASE + dirPath))
+							.collect(Collectors.toList()));
+		}
+		assertEquals(103, emulator.objectCount());
+	}
+
+	@Test
+	public void testParentDirsCreatedWithOpCredential()
+					throws Exception {
+		// only the operation uid is known by the storage, the driver's default one is not
+		final var opCredential = Credential.getInstance("user2", "Bxx6FXsKd3cqCE9YFi1LdtyVyB2fPk6IcAqE5CSN");
+		try (final var emulator2 = new AtmosEmulator(
+						Collections.singletonMap(opCredential.getUid(), opCredential.getSecret()))) {
+			emulator2.requestLog(true).parentDirsRequired(true);
+			final var config = AtmosLoadBenchmark.config(emulator2.start(0, 1), true, CONCURRENCY);
+			config.val("storage-atmos-latencyPhases-enabled", false);
+			config.val("storage-atmos-dir-cache-size", 100);
+			final var driver = new AtmosStorageDriver<DataItem, DataOperation<DataItem>>(
+							"test-storage-driver-atmos-op-credential", DATA_INPUT, config.configVal("storage"), false,
+							BATCH_SIZE);
+			drivers.add(driver);
+			driver.start();
+			final var op = new DataOperationImpl<>(
+							0, OpType.CREATE, item(9, 10), null, "/dir0/dir1", opCredential, null, 0);
+			assertSucc(execute(driver, op));
+			assertEquals(
+							List.of("POST " + AtmosApi.NS_URI_BASE + "/dir0/", "POST " + AtmosApi.NS_URI_BASE + "/dir0/dir1/"),
+							emulator2.loggedRequests()
+											.stream()
+											.filter(req -> req.startsWith("POST " + AtmosApi.NS_URI_BASE) && req.endsWith("/"))
+											.collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	public void testParentDirsNotCreated()
+					throws Exception {
+		emulator.parentDirsRequired(true);
+		final var driver = driver(true);
+		assertEquals(
+						Operation.Status.RESP_FAIL_NOT_FOUND, execute(driver, op(OpType.CREATE, item(6, 10), "/dir0")).status());
+	}
+
+	@Test
+	public void testPathFanOut()
+					throws Exception {
+		emulator.parentDirsRequired(true);
+		final var driver = driver(
+						true, "storage-atmos-dir-cache-size", 100, "storage-atmos-dir-fanOut-depth", 2,
+						"storage-atmos-dir-fanOut-width", 4);
+		final var fanOut = new AtmosPathFanOut(2, 4);
+		final List<DataItem> items = new ArrayList<>();
+		final List<DataOperation<DataItem>> ops = new ArrayList<>();
+		for (var i = 0; i < 20; i++) {
+			final var item = item(i, 10);
+			items.add(item);
+			ops.add(op(OpType.CREATE, item, "/dir0"));
+		}
+		for (final var op : execute(driver, ops)) {
+			assertSucc(op);
+			assertEquals("/dir0", op.dstPath()); // not modified
+		}
+		ops.clear();
+		for (var i = 0; i < items.size(); i++) {
+			final var item = items.get(i);
+			// the created file name is prefixed with the leaf directory path
+			assertEquals(fanOut.fileName(Long.toString(i, Character.MAX_RADIX)), item.name());
+			ops.add(op(OpType.READ, item, "/dir0"));
+		}
+		for (final var op : execute(driver, ops)) {
+			assertSucc(op);
+		}
+		// the recycled create operation is not spread again
+		final var item = items.get(0);
+		final var itemName = item.name();
+		execute(driver, op(OpType.CREATE, item, "/dir0"));
+		assertEquals(itemName, item.name());
+		final var createReqs = loggedRequests("POST")
+						.stream()
+						.filter(req -> req.equals("POST " + AtmosApi.NS_URI_BASE + "/dir0/" + itemName))
+						.count();
+		assertEquals(2, createReqs);
+	}
+
+	@Test
+	public void testSubtenantCreatedOnceForConcurrentOps()
+					throws Exception {
+		final var driver = driver(false);
+		final List<DataOperation<DataItem>> ops = new ArrayList<>();
+		for (var i = 0; i < BATCH_SIZE; i++) {
+			ops.add(op(OpType.CREATE, item(i, 0x100), null));
+		}
+		// the ops wait for the same subtenant creation w/o blocking
+		execute(driver, ops).forEach(AtmosStorageDriverEmulatorTest::assertSucc);
+		assertEquals(List.of("PUT " + AtmosApi.SUBTENANT_URI_BASE), subtenantRequests(emulator));
+	}
+
+	@Test
+	public void testSubtenantsSpreadOverNodes()
+					throws Exception {
+		try (final var emulator2 = new AtmosEmulator(
+						Collections.singletonMap(CREDENTIAL.getUid(), CREDENTIAL.getSecret()))) {
+			emulator2.requestLog(true);
+			final var port2 = emulator2.start(0, 1);
+			final int deadPort;
+			try (final var socket = new ServerSocket(0)) {
+				deadPort = socket.getLocalPort();
+			}
+			final var config = AtmosLoadBenchmark.config(port, false, CONCURRENCY);
+			config.val(
+							"storage-net-node-addrs",
+							List.of("127.0.0.1:" + port, "127.0.0.1:" + deadPort, "127.0.0.1:" + port2));
+			// not started, so there are no load connections: the subtenants are created over the driver's own ones
+			final var driver = new AtmosStorageDriver<DataItem, DataOperation<DataItem>>(
+							"test-storage-driver-atmos-nodes", DATA_INPUT, config.configVal("storage"), false, BATCH_SIZE);
+			drivers.add(driver);
+			for (var i = 0; i < 4; i++) {
+				assertNotNull(driver.requestNewAuthToken(CREDENTIAL));
+			}
+			// the round robin order: the 1st node, the dead node (retried w/ the next one), the 3rd node, the 1st node
+			assertEquals(2, subtenantRequests(emulator).size());
+			assertEquals(2, subtenantRequests(emulator2).size());
+		}
+	}
+
+	@Test
+	public void testNodeProbedDirectly()
+					throws Exception {
+		final int deadPort;
+		try (final var socket = new ServerSocket(0)) {
+			deadPort = socket.getLocalPort();
+		}
+		final var config = AtmosLoadBenchmark.config(port, false, CONCURRENCY);
+		config.val("storage-net-node-addrs", List.of("127.0.0.1:" + port, "127.0.0.1:" + deadPort));
+		config.val("storage-atmos-node-balancing-enabled", true);
+		final var driver = new AtmosStorageDriver<DataItem, DataOperation<DataItem>>(
+						"test-storage-driver-atmos-probe", DATA_INPUT, config.configVal("storage"), false, BATCH_SIZE);
+		drivers.add(driver);
+		// the probe goes to the probed node itself, not to any node over the load connections
+		assertTrue(driver.probeNode("127.0.0.1:" + port));
+		assertEquals(List.of("HEAD " + AtmosApi.SERVICE_URI), loggedRequests("HEAD"));
+		assertFalse(driver.probeNode("127.0.0.1:" + deadPort));
+		assertEquals(1, loggedRequests("HEAD").size());
+	}
+
+	private static List<String> subtenantRequests(final AtmosEmulator emulator) {
+		return emulator.loggedRequests()
+						.stream()
+						.filter(req -> req.startsWith("PUT " + AtmosApi.SUBTENANT_URI_BASE))
+						.collect(Collectors.toList());
+	}
+
+	@Test
+	public void testSignedRequestsValidated()
+					throws Exception {
+		// the generated metadata and the checksum headers are signed too
+		final var driver = driver(
+						false, "storage-atmos-metadata-count", 4, "storage-atmos-metadata-listableFraction", 0.5,
+						"storage-atmos-checksum-enabled", true);
+		final var item = item(7, 0x1000);
+		assertSucc(execute(driver, op(OpType.CREATE, item, null)));
+		assertEquals(4, emulator.userMetadata(objId(item)).size());
+		assertSucc(execute(driver, op(OpType.READ, item, null)));
+		assertSucc(execute(driver, op(OpType.DELETE, item, null)));
+		assertNull(emulator.userMetadata(objId(item)));
+		// the request signed with the wrong secret is rejected
+		final var wrongCredential = Credential.getInstance(
+						CREDENTIAL.getUid(), "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+		final var wrongOp = new DataOperationImpl<>(
+						0, OpType.CREATE, item(8, 10), null, null, wrongCredential, null, 0);
+		assertEquals(Operation.Status.RESP_FAIL_AUTH, execute(driver, wrongOp).status());
+		assertEquals(0, emulator.objectCount());
+	}
+}
@@ -1,8 +1,12 @@
 package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
 
 import static com.emc.mongoose.base.Constants.APP_NAME;
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_SUBTENANT_ID;
 import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.SUBTENANT_URI_BASE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -12,8 +16,10 @@ import com.emc.mongoose.base.env.Extension;
 import com.emc.mongoose.base.item.DataItem;
 import com.emc.mongoose.base.item.DataItemImpl;
 import com.emc.mongoose.base.item.op.OpType;
+import com.emc.mongoose.base.item.op.composite.data.CompositeDataOperation;
 import com.emc.mongoose.base.item.op.data.DataOperation;
 import com.emc.mongoose.base.item.op.data.DataOperationImpl;
+import com.emc.mongoose.base.item.op.partial.data.PartialDataOperation;
 import com.emc.mongoose.base.storage.Credential;
 import com.emc.mongoose.storage.driver.coop.netty.http.EmcConstants;
 import com.github.akurilov.commons.collection.TreeUtil;
@@ -22,6 +28,7 @@ import com.github.akurilov.confuse.Config;
 import com.github.akurilov.confuse.SchemaProvider;
 import com.github.akurilov.confuse.impl.BasicConfig;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
@@ -30,7 +37,10 @@ import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
-import java.util.ArrayDeque;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -38,7 +48,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import org.junit.After;
 import org.junit.Test;
 
@@ -91,6 +108,7 @@ public class AtmosStorageDriverTest extends AtmosStorageDriver {
 			config.val("storage-net-node-addrs", Collections.singletonList("127.0.0.1"));
 			config.val("storage-net-node-port", 9024);
 			config.val("storage-net-node-connAttemptsLimit", 0);
+			AtmosConfigDefaults.apply(config);
 			config.val("storage-net-http-fsAccess", false);
 			config.val(
 							"storage-net-http-headers",
@@ -112,7 +130,10 @@ public class AtmosStorageDriverTest extends AtmosStorageDriver {
 		}
 	}
 
-	private final Queue<FullHttpRequest> httpRequestsLog = new ArrayDeque<>();
+	private final Queue<FullHttpRequest> httpRequestsLog = new ConcurrentLinkedQueue<>();
+	/** Delays the executed requests responses if set */
+	private volatile CountDownLatch httpRequestsLatch = null;
+	private volatile HttpResponseStatus httpResponseStatus = HttpResponseStatus.OK;
 
 	public AtmosStorageDriverTest() throws Exception {
 		this(getConfig());
@@ -128,14 +149,86 @@ public class AtmosStorageDriverTest extends AtmosStorageDriver {
 	}
 
 	@Override
-	protected FullHttpResponse executeHttpRequest(final FullHttpRequest httpRequest) {
+	protected CompletableFuture<FullHttpResponse> executeHttpRequest(
+					final String nodeAddr, final FullHttpRequest httpRequest) {
 		httpRequestsLog.add(httpRequest);
-		return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+		final var httpResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, httpResponseStatus);
+		httpResponse.headers().set(KEY_SUBTENANT_ID, "subtenant" + httpRequestsLog.size());
+		final var latch = httpRequestsLatch;
+		if (latch == null) {
+			return CompletableFuture.completedFuture(httpResponse);
+		}
+		return CompletableFuture.supplyAsync(
+						() -> {
+							try {
+								latch.await();
+							} catch (final InterruptedException e) {
+								throw new CompletionException(e);
+							}
+							return httpResponse;
+						});
 	}
 
 	@After
 	public void tearDown() {
 		httpRequestsLog.clear();
+		httpRequestsLatch = null;
+		httpResponseStatus = HttpResponseStatus.OK;
+	}
+
+	/**
+	 @param answers the method name and the return value pairs
+	 @return the operation stub answering the given methods only
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> T opStub(final Class<T> opInterface, final Object... answers) {
+		final Map<String, Object> answerByMethodName = new HashMap<>();
+		for (var i = 0; i < answers.length; i += 2) {
+			answerByMethodName.put((String) answers[i], answers[i + 1]);
+		}
+		return (T) Proxy.newProxyInstance(
+						opInterface.getClassLoader(),
+						new Class<?>[] { opInterface },
+						(proxy, method, args) -> {
+							final var methodName = method.getName();
+							switch (methodName) {
+							case "hashCode":
+								return System.identityHashCode(proxy);
+							case "equals":
+								return proxy == args[0];
+							case "toString":
+								return opInterface.getSimpleName() + answerByMethodName;
+							}
+							if (!answerByMethodName.containsKey(methodName)) {
+								throw new UnsupportedOperationException(methodName);
+							}
+							return answerByMethodName.get(methodName);
+						});
+	}
+
+	private CompositeDataOperation compositeOp(final OpType opType, final DataItem item, final boolean done) {
+		return opStub(
+						CompositeDataOperation.class, "type", opType, "item", item, "srcPath", null, "dstPath", null,
+						"credential", credential, "allSubOperationsDone", done);
+	}
+
+	private PartialDataOperation partialOp(
+					final OpType opType, final CompositeDataOperation parentOp, final DataItem partItem) {
+		return opStub(
+						PartialDataOperation.class, "type", opType, "item", partItem, "parent", parentOp, "srcPath", null,
+						"dstPath", null, "credential", credential);
+	}
+
+	private static void assertStripeRequest(
+					final HttpRequest req, final HttpMethod method, final String uri, final String range,
+					final long contentLength) {
+		assertEquals(method, req.method());
+		assertEquals(uri, req.uri());
+		final HttpHeaders reqHeaders = req.headers();
+		assertEquals(range, reqHeaders.get(HttpHeaderNames.RANGE));
+		assertEquals(contentLength, reqHeaders.getInt(HttpHeaderNames.CONTENT_LENGTH).intValue());
+		final String sig = reqHeaders.get(EmcConstants.KEY_X_EMC_SIGNATURE);
+		assertTrue(sig != null && sig.length() > 0);
 	}
 
 	@Test
@@ -174,6 +267,53 @@ public class AtmosStorageDriverTest extends AtmosStorageDriver {
 						canonicalReq);
 	}
 
+	@Test
+	public void testRequestNewAuthTokenDedup() throws Exception {
+		final var latch = new CountDownLatch(1);
+		httpRequestsLatch = latch;
+		final var callerCount = 4;
+		final List<CompletableFuture<String>> results = new ArrayList<>();
+		for (var i = 0; i < callerCount; i++) {
+			results.add(subtenantFuture(credential));
+		}
+		// the response is delayed by the latch, so all the callers joined the pending request
+		assertEquals(1, httpRequestsLog.size());
+		for (final var result : results) {
+			assertSame(results.get(0), result);
+			assertFalse(result.isDone());
+		}
+		latch.countDown();
+		for (final var result : results) {
+			assertEquals("subtenant1", result.get(10, TimeUnit.SECONDS));
+		}
+		assertEquals("subtenant1", authTokens.get(credential));
+		httpRequestsLatch = null;
+		// the next request for the same credential is not deduplicated with the finished one
+		assertEquals("subtenant2", requestNewAuthToken(credential));
+		// the other credential's request is not deduplicated with the same credential's one
+		assertEquals("subtenant3", requestNewAuthToken(Credential.getInstance("user2", credential.getSecret())));
+		assertEquals(3, httpRequestsLog.size());
+	}
+
+	@Test
+	public void testRequestNewAuthTokenFailure() throws Exception {
+		httpResponseStatus = HttpResponseStatus.FORBIDDEN;
+		assertNull(requestNewAuthToken(credential));
+		httpResponseStatus = HttpResponseStatus.OK;
+		assertEquals("subtenant2", requestNewAuthToken(credential));
+	}
+
+	@Test
+	public void testParseOffset() {
+		assertEquals(Long.parseLong("00003brre8lgz", Character.MAX_RADIX), parseOffset("00003brre8lgz", 0, 36));
+		assertEquals(0x1f, parseOffset("dir0/prefix1f", "dir0/prefix".length(), 16));
+		// the Atmos object id is not a decimal number
+		assertEquals(0, parseOffset("4fccd760a1f2194004fcce05b010a304ffc5aa15c541", 0, 10));
+		assertEquals(0, parseOffset("prefix", "prefix".length(), 10));
+		assertEquals(0, parseOffset("-1", 0, 10));
+		assertEquals(0, parseOffset("99999999999999999999", 0, 10)); // overflow
+	}
+
 	@Test
 	public void testRead() throws Exception {
 
@@ -215,4 +355,175 @@ public class AtmosStorageDriverTest extends AtmosStorageDriver {
 										+ credential.getUid(),
 						canonicalReq);
 	}
+
+	@Test
+	public void testSignature() throws Exception {
+
+		final String uri = AtmosApi.OBJ_URI_BASE + "/4fccd760a1f2194004fcce05b010a304ffc5aa15c541";
+		final HttpHeaders reqHeaders = new DefaultHttpHeaders();
+		reqHeaders.set(HttpHeaderNames.CONTENT_TYPE, "application/octet-stream");
+		reqHeaders.set(HttpHeaderNames.RANGE, "bytes=0-1023");
+		reqHeaders.set(HttpHeaderNames.DATE, "Thu, 05 Jun 2008 16:38:19 GMT");
+		reqHeaders.set("X-EMC-Meta", "k0=v0,city=Z\u00fcrich");
+		reqHeaders.set("x-emc-Listable-Meta", "t0=v0");
+		applyAuthHeaders(reqHeaders, HttpMethod.PUT, uri, credential);
+
+		assertEquals(
+						"PUT\napplication/octet-stream\nbytes=0-1023\nThu, 05 Jun 2008 16:38:19 GMT\n" + uri
+										+ "\nx-emc-listable-meta:t0=v0\nx-emc-meta:k0=v0,city=Z\u00fcrich\nx-emc-namespace:" + NS
+										+ "\nx-emc-uid:" + AUTH_TOKEN + '/' + CREDENTIAL.getUid(),
+						getCanonical(reqHeaders, HttpMethod.PUT, uri));
+		// calculated independently of the driver: HMAC-SHA1 of the UTF-8 encoded canonical form above
+		assertEquals("U3qQAqqS8FpauWIHS15bu6SYzWg=", reqHeaders.get(EmcConstants.KEY_X_EMC_SIGNATURE));
+	}
+
+	@Test
+	public void testAnyEmcHeaderAndRepeatedValuesSigned() throws Exception {
+
+		final String uri = AtmosApi.OBJ_URI_BASE + "/4fccd760a1f2194004fcce05b010a304ffc5aa15c541";
+		final HttpHeaders reqHeaders = new DefaultHttpHeaders();
+		reqHeaders.add(HttpHeaderNames.RANGE, "bytes=0-1023");
+		reqHeaders.add(HttpHeaderNames.RANGE, "bytes=2048-4095");
+		reqHeaders.set(HttpHeaderNames.DATE, "Thu, 05 Jun 2008 16:38:19 GMT");
+		reqHeaders.set("X-Emc-Custom-Header", "v0");
+		applyAuthHeaders(reqHeaders, HttpMethod.GET, uri, credential);
+
+		final String expectedCanonical = "GET\n\nbytes=0-1023\nbytes=2048-4095\nThu, 05 Jun 2008 16:38:19 GMT\n" + uri
+						+ "\nx-emc-custom-header:v0\nx-emc-namespace:" + NS + "\nx-emc-uid:" + AUTH_TOKEN + '/'
+						+ CREDENTIAL.getUid();
+		assertEquals(expectedCanonical, getCanonical(reqHeaders, HttpMethod.GET, uri));
+		final Mac mac = Mac.getInstance("HmacSHA1");
+		mac.init(new SecretKeySpec(Base64.getDecoder().decode(CREDENTIAL.getSecret()), "HmacSHA1"));
+		assertEquals(
+						Base64.getEncoder().encodeToString(mac.doFinal(expectedCanonical.getBytes(StandardCharsets.UTF_8))),
+						reqHeaders.get(EmcConstants.KEY_X_EMC_SIGNATURE));
+	}
+
+	@Test
+	public void testGeneratedMetadataSigned() throws Exception {
+
+		final String uri = AtmosApi.OBJ_URI_BASE + "/4fccd760a1f2194004fcce05b010a304ffc5aa15c541";
+		final HttpHeaders reqHeaders = new DefaultHttpHeaders();
+		reqHeaders.set(HttpHeaderNames.DATE, "Thu, 05 Jun 2008 16:38:19 GMT");
+		new AtmosMetadataGenerator(3, 16, 0.34).apply(reqHeaders);
+		final String meta = reqHeaders.get(AtmosApi.KEY_X_EMC_META);
+		final String listableMeta = reqHeaders.get(AtmosApi.KEY_X_EMC_LISTABLE_META);
+		assertTrue(meta.matches("key0=[^,\\s]{16},key1=[^,\\s]{16}"));
+		assertTrue(listableMeta.matches("tag0=[^,\\s]{16}"));
+		applyAuthHeaders(reqHeaders, HttpMethod.PUT, uri, credential);
+
+		final String expectedCanonical = "PUT\n\n\nThu, 05 Jun 2008 16:38:19 GMT\n" + uri + "\nx-emc-listable-meta:"
+						+ listableMeta + "\nx-emc-meta:" + meta + "\nx-emc-namespace:" + NS + "\nx-emc-uid:" + AUTH_TOKEN + '/'
+						+ CREDENTIAL.getUid();
+		assertEquals(expectedCanonical, getCanonical(reqHeaders, HttpMethod.PUT, uri));
+		final Mac mac = Mac.getInstance("HmacSHA1");
+		mac.init(new SecretKeySpec(Base64.getDecoder().decode(CREDENTIAL.getSecret()), "HmacSHA1"));
+		assertEquals(
+						Base64.getEncoder().encodeToString(mac.doFinal(expectedCanonical.getBytes(StandardCharsets.UTF_8))),
+						reqHeaders.get(EmcConstants.KEY_X_EMC_SIGNATURE));
+	}
+
+	@Test
+	public void testSharedHeaderValueChanged() throws Exception {
+
+		final String uri = AtmosApi.OBJ_URI_BASE + "/4fccd760a1f2194004fcce05b010a304ffc5aa15c541";
+		final HttpHeaders reqHeaders = new DefaultHttpHeaders();
+		reqHeaders.set(HttpHeaderNames.DATE, "Thu, 05 Jun 2008 16:38:19 GMT");
+		final String canonicalPrefix = "GET\n\n\nThu, 05 Jun 2008 16:38:19 GMT\n" + uri + "\nx-emc-namespace:";
+		assertEquals(canonicalPrefix + NS, getCanonical(reqHeaders, HttpMethod.GET, uri));
+		// the same shared headers count, the precompiled canonical part should be recompiled anyway
+		final int sharedHeadersCount = sharedHeaders.size();
+		sharedHeaders.set(EmcConstants.KEY_X_EMC_NAMESPACE, "ns2");
+		assertEquals(sharedHeadersCount, sharedHeaders.size());
+		assertEquals(canonicalPrefix + "ns2", getCanonical(reqHeaders, HttpMethod.GET, uri));
+		sharedHeaders.remove(EmcConstants.KEY_X_EMC_NAMESPACE);
+		assertEquals(
+						"GET\n\n\nThu, 05 Jun 2008 16:38:19 GMT\n" + uri, getCanonical(reqHeaders, HttpMethod.GET, uri));
+	}
+
+	@Test
+	public void testStripedCreate() throws Exception {
+
+		final String itemId = "4fccd760a1f2194004fcce05b010a304ffc5aa15c541";
+		final DataItem dataItem = new DataItemImpl(itemId, 0, 3 * 0x100000);
+		final String uri = AtmosApi.OBJ_URI_BASE + '/' + itemId;
+
+		final CompositeDataOperation initOp = compositeOp(OpType.CREATE, dataItem, false);
+		assertStripeRequest(httpRequest(initOp, storageNodeAddrs[0]), HttpMethod.POST, AtmosApi.OBJ_URI_BASE, null, 0);
+
+		final HttpRequest partReq = httpRequest(
+						partialOp(OpType.CREATE, initOp, dataItem.slice(0x100000, 0x100000)), storageNodeAddrs[0]);
+		assertStripeRequest(partReq, HttpMethod.PUT, uri, "bytes=1048576-2097151", 0x100000);
+		// the range is signed
+		assertTrue(getCanonical(partReq.headers(), partReq.method(), partReq.uri()).startsWith(
+						"PUT\n\nbytes=1048576-2097151\n"));
+		// the part is written after the preceding one
+		assertFalse(((AtmosStripeRequest) partReq).precedingPartsWritten.isDone());
+		final HttpRequest firstPartReq = httpRequest(
+						partialOp(OpType.CREATE, initOp, dataItem.slice(0, 0x100000)), storageNodeAddrs[0]);
+		assertTrue(((AtmosStripeRequest) firstPartReq).precedingPartsWritten.isDone());
+
+		final CompositeDataOperation doneOp = compositeOp(OpType.CREATE, dataItem, true);
+		assertStripeRequest(httpRequest(doneOp, storageNodeAddrs[0]), HttpMethod.HEAD, uri, null, 0);
+	}
+
+	@Test
+	public void testStripedRead() throws Exception {
+
+		final String itemId = "4fccd760a1f2194004fcce05b010a304ffc5aa15c541";
+		final DataItem dataItem = new DataItemImpl(itemId, 0, 3 * 0x100000);
+		final String uri = AtmosApi.OBJ_URI_BASE + '/' + itemId;
+
+		// the object existence is checked before the parts are read
+		final CompositeDataOperation initOp = compositeOp(OpType.READ, dataItem, false);
+		assertStripeRequest(httpRequest(initOp, storageNodeAddrs[0]), HttpMethod.HEAD, uri, null, 0);
+
+		final HttpRequest lastPartReq = httpRequest(
+						partialOp(OpType.READ, initOp, dataItem.slice(0x200000, 0x100000)), storageNodeAddrs[0]);
+		assertStripeRequest(lastPartReq, HttpMethod.GET, uri, "bytes=2097152-3145727", 0);
+		assertTrue(getCanonical(lastPartReq.headers(), lastPartReq.method(), lastPartReq.uri()).startsWith(
+						"GET\n\nbytes=2097152-3145727\n"));
+
+		assertStripeRequest(
+						httpRequest(compositeOp(OpType.READ, dataItem, true), storageNodeAddrs[0]),
+						HttpMethod.HEAD, uri, null, 0);
+	}
+
+	@Test
+	public void testStripedUpdate() throws Exception {
+
+		final String itemId = "4fccd760a1f2194004fcce05b010a304ffc5aa15c541";
+		final DataItem dataItem = new DataItemImpl(itemId, 0, 3 * 0x100000);
+		final String uri = AtmosApi.OBJ_URI_BASE + '/' + itemId;
+
+		final CompositeDataOperation initOp = compositeOp(OpType.UPDATE, dataItem, false);
+		assertStripeRequest(httpRequest(initOp, storageNodeAddrs[0]), HttpMethod.HEAD, uri, null, 0);
+		assertStripeRequest(
+						httpRequest(partialOp(OpType.UPDATE, initOp, dataItem.slice(0, 0x100000)), storageNodeAddrs[0]),
+						HttpMethod.PUT, uri, "bytes=0-1048575", 0x100000);
+		assertStripeRequest(
+						httpRequest(compositeOp(OpType.UPDATE, dataItem, true), storageNodeAddrs[0]),
+						HttpMethod.HEAD, uri, null, 0);
+	}
+
+	@Test
+	public void testStripedDelete() throws Exception {
+
+		final String itemId = "4fccd760a1f2194004fcce05b010a304ffc5aa15c541";
+		final DataItem dataItem = new DataItemImpl(itemId, 0, 3 * 0x100000);
+		final String uri = AtmosApi.OBJ_URI_BASE + '/' + itemId;
+
+		final CompositeDataOperation initOp = compositeOp(OpType.DELETE, dataItem, false);
+		assertStripeRequest(httpRequest(initOp, storageNodeAddrs[0]), HttpMethod.HEAD, uri, null, 0);
+		// the part is only checked
+		assertStripeRequest(
+						httpRequest(
+										partialOp(OpType.DELETE, initOp, dataItem.slice(0x200000, 0x100000)),
+										storageNodeAddrs[0]),
+						HttpMethod.HEAD, uri, "bytes=2097152-3145727", 0);
+		// the whole object is deleted when all the parts are done
+		assertStripeRequest(
+						httpRequest(compositeOp(OpType.DELETE, dataItem, true), storageNodeAddrs[0]),
+						HttpMethod.DELETE, uri, null, 0);
+	}
 }
@@ -0,0 +1,89 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import java.nio.channels.ClosedChannelException;
+import org.junit.Test;
+
+public class AtmosStripesOrderHandlerTest {
+
+	private static final Object STRIPED_OP = new Object();
+	private static final long PART_SIZE = 0x100;
+	private static final long SIZE = 3 * PART_SIZE;
+
+	private static AtmosStripeRequest partRequest(final AtmosStripesOrder stripesOrder, final long pos) {
+		return new AtmosStripeRequest(
+						new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.PUT, AtmosApi.OBJ_URI_BASE + "/obj0"),
+						stripesOrder.written(STRIPED_OP, pos));
+	}
+
+	@Test
+	public void testPartsWrittenInOrder() {
+		final var stripesOrder = new AtmosStripesOrder();
+		final var channel1 = new EmbeddedChannel(new AtmosStripesOrderHandler());
+		final var channel2 = new EmbeddedChannel(new AtmosStripesOrderHandler());
+		// the last part goes first
+		final var req2 = partRequest(stripesOrder, 2 * PART_SIZE);
+		final var content2 = new DefaultHttpContent(Unpooled.wrappedBuffer(new byte[(int) PART_SIZE]));
+		channel2.writeOutbound(req2, content2, LastHttpContent.EMPTY_LAST_CONTENT);
+		assertNull(channel2.readOutbound());
+		final var req0 = partRequest(stripesOrder, 0);
+		channel1.writeOutbound(req0, LastHttpContent.EMPTY_LAST_CONTENT);
+		assertSame(req0, channel1.readOutbound());
+		assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel1.readOutbound());
+		stripesOrder.partWritten(STRIPED_OP, PART_SIZE, SIZE, true);
+		channel2.runPendingTasks();
+		assertNull(channel2.readOutbound());
+		final var req1 = partRequest(stripesOrder, PART_SIZE);
+		channel1.writeOutbound(req1, LastHttpContent.EMPTY_LAST_CONTENT);
+		assertSame(req1, channel1.readOutbound());
+		assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel1.readOutbound());
+		stripesOrder.partWritten(STRIPED_OP, 2 * PART_SIZE, SIZE, true);
+		channel2.runPendingTasks();
+		assertSame(req2, channel2.readOutbound());
+		assertSame(content2, channel2.readOutbound());
+		assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel2.readOutbound());
+		ReferenceCountUtil.release(content2);
+		assertEquals(1, stripesOrder.pendingCount());
+		stripesOrder.partWritten(STRIPED_OP, SIZE, SIZE, true);
+		assertEquals(0, stripesOrder.pendingCount());
+	}
+
+	@Test
+	public void testPrecedingPartFailed() {
+		final var stripesOrder = new AtmosStripesOrder();
+		final var channel = new EmbeddedChannel(new AtmosStripesOrderHandler());
+		final var req = partRequest(stripesOrder, PART_SIZE);
+		channel.writeOutbound(req, LastHttpContent.EMPTY_LAST_CONTENT);
+		assertNull(channel.readOutbound());
+		stripesOrder.partWritten(STRIPED_OP, PART_SIZE, SIZE, false);
+		channel.runPendingTasks();
+		// sent anyway to fail w/ the storage response
+		assertSame(req, channel.readOutbound());
+		assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel.readOutbound());
+	}
+
+	@Test
+	public void testChannelClosedWhileWaiting() {
+		final var stripesOrder = new AtmosStripesOrder();
+		final var channel = new EmbeddedChannel(new AtmosStripesOrderHandler());
+		final var future = channel.writeAndFlush(partRequest(stripesOrder, PART_SIZE));
+		assertNull(channel.readOutbound());
+		channel.close();
+		assertTrue(future.cause() instanceof ClosedChannelException);
+		stripesOrder.partWritten(STRIPED_OP, PART_SIZE, SIZE, true);
+		channel.runPendingTasks();
+		assertNull(channel.readOutbound());
+	}
+}
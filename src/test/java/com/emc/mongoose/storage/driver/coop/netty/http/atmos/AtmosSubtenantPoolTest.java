@@ -0,0 +1,105 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class AtmosSubtenantPoolTest {
+
+	@Test
+	public void testCreateConcurrency() {
+		final var concurrency = new AtomicInteger(0);
+		final var maxConcurrency = new AtomicInteger(0);
+		final var createdCount = new AtomicInteger(0);
+		final var pool = AtmosSubtenantPool.create(
+						100, 4, () -> {
+							maxConcurrency.accumulateAndGet(concurrency.incrementAndGet(), Math::max);
+							try {
+								Thread.sleep(1);
+							} catch (final InterruptedException e) {
+								throw new AssertionError(e);
+							} finally {
+								concurrency.decrementAndGet();
+							}
+							return "subtenant" + createdCount.getAndIncrement();
+						});
+		assertFalse(pool.isEmpty());
+		assertEquals(100, createdCount.get());
+		assertTrue(maxConcurrency.get() <= 4);
+		final Set<String> subtenantIds = new HashSet<>();
+		for (var itemId = 0L; itemId < 100; itemId++) {
+			subtenantIds.add(pool.subtenantId(itemId));
+		}
+		assertEquals(100, subtenantIds.size());
+	}
+
+	@Test
+	public void testRoundRobinDistribution() {
+		final var createdCount = new AtomicInteger(0);
+		final var pool = AtmosSubtenantPool.create(1, 1, () -> "subtenant" + createdCount.getAndIncrement());
+		assertEquals("subtenant0", pool.subtenantId(0));
+		assertEquals("subtenant0", pool.subtenantId(Long.MIN_VALUE));
+		final var pool3 = AtmosSubtenantPool.create(3, 1, () -> "subtenant" + createdCount.getAndIncrement());
+		// the single creation thread creates the subtenants in the order
+		assertEquals("subtenant1", pool3.subtenantId(0));
+		assertEquals("subtenant2", pool3.subtenantId(1));
+		assertEquals("subtenant3", pool3.subtenantId(2));
+		assertEquals("subtenant1", pool3.subtenantId(3));
+		// the same item id maps to the same subtenant, the negative ids too
+		assertEquals(pool3.subtenantId(-1), pool3.subtenantId(-1));
+		assertEquals("subtenant3", pool3.subtenantId(-1));
+		assertEquals(pool3.subtenantId(Long.MAX_VALUE), pool3.subtenantId(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testCreateFailures() {
+		final var attemptCount = new AtomicInteger(0);
+		final var pool = AtmosSubtenantPool.create(
+						10, 2, () -> {
+							final var i = attemptCount.getAndIncrement();
+							return i % 2 == 0 ? null : "subtenant" + i;
+						});
+		assertEquals(10, attemptCount.get());
+		assertFalse(pool.isEmpty());
+		for (var itemId = 0L; itemId < 10; itemId++) {
+			final var subtenantId = pool.subtenantId(itemId);
+			assertTrue(subtenantId, subtenantId.startsWith("subtenant"));
+		}
+		assertTrue(AtmosSubtenantPool.create(3, 3, () -> null).isEmpty());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCreateFailureThrown() {
+		AtmosSubtenantPool.create(
+						3, 3, () -> {
+							throw new IllegalArgumentException("test");
+						});
+	}
+
+	@Test
+	public void testDeleteAll() {
+		final var createdCount = new AtomicInteger(0);
+		final var pool = AtmosSubtenantPool.create(10, 3, () -> "subtenant" + createdCount.getAndIncrement());
+		final List<String> deletedIds = Collections.synchronizedList(new ArrayList<>());
+		pool.deleteAll(deletedIds::add);
+		Collections.sort(deletedIds);
+		final List<String> expectedIds = new ArrayList<>();
+		for (var i = 0; i < 10; i++) {
+			expectedIds.add("subtenant" + i);
+		}
+		Collections.sort(expectedIds);
+		assertEquals(expectedIds, deletedIds);
+		// nothing to delete, the function is not invoked
+		AtmosSubtenantPool.create(1, 1, () -> null).deleteAll(subtenantId -> {
+			throw new AssertionError(subtenantId);
+		});
+	}
+}
@@ -0,0 +1,122 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static com.emc.mongoose.storage.driver.coop.netty.http.atmos.AtmosApi.KEY_X_EMC_TOKEN;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+public class AtmosTagQueryHandlerTest {
+
+	private static AtmosTagQuery.Cursor query(
+					final EmbeddedChannel channel, final AtmosTagQuery tagQuery, final String nextToken,
+					final String... contentChunks) {
+		final var cursor = tagQuery.nextCursor();
+		send(channel, cursor);
+		respond(channel, HttpResponseStatus.OK, nextToken, contentChunks);
+		return cursor;
+	}
+
+	private static void send(final EmbeddedChannel channel, final AtmosTagQuery.Cursor cursor) {
+		channel.writeOutbound(new AtmosTagQueryRequest(cursor, AtmosApi.OBJ_URI_BASE, new DefaultHttpHeaders()));
+		ReferenceCountUtil.release(channel.readOutbound());
+	}
+
+	private static void respond(
+					final EmbeddedChannel channel, final HttpResponseStatus status, final String nextToken,
+					final String... contentChunks) {
+		final var resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+		if (nextToken != null) {
+			resp.headers().set(KEY_X_EMC_TOKEN, nextToken);
+		}
+		channel.writeInbound(resp);
+		for (var i = 0; i < contentChunks.length - 1; i++) {
+			channel.writeInbound(new DefaultHttpContent(Unpooled.copiedBuffer(contentChunks[i], US_ASCII)));
+		}
+		channel.writeInbound(
+						new DefaultLastHttpContent(Unpooled.copiedBuffer(contentChunks[contentChunks.length - 1], US_ASCII)));
+		Object msg;
+		while (null != (msg = channel.readInbound())) {
+			ReferenceCountUtil.release(msg);
+		}
+	}
+
+	@Test
+	public void testPages() {
+		final var tagQuery = new AtmosTagQuery(2, 2);
+		final var channel = new EmbeddedChannel(new AtmosTagQueryHandler(tagQuery));
+		final var cursor0 = query(
+						channel, tagQuery, "token0",
+						"<ListObjectsResponse><Object><Obj", "ectID>4fccd760a1f2194004fcce05b010a304ffc5aa15c541</ObjectID>",
+						"</Object><Object><ObjectID>4fccd760a1f2194004fcce05b010a304ffc5aa15c542</ObjectID></Object>",
+						"</ListObjectsResponse>");
+		assertEquals(0, cursor0.tagIndex);
+		assertEquals("token0", cursor0.token());
+		final var cursor1 = query(
+						channel, tagQuery, null,
+						"<ListObjectsResponse><Object><ObjectID>4fccd760a1f2194004fcce05b010a304ffc5aa15c543</ObjectID>"
+										+ "</Object></ListObjectsResponse>");
+		assertEquals(1, cursor1.tagIndex);
+		assertNull(cursor1.token());
+		// the released cursors are reused
+		assertSame(cursor0, tagQuery.nextCursor());
+		assertSame(cursor1, tagQuery.nextCursor());
+		assertEquals("tag1", tagQuery.tag(1).toString());
+		assertTrue(tagQuery.toString(), tagQuery.toString().startsWith("tag queries: pages=2, objects=3,"));
+	}
+
+	@Test
+	public void testConcurrentQueriesOwnCursors() {
+		final var tagQuery = new AtmosTagQuery(1, 2);
+		final var channel0 = new EmbeddedChannel(new AtmosTagQueryHandler(tagQuery));
+		final var channel1 = new EmbeddedChannel(new AtmosTagQueryHandler(tagQuery));
+		final var cursor = query(channel0, tagQuery, "token0", "</ListObjectsResponse>");
+		// the 1st query continues the listing, the concurrent one starts the new listing of the same tag
+		final var cursor0 = tagQuery.nextCursor();
+		final var cursor1 = tagQuery.nextCursor();
+		assertSame(cursor, cursor0);
+		assertNotSame(cursor0, cursor1);
+		assertEquals("token0", cursor0.token());
+		assertNull(cursor1.token());
+		send(channel0, cursor0);
+		send(channel1, cursor1);
+		assertEquals(0, tagQuery.idleCursorCount(0));
+		respond(channel1, HttpResponseStatus.OK, "token1", "</ListObjectsResponse>");
+		respond(channel0, HttpResponseStatus.OK, "token2", "</ListObjectsResponse>");
+		// each response updates the token of its own cursor only
+		assertEquals("token2", cursor0.token());
+		assertEquals("token1", cursor1.token());
+		assertEquals(2, tagQuery.idleCursorCount(0));
+	}
+
+	@Test
+	public void testCursorReleasedOnFailure() {
+		final var tagQuery = new AtmosTagQuery(1, 2);
+		final var channel = new EmbeddedChannel(new AtmosTagQueryHandler(tagQuery));
+		final var cursor = query(channel, tagQuery, "token0", "</ListObjectsResponse>");
+		assertSame(cursor, tagQuery.nextCursor());
+		send(channel, cursor);
+		respond(channel, HttpResponseStatus.SERVICE_UNAVAILABLE, null, "");
+		// the same page is requested again
+		assertEquals("token0", cursor.token());
+		assertEquals(1, tagQuery.idleCursorCount(0));
+		assertSame(cursor, tagQuery.nextCursor());
+		send(channel, cursor);
+		channel.close();
+		assertEquals(1, tagQuery.idleCursorCount(0));
+		assertTrue(tagQuery.toString(), tagQuery.toString().startsWith("tag queries: pages=1, objects=0,"));
+	}
+}
@@ -0,0 +1,121 @@
+package com.emc.mongoose.storage.driver.coop.netty.http.atmos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.emc.mongoose.base.data.DataInput;
+import com.emc.mongoose.base.item.DataItem;
+import com.emc.mongoose.base.item.DataItemImpl;
+import com.github.akurilov.commons.system.SizeInBytes;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+public class AtmosWriteChecksumTest {
+
+	private static final DataInput DATA_INPUT = DataInput.instance(
+					null, "7a42d9c483244167", new SizeInBytes("4MB"), 16);
+
+	@AfterClass
+	public static void tearDownClass()
+					throws Exception {
+		DATA_INPUT.close();
+	}
+
+	private static DataItem item(final String name, final long size) {
+		final DataItem item = new DataItemImpl(name, Long.parseLong(name, Character.MAX_RADIX), size);
+		item.dataInput(DATA_INPUT);
+		return item;
+	}
+
+	private static String expectedHeaderValue(final String name, final long size)
+					throws Exception {
+		final var content = ByteBuffer.allocate((int) size);
+		final var item = item(name, size);
+		while (content.hasRemaining()) {
+			item.read(content);
+		}
+		final var hash = MessageDigest.getInstance("MD5").digest(content.array());
+		final var value = new StringBuilder("MD5/").append(size).append('/');
+		for (final var b : hash) {
+			value.append(String.format("%02x", b));
+		}
+		return value.toString();
+	}
+
+	@Test
+	public void testCreateHeaderFormat()
+					throws Exception {
+		final var checksum = new AtmosWriteChecksum(AtmosWriteChecksum.STATE_COUNT_LIMIT);
+		final long size = 0x30000 + 123; // not a multiple of the buffer size
+		final var value = checksum.create(item("checksum0", size), size);
+		assertTrue(value, value.matches("MD5/" + size + "/[0-9a-f]{32}"));
+		assertEquals(expectedHeaderValue("checksum0", size), value);
+		assertEquals(size, checksum.digestedSize());
+	}
+
+	@Test
+	public void testAppendContinuation()
+					throws Exception {
+		final var checksum = new AtmosWriteChecksum(AtmosWriteChecksum.STATE_COUNT_LIMIT);
+		final long size = 0x10000;
+		final long appendSize = 0x2000 + 1;
+		checksum.create(item("checksum1", size), size);
+		final var value = checksum.append(item("checksum1", size + appendSize), size, appendSize);
+		assertEquals(expectedHeaderValue("checksum1", size + appendSize), value);
+		// the existing content is not digested again
+		assertEquals(size + appendSize, checksum.digestedSize());
+		final var nextValue = checksum.append(item("checksum1", size + 2 * appendSize), size + appendSize, appendSize);
+		assertEquals(expectedHeaderValue("checksum1", size + 2 * appendSize), nextValue);
+		assertEquals(size + 2 * appendSize, checksum.digestedSize());
+	}
+
+	@Test
+	public void testAppendAfterObjectIdAssigned()
+					throws Exception {
+		final var checksum = new AtmosWriteChecksum(AtmosWriteChecksum.STATE_COUNT_LIMIT);
+		final long size = 0x1000;
+		final long appendSize = 0x100;
+		final var item = item("checksum3", size);
+		checksum.create(item, size);
+		// object mode: the item name is replaced w/ the object id from the create response Location header
+		item.name("/4fccd760a1f2194004fcce05b010a304ffc5aa15c541");
+		item.size(size + appendSize);
+		final var value = checksum.append(item, size, appendSize);
+		assertEquals(expectedHeaderValue("checksum3", size + appendSize), value);
+		// the created content is not digested again
+		assertEquals(size + appendSize, checksum.digestedSize());
+	}
+
+	@Test
+	public void testAppendWithoutState()
+					throws Exception {
+		final var checksum = new AtmosWriteChecksum(AtmosWriteChecksum.STATE_COUNT_LIMIT);
+		final long size = 0x1000;
+		final long appendSize = 0x100;
+		final var value = checksum.append(item("checksum2", size + appendSize), size, appendSize);
+		assertEquals(expectedHeaderValue("checksum2", size + appendSize), value);
+		assertEquals(size + appendSize, checksum.digestedSize());
+	}
+
+	@Test
+	public void testStateEviction()
+					throws Exception {
+		final var checksum = new AtmosWriteChecksum(2);
+		final long size = 0x100;
+		for (var i = 0; i < 5; i++) {
+			checksum.create(item("checksum" + i, size), size);
+		}
+		assertEquals(2, checksum.stateCount());
+		assertEquals(5 * size, checksum.digestedSize());
+		// the evicted item's state is not available so the existing content is digested again
+		checksum.append(item("checksum0", 2 * size), size, size);
+		assertEquals(5 * size + 2 * size, checksum.digestedSize());
+		// the recent item's state is still available
+		checksum.append(item("checksum4", 2 * size), size, size);
+		assertEquals(5 * size + 2 * size + size, checksum.digestedSize());
+		checksum.forget(item("checksum4", 2 * size));
+		assertEquals(1, checksum.stateCount()); // only checksum0 remains
+	}
+}